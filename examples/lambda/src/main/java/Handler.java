@@ -1,33 +1,34 @@
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
-import software.amazon.cloudwatchlogs.emf.exception.DimensionSetExceededException;
-import software.amazon.cloudwatchlogs.emf.exception.InvalidDimensionException;
 import software.amazon.cloudwatchlogs.emf.exception.InvalidMetricException;
-import software.amazon.cloudwatchlogs.emf.logger.MetricsLogger;
+import software.amazon.cloudwatchlogs.emf.exception.InvalidNamespaceException;
+import software.amazon.cloudwatchlogs.emf.logger.LambdaMetricsLogger;
 import software.amazon.cloudwatchlogs.emf.model.DimensionSet;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
 import software.amazon.cloudwatchlogs.emf.model.StorageResolution;
 import software.amazon.cloudwatchlogs.emf.model.Unit;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 public class Handler implements RequestHandler<Map<String, String>, String> {
 
+    // created once per container, and reused by every invocation
+    private final LambdaMetricsLogger logger = new LambdaMetricsLogger(createTemplate());
+
     @Override
     public String handleRequest(Map<String, String> event, Context context) {
         String response = "200 OK";
-        MetricsLogger logger = new MetricsLogger();
 
         try {
-            logger.putDimensions(DimensionSet.of("Service", "Aggregator"));
             logger.putMetric("ProcessingLatency", 100, Unit.MILLISECONDS);
             logger.putMetric("CPU Utilization", 87, Unit.PERCENT, StorageResolution.HIGH);
-        } catch (InvalidDimensionException | InvalidMetricException | DimensionSetExceededException e) {
+        } catch (InvalidMetricException e) {
             System.out.println(e);
         }
 
-        logger.putProperty("AccountId", "123456789");
-        logger.putProperty("RequestId", "422b1569-16f6-4a03-b8f0-fe3fd9b100f8");
+        logger.putProperty("RequestId", context.getAwsRequestId());
         logger.putProperty("DeviceId", "61270781-c6ac-46f1-baf7-22c808af8162");
         Map<String, Object> payLoad = new HashMap<>();
         payLoad.put("sampleTime", 123456789);
@@ -41,4 +42,15 @@ public class Handler implements RequestHandler<Map<String, String>, String> {
         return response;
     }
 
+    private static MetricsContext createTemplate() {
+        try {
+            return new MetricsContext(
+                    "aws-embedded-metrics",
+                    Collections.singletonMap("AccountId", "123456789"),
+                    Collections.singletonList(DimensionSet.of("Service", "Aggregator")),
+                    new DimensionSet());
+        } catch (InvalidNamespaceException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
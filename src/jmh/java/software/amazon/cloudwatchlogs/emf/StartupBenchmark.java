@@ -0,0 +1,65 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.cloudwatchlogs.emf.logger.MetricsLogger;
+
+/**
+ * Measures the cost of the first flush in a fresh JVM, which is what a cold start pays before
+ * the first metrics are emitted. Each fork runs the flush exactly once. The Local environment
+ * writes the event to stdout, so that no agent or network is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 20, jvmArgsAppend = "-Daws.emf.environment=Local")
+public class StartupBenchmark {
+
+    /** Reports the number of classes loaded by the first flush next to its time. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class LoadedClasses {
+        public long classesLoaded;
+        private final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        private long loadedBefore;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            loadedBefore = classLoading.getTotalLoadedClassCount();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            classesLoaded = classLoading.getTotalLoadedClassCount() - loadedBefore;
+        }
+    }
+
+    /** Time to first flush: create a logger, record a metric and flush it. */
+    @Benchmark
+    public MetricsLogger measureFirstFlush(LoadedClasses loadedClasses) {
+        MetricsLogger logger = new MetricsLogger();
+        logger.putMetric("Latency", 1);
+        logger.flush();
+        return logger;
+    }
+}
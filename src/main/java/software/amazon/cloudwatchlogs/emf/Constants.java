@@ -58,4 +58,91 @@ public class Constants {
 
     /** Maximum amount of random jitter to apply to retries */
     public static final int MAX_BACKOFF_JITTER = 20;
+
+    /**
+     * The number of consecutive socket failures after which the agent circuit breaker opens. A
+     * value of 0 disables the circuit breaker.
+     */
+    public static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 0;
+
+    /** Delay between connection probes while the agent circuit breaker is open. */
+    public static final long DEFAULT_CIRCUIT_BREAKER_PROBE_MILLIS = 5000;
+
+    /** The number of parallel connections, each with its own sender thread, to the agent. */
+    public static final int DEFAULT_AGENT_CONNECTION_COUNT = 1;
+
+    /** The size of each spill queue segment file in bytes. */
+    public static final int DEFAULT_SPILL_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+    /** The maximum number of spill queue segment files. */
+    public static final int DEFAULT_SPILL_MAX_SEGMENTS = 4;
+
+    /** The largest payload that fits into a single UDP datagram over IPv4. */
+    public static final int MAX_UDP_PAYLOAD_SIZE = 65507;
+
+    /** The maximum size of the datagrams the UDP client packs events into. */
+    public static final int DEFAULT_UDP_MAX_PAYLOAD_SIZE = MAX_UDP_PAYLOAD_SIZE;
+
+    /** The prefix of the files written by the rotating file sink. */
+    public static final String DEFAULT_FILE_SINK_PREFIX = "emf";
+
+    /** The size after which the rotating file sink starts a new file. */
+    public static final int DEFAULT_FILE_SINK_MAX_FILE_SIZE = 64 * 1024 * 1024;
+
+    /** The age after which the rotating file sink starts a new file. */
+    public static final int DEFAULT_FILE_SINK_ROTATION_SECONDS = 3600;
+
+    /** The number of files the rotating file sink keeps. */
+    public static final int DEFAULT_FILE_SINK_MAX_FILES = 10;
+
+    /** The interval at which the rotating file sink forces written data to disk. */
+    public static final long DEFAULT_FILE_SINK_SYNC_MILLIS = 1000;
+
+    /** The port of the forward input of Fluent Bit and Fluentd, which FireLens always enables. */
+    public static final int DEFAULT_FLUENT_FORWARD_PORT = 24224;
+
+    /** The tag of the records sent with the Fluent Forward protocol. */
+    public static final String DEFAULT_FLUENT_TAG = "emf";
+
+    /** The size after which a Fluent Forward message is sent without waiting for a flush. */
+    public static final int DEFAULT_FLUENT_MAX_CHUNK_SIZE = 256 * 1024;
+
+    /** How long to wait for a Fluent Forward acknowledgement before sending again. */
+    public static final int DEFAULT_FLUENT_ACK_TIMEOUT_MILLIS = 5000;
+
+    /** The approximate size after which the HTTP sink sends a batch. */
+    public static final int DEFAULT_HTTP_MAX_BATCH_BYTES = 512 * 1024;
+
+    /** The number of events after which the HTTP sink sends a batch. */
+    public static final int DEFAULT_HTTP_MAX_BATCH_EVENTS = 1000;
+
+    /** How long the HTTP sink waits for more events after the first event of a batch. */
+    public static final long DEFAULT_HTTP_LINGER_MILLIS = 100;
+
+    /** The number of requests the HTTP sink sends concurrently. */
+    public static final int DEFAULT_HTTP_MAX_IN_FLIGHT_REQUESTS = 2;
+
+    /** The connect and read timeout of the requests sent by the HTTP sink. */
+    public static final int DEFAULT_HTTP_TIMEOUT_MILLIS = 5000;
+
+    /** The timeout for connecting to the agent or a Fluent Bit forward input over TCP. */
+    public static final int DEFAULT_SOCKET_CONNECT_TIMEOUT_MILLIS = 2000;
+
+    /** The connect and read timeout of requests to the EC2 and ECS metadata endpoints. */
+    public static final int DEFAULT_METADATA_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * The time that the default deadline for probing the environment allows on top of the slowest
+     * network probe, which makes two requests to the EC2 instance metadata service.
+     */
+    public static final int ENVIRONMENT_DETECTION_MARGIN_MILLIS = 500;
+
+    /** How long a cached environment is used before the environment is probed again. */
+    public static final int DEFAULT_ENVIRONMENT_CACHE_TTL_SECONDS = 24 * 60 * 60;
+
+    /** How long a sink waits for its queued events to be sent before a checkpoint. */
+    public static final long CHECKPOINT_DRAIN_TIMEOUT_MILLIS = 5000;
+
+    /** The namespace the sink telemetry is reported to. */
+    public static final String TELEMETRY_NAMESPACE = "aws-embedded-metrics/sink";
 }
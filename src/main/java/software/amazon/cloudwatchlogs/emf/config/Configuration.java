@@ -17,17 +17,27 @@
 package software.amazon.cloudwatchlogs.emf.config;
 
 import java.util.Optional;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import software.amazon.cloudwatchlogs.emf.Constants;
 import software.amazon.cloudwatchlogs.emf.environment.Environments;
+import software.amazon.cloudwatchlogs.emf.sinks.HttpBatchFormat;
+import software.amazon.cloudwatchlogs.emf.sinks.OverflowPolicy;
+import software.amazon.cloudwatchlogs.emf.sinks.PartitionStrategy;
 import software.amazon.cloudwatchlogs.emf.util.StringUtils;
 
-/** Configuration for EMF logger. */
-@AllArgsConstructor
+/**
+ * Configuration for EMF logger. Use {@link EnvironmentConfigurationProvider#getConfig()} to get
+ * the configuration loaded from system properties, environment variables and a properties file,
+ * or {@link #builder()} to create one in code.
+ */
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
 @NoArgsConstructor
+@Builder(toBuilder = true)
 public class Configuration {
 
     /** The name of the service to use in the default dimensions. */
@@ -57,10 +67,174 @@ public class Configuration {
     @Setter Environments environmentOverride;
 
     /** Queue length for asynchronous sinks. */
-    @Setter @Getter int asyncBufferSize = Constants.DEFAULT_ASYNC_BUFFER_SIZE;
+    @Builder.Default @Setter @Getter int asyncBufferSize = Constants.DEFAULT_ASYNC_BUFFER_SIZE;
 
     @Setter private boolean shouldWriteToStdout;
 
+    /**
+     * Number of consecutive agent connection failures after which the circuit breaker opens and
+     * events are short-circuited until the agent is reachable again. 0 disables the breaker.
+     */
+    @Builder.Default
+    @Setter
+    @Getter
+    int circuitBreakerThreshold = Constants.DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+
+    /** Number of parallel connections, each with its own sender thread, to the agent. */
+    @Builder.Default
+    @Setter
+    @Getter
+    int agentConnectionCount = Constants.DEFAULT_AGENT_CONNECTION_COUNT;
+
+    /** How events are distributed across agent connections when more than one is used. */
+    @Setter PartitionStrategy agentPartitionStrategy;
+
+    /**
+     * Directory used to spill events to disk while the agent is unavailable or cannot keep up.
+     * Spilling is disabled when this is not set.
+     */
+    @Setter private String spillDirectory;
+
+    /** Size in bytes of each spill segment file. */
+    @Builder.Default @Setter @Getter int spillSegmentSize = Constants.DEFAULT_SPILL_SEGMENT_SIZE;
+
+    /** Maximum number of spill segment files. Events are dropped once all of them are full. */
+    @Builder.Default @Setter @Getter int spillMaxSegments = Constants.DEFAULT_SPILL_MAX_SEGMENTS;
+
+    /** Maximum size in bytes of the datagrams that events are packed into when using UDP. */
+    @Builder.Default @Setter @Getter int udpMaxPayloadSize = Constants.DEFAULT_UDP_MAX_PAYLOAD_SIZE;
+
+    /**
+     * Write each flush to stdout with a single write to file descriptor 1 instead of printing
+     * every event with System.out.
+     */
+    @Setter private boolean bufferedStdout;
+
+    /**
+     * Number of flushes a background writer may buffer when stdout is buffered. 0 writes on the
+     * flushing thread.
+     */
+    @Setter @Getter int stdoutAsyncQueueDepth;
+
+    /**
+     * Directory to write rotating EMF log files to for agent-based platforms, instead of sending
+     * them to the agent. Disabled when this is not set.
+     */
+    @Setter private String fileSinkDirectory;
+
+    /** Size in bytes after which a new file is started. */
+    @Builder.Default
+    @Setter
+    @Getter
+    int fileSinkMaxFileSize = Constants.DEFAULT_FILE_SINK_MAX_FILE_SIZE;
+
+    /** Age in seconds after which a new file is started. 0 disables time based rotation. */
+    @Builder.Default
+    @Setter
+    @Getter
+    int fileSinkRotationSeconds = Constants.DEFAULT_FILE_SINK_ROTATION_SECONDS;
+
+    /** Number of files to keep. 0 keeps all files. */
+    @Builder.Default @Setter @Getter int fileSinkMaxFiles = Constants.DEFAULT_FILE_SINK_MAX_FILES;
+
+    /**
+     * Interval in seconds at which the agent sink reports its own telemetry as an EMF event. 0
+     * disables reporting.
+     */
+    @Setter @Getter int telemetryIntervalSeconds;
+
+    /**
+     * Sink saturation, as a percentage of its buffering capacity, at which loggers flush metrics
+     * with repeated values as distinct values and their counts instead of raw values. 0 disables
+     * aggregation.
+     */
+    @Setter @Getter int aggregationSaturationPercent;
+
+    /**
+     * Run sink writer threads and environment detection on virtual threads when the Java runtime
+     * supports them.
+     */
+    @Setter private boolean useVirtualThreads;
+
+    /**
+     * Warm up the environment, sink and serializers in the background when the first logger is
+     * created.
+     */
+    @Setter private boolean warmUp;
+
+    /**
+     * Send to the FireLens log router with the Fluent Forward protocol instead of as
+     * newline-delimited JSON over TCP when the endpoint is taken from the FLUENT_HOST variable.
+     */
+    @Setter private boolean fluentForward;
+
+    /** The tag of the records sent with the Fluent Forward protocol. */
+    @Setter private String fluentTag;
+
+    /** Wait for the receiver to acknowledge every message sent with the Fluent Forward protocol. */
+    @Setter private boolean requireFluentAck;
+
+    /**
+     * The URL that batches of events are POSTed to instead of sending them to the agent, for
+     * example the http input of Fluent Bit.
+     */
+    @Setter private String httpEndpoint;
+
+    /** How the HTTP sink encodes a batch of events. */
+    @Setter HttpBatchFormat httpBatchFormat;
+
+    /** Gzip compress the request bodies of the HTTP sink. */
+    @Setter private boolean httpGzip;
+
+    /**
+     * Deadline in milliseconds for detecting the environment. Probes that have not completed by
+     * then are cancelled. 0 derives the deadline from the metadata timeouts, so that the EC2
+     * probe can complete both of its requests.
+     */
+    @Setter @Getter int environmentDetectionTimeoutMillis;
+
+    /**
+     * File that caches the resolved environment and its metadata, so that later processes on the
+     * same instance or task skip the metadata requests. Caching is disabled if this is not set.
+     */
+    @Setter private String environmentCacheFile;
+
+    /** Seconds after which the cached environment is probed again. 0 uses the default. */
+    @Setter @Getter int environmentCacheTtlSeconds;
+
+    /** The connect and read timeout of requests to the EC2 instance metadata service. */
+    @Setter @Getter int ec2MetadataTimeoutMillis;
+
+    /** The connect and read timeout of requests to the ECS container metadata endpoint. */
+    @Setter @Getter int ecsMetadataTimeoutMillis;
+
+    /** Which events the agent and HTTP sinks drop when their queue is full. */
+    @Setter OverflowPolicy overflowPolicy;
+
+    /**
+     * Create a configuration with the given basic settings and the defaults for all others. Use
+     * {@link #builder()} to set the others as well.
+     */
+    public Configuration(
+            String serviceName,
+            String serviceType,
+            String logGroupName,
+            String logStreamName,
+            String agentEndpoint,
+            Environments environmentOverride,
+            int asyncBufferSize,
+            boolean shouldWriteToStdout) {
+        this();
+        this.serviceName = serviceName;
+        this.serviceType = serviceType;
+        this.logGroupName = logGroupName;
+        this.logStreamName = logStreamName;
+        this.agentEndpoint = agentEndpoint;
+        this.environmentOverride = environmentOverride;
+        this.asyncBufferSize = asyncBufferSize;
+        this.shouldWriteToStdout = shouldWriteToStdout;
+    }
+
     public Optional<String> getServiceName() {
         return getStringOptional(serviceName);
     }
@@ -81,6 +255,47 @@ public class Configuration {
         return getStringOptional(agentEndpoint);
     }
 
+    public Optional<String> getHttpEndpoint() {
+        return getStringOptional(httpEndpoint);
+    }
+
+    public Optional<String> getEnvironmentCacheFile() {
+        return getStringOptional(environmentCacheFile);
+    }
+
+    public Optional<String> getSpillDirectory() {
+        return getStringOptional(spillDirectory);
+    }
+
+    public Optional<String> getFileSinkDirectory() {
+        return getStringOptional(fileSinkDirectory);
+    }
+
+    public String getFluentTag() {
+        return getStringOptional(fluentTag).orElse(Constants.DEFAULT_FLUENT_TAG);
+    }
+
+    public PartitionStrategy getAgentPartitionStrategy() {
+        if (agentPartitionStrategy == null) {
+            return PartitionStrategy.ROUND_ROBIN;
+        }
+        return agentPartitionStrategy;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        if (overflowPolicy == null) {
+            return OverflowPolicy.DROP_OLDEST;
+        }
+        return overflowPolicy;
+    }
+
+    public HttpBatchFormat getHttpBatchFormat() {
+        if (httpBatchFormat == null) {
+            return HttpBatchFormat.JSON_ARRAY;
+        }
+        return httpBatchFormat;
+    }
+
     public Environments getEnvironmentOverride() {
         if (environmentOverride == null) {
             return Environments.Unknown;
@@ -98,4 +313,28 @@ public class Configuration {
     public boolean shouldWriteToStdout() {
         return shouldWriteToStdout;
     }
+
+    public boolean shouldBufferStdout() {
+        return bufferedStdout;
+    }
+
+    public boolean shouldUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    public boolean shouldWarmUp() {
+        return warmUp;
+    }
+
+    public boolean shouldUseFluentForward() {
+        return fluentForward;
+    }
+
+    public boolean shouldRequireFluentAck() {
+        return requireFluentAck;
+    }
+
+    public boolean shouldGzipHttp() {
+        return httpGzip;
+    }
 }
@@ -20,6 +20,8 @@ package software.amazon.cloudwatchlogs.emf.config;
 public class ConfigurationKeys {
 
     public static final String ENV_VAR_PREFIX = "AWS_EMF";
+    public static final String SYSTEM_PROPERTY_PREFIX = "aws.emf.";
+    public static final String CONFIG_FILE = "CONFIG_FILE";
 
     public static final String SERVICE_NAME = "SERVICE_NAME";
     public static final String SERVICE_TYPE = "SERVICE_TYPE";
@@ -29,4 +31,34 @@ public class ConfigurationKeys {
     public static final String ENVIRONMENT_OVERRIDE = "ENVIRONMENT";
     public static final String ASYNC_BUFFER_SIZE = "ASYNC_BUFFER_SIZE";
     public static final String WRITE_TO_STDOUT = "WRITE_TO_STDOUT";
+    public static final String CIRCUIT_BREAKER_THRESHOLD = "CIRCUIT_BREAKER_THRESHOLD";
+    public static final String AGENT_CONNECTION_COUNT = "AGENT_CONNECTION_COUNT";
+    public static final String AGENT_PARTITION_STRATEGY = "AGENT_PARTITION_STRATEGY";
+    public static final String OVERFLOW_POLICY = "OVERFLOW_POLICY";
+    public static final String SPILL_DIRECTORY = "SPILL_DIRECTORY";
+    public static final String SPILL_SEGMENT_SIZE = "SPILL_SEGMENT_SIZE";
+    public static final String SPILL_MAX_SEGMENTS = "SPILL_MAX_SEGMENTS";
+    public static final String UDP_MAX_PAYLOAD_SIZE = "UDP_MAX_PAYLOAD_SIZE";
+    public static final String BUFFERED_STDOUT = "BUFFERED_STDOUT";
+    public static final String STDOUT_ASYNC_QUEUE_DEPTH = "STDOUT_ASYNC_QUEUE_DEPTH";
+    public static final String FILE_SINK_DIRECTORY = "FILE_SINK_DIRECTORY";
+    public static final String FILE_SINK_MAX_FILE_SIZE = "FILE_SINK_MAX_FILE_SIZE";
+    public static final String FILE_SINK_ROTATION_SECONDS = "FILE_SINK_ROTATION_SECONDS";
+    public static final String FILE_SINK_MAX_FILES = "FILE_SINK_MAX_FILES";
+    public static final String TELEMETRY_INTERVAL_SECONDS = "TELEMETRY_INTERVAL_SECONDS";
+    public static final String AGGREGATION_SATURATION_PERCENT = "AGGREGATION_SATURATION_PERCENT";
+    public static final String USE_VIRTUAL_THREADS = "USE_VIRTUAL_THREADS";
+    public static final String WARM_UP = "WARM_UP";
+    public static final String FLUENT_FORWARD = "FLUENT_FORWARD";
+    public static final String FLUENT_TAG = "FLUENT_TAG";
+    public static final String FLUENT_REQUIRE_ACK = "FLUENT_REQUIRE_ACK";
+    public static final String HTTP_ENDPOINT = "HTTP_ENDPOINT";
+    public static final String HTTP_BATCH_FORMAT = "HTTP_BATCH_FORMAT";
+    public static final String HTTP_GZIP = "HTTP_GZIP";
+    public static final String ENVIRONMENT_DETECTION_TIMEOUT_MILLIS =
+            "ENVIRONMENT_DETECTION_TIMEOUT_MILLIS";
+    public static final String ENVIRONMENT_CACHE_FILE = "ENVIRONMENT_CACHE_FILE";
+    public static final String ENVIRONMENT_CACHE_TTL_SECONDS = "ENVIRONMENT_CACHE_TTL_SECONDS";
+    public static final String EC2_METADATA_TIMEOUT_MILLIS = "EC2_METADATA_TIMEOUT_MILLIS";
+    public static final String ECS_METADATA_TIMEOUT_MILLIS = "ECS_METADATA_TIMEOUT_MILLIS";
 }
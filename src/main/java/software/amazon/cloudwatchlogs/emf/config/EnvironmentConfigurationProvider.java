@@ -16,13 +16,34 @@
 
 package software.amazon.cloudwatchlogs.emf.config;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+import lombok.extern.slf4j.Slf4j;
 import software.amazon.cloudwatchlogs.emf.Constants;
+import software.amazon.cloudwatchlogs.emf.environment.EnvironmentProvider;
 import software.amazon.cloudwatchlogs.emf.environment.Environments;
+import software.amazon.cloudwatchlogs.emf.sinks.HttpBatchFormat;
+import software.amazon.cloudwatchlogs.emf.sinks.OverflowPolicy;
+import software.amazon.cloudwatchlogs.emf.sinks.PartitionStrategy;
 import software.amazon.cloudwatchlogs.emf.util.StringUtils;
 
-/** Loads configuration from environment variables. */
+/**
+ * Loads configuration from system properties, environment variables and a properties file, in
+ * this order of precedence. A key such as {@code ASYNC_BUFFER_SIZE} is read from the system
+ * property {@code aws.emf.async.buffer.size}, then from the environment variable {@code
+ * AWS_EMF_ASYNC_BUFFER_SIZE}, and then from the property {@code aws.emf.async.buffer.size} of the
+ * file named by {@code aws.emf.config.file} or {@code AWS_EMF_CONFIG_FILE}.
+ */
+@Slf4j
 public class EnvironmentConfigurationProvider {
     private static Configuration config;
+    // the properties file read by the current call to createConfig
+    private static Properties fileProperties = new Properties();
 
     protected EnvironmentConfigurationProvider() {}
 
@@ -33,21 +54,110 @@ public class EnvironmentConfigurationProvider {
         return config;
     }
 
-    static Configuration createConfig() {
-        return new Configuration(
-                getEnvVar(ConfigurationKeys.SERVICE_NAME),
-                getEnvVar(ConfigurationKeys.SERVICE_TYPE),
-                getEnvVar(ConfigurationKeys.LOG_GROUP_NAME),
-                getEnvVar(ConfigurationKeys.LOG_STREAM_NAME),
-                getEnvVar(ConfigurationKeys.AGENT_ENDPOINT),
-                getEnvironmentOverride(),
-                getIntOrDefault(
-                        ConfigurationKeys.ASYNC_BUFFER_SIZE, Constants.DEFAULT_ASYNC_BUFFER_SIZE),
-                Boolean.parseBoolean(getEnvVar(ConfigurationKeys.WRITE_TO_STDOUT)));
+    /**
+     * Replace the configuration, for example with one created by {@link Configuration#builder()}
+     * or derived from the loaded one with {@code getConfig().toBuilder()}. The environment resolved
+     * with the previous configuration is discarded and its sink shut down, see {@link
+     * EnvironmentProvider#discardResolvedEnvironment()}. Every logger then resolves the
+     * environment and creates its sink from the new configuration on its next flush. Settings that
+     * a logger reads when it is created, such as the aggregation threshold, keep their previous
+     * values in loggers that were created before.
+     *
+     * @param configuration the configuration to use
+     */
+    public static void setConfig(Configuration configuration) {
+        config = configuration;
+        EnvironmentProvider.discardResolvedEnvironment();
+    }
+
+    static synchronized Configuration createConfig() {
+        fileProperties = loadConfigFile();
+        return Configuration.builder()
+                .serviceName(getValue(ConfigurationKeys.SERVICE_NAME))
+                .serviceType(getValue(ConfigurationKeys.SERVICE_TYPE))
+                .logGroupName(getValue(ConfigurationKeys.LOG_GROUP_NAME))
+                .logStreamName(getValue(ConfigurationKeys.LOG_STREAM_NAME))
+                .agentEndpoint(getValue(ConfigurationKeys.AGENT_ENDPOINT))
+                .environmentOverride(getEnvironmentOverride())
+                .asyncBufferSize(
+                        getIntOrDefault(
+                                ConfigurationKeys.ASYNC_BUFFER_SIZE,
+                                Constants.DEFAULT_ASYNC_BUFFER_SIZE))
+                .shouldWriteToStdout(
+                        Boolean.parseBoolean(getValue(ConfigurationKeys.WRITE_TO_STDOUT)))
+                .circuitBreakerThreshold(
+                        getIntOrDefault(
+                                ConfigurationKeys.CIRCUIT_BREAKER_THRESHOLD,
+                                Constants.DEFAULT_CIRCUIT_BREAKER_THRESHOLD))
+                .agentConnectionCount(
+                        getIntOrDefault(
+                                ConfigurationKeys.AGENT_CONNECTION_COUNT,
+                                Constants.DEFAULT_AGENT_CONNECTION_COUNT))
+                .agentPartitionStrategy(getPartitionStrategy())
+                .spillDirectory(getValue(ConfigurationKeys.SPILL_DIRECTORY))
+                .spillSegmentSize(
+                        getIntOrDefault(
+                                ConfigurationKeys.SPILL_SEGMENT_SIZE,
+                                Constants.DEFAULT_SPILL_SEGMENT_SIZE))
+                .spillMaxSegments(
+                        getIntOrDefault(
+                                ConfigurationKeys.SPILL_MAX_SEGMENTS,
+                                Constants.DEFAULT_SPILL_MAX_SEGMENTS))
+                .udpMaxPayloadSize(
+                        getIntOrDefault(
+                                ConfigurationKeys.UDP_MAX_PAYLOAD_SIZE,
+                                Constants.DEFAULT_UDP_MAX_PAYLOAD_SIZE))
+                .bufferedStdout(Boolean.parseBoolean(getValue(ConfigurationKeys.BUFFERED_STDOUT)))
+                .stdoutAsyncQueueDepth(
+                        getIntOrDefault(ConfigurationKeys.STDOUT_ASYNC_QUEUE_DEPTH, 0))
+                .fileSinkDirectory(getValue(ConfigurationKeys.FILE_SINK_DIRECTORY))
+                .fileSinkMaxFileSize(
+                        getIntOrDefault(
+                                ConfigurationKeys.FILE_SINK_MAX_FILE_SIZE,
+                                Constants.DEFAULT_FILE_SINK_MAX_FILE_SIZE))
+                .fileSinkRotationSeconds(
+                        getIntOrDefault(
+                                ConfigurationKeys.FILE_SINK_ROTATION_SECONDS,
+                                Constants.DEFAULT_FILE_SINK_ROTATION_SECONDS))
+                .fileSinkMaxFiles(
+                        getIntOrDefault(
+                                ConfigurationKeys.FILE_SINK_MAX_FILES,
+                                Constants.DEFAULT_FILE_SINK_MAX_FILES))
+                .telemetryIntervalSeconds(
+                        getIntOrDefault(ConfigurationKeys.TELEMETRY_INTERVAL_SECONDS, 0))
+                .aggregationSaturationPercent(
+                        getIntOrDefault(ConfigurationKeys.AGGREGATION_SATURATION_PERCENT, 0))
+                .useVirtualThreads(
+                        Boolean.parseBoolean(getValue(ConfigurationKeys.USE_VIRTUAL_THREADS)))
+                .warmUp(Boolean.parseBoolean(getValue(ConfigurationKeys.WARM_UP)))
+                .fluentForward(Boolean.parseBoolean(getValue(ConfigurationKeys.FLUENT_FORWARD)))
+                .fluentTag(getValue(ConfigurationKeys.FLUENT_TAG))
+                .requireFluentAck(
+                        Boolean.parseBoolean(getValue(ConfigurationKeys.FLUENT_REQUIRE_ACK)))
+                .httpEndpoint(getValue(ConfigurationKeys.HTTP_ENDPOINT))
+                .httpBatchFormat(getHttpBatchFormat())
+                .httpGzip(Boolean.parseBoolean(getValue(ConfigurationKeys.HTTP_GZIP)))
+                .environmentDetectionTimeoutMillis(
+                        getIntOrDefault(ConfigurationKeys.ENVIRONMENT_DETECTION_TIMEOUT_MILLIS, 0))
+                .environmentCacheFile(getValue(ConfigurationKeys.ENVIRONMENT_CACHE_FILE))
+                .environmentCacheTtlSeconds(
+                        getIntOrDefault(
+                                ConfigurationKeys.ENVIRONMENT_CACHE_TTL_SECONDS,
+                                Constants.DEFAULT_ENVIRONMENT_CACHE_TTL_SECONDS))
+                .ec2MetadataTimeoutMillis(
+                        getIntOrDefault(
+                                ConfigurationKeys.EC2_METADATA_TIMEOUT_MILLIS,
+                                Constants.DEFAULT_METADATA_TIMEOUT_MILLIS))
+                .ecsMetadataTimeoutMillis(
+                        getIntOrDefault(
+                                ConfigurationKeys.ECS_METADATA_TIMEOUT_MILLIS,
+                                Constants.DEFAULT_METADATA_TIMEOUT_MILLIS))
+                .overflowPolicy(getOverflowPolicy())
+                .build();
     }
 
     private static Environments getEnvironmentOverride() {
-        String environmentName = getEnvVar(ConfigurationKeys.ENVIRONMENT_OVERRIDE);
+        String environmentName = getValue(ConfigurationKeys.ENVIRONMENT_OVERRIDE);
         if (StringUtils.isNullOrEmpty(environmentName)) {
             return Environments.Unknown;
         }
@@ -59,8 +169,47 @@ public class EnvironmentConfigurationProvider {
         }
     }
 
+    private static PartitionStrategy getPartitionStrategy() {
+        String strategy = getValue(ConfigurationKeys.AGENT_PARTITION_STRATEGY);
+        if (StringUtils.isNullOrEmpty(strategy)) {
+            return PartitionStrategy.ROUND_ROBIN;
+        }
+
+        try {
+            return PartitionStrategy.getPartitionStrategy(strategy);
+        } catch (IllegalArgumentException e) {
+            return PartitionStrategy.ROUND_ROBIN;
+        }
+    }
+
+    private static OverflowPolicy getOverflowPolicy() {
+        String policy = getValue(ConfigurationKeys.OVERFLOW_POLICY);
+        if (StringUtils.isNullOrEmpty(policy)) {
+            return OverflowPolicy.DROP_OLDEST;
+        }
+
+        try {
+            return OverflowPolicy.getOverflowPolicy(policy);
+        } catch (IllegalArgumentException e) {
+            return OverflowPolicy.DROP_OLDEST;
+        }
+    }
+
+    private static HttpBatchFormat getHttpBatchFormat() {
+        String format = getValue(ConfigurationKeys.HTTP_BATCH_FORMAT);
+        if (StringUtils.isNullOrEmpty(format)) {
+            return HttpBatchFormat.JSON_ARRAY;
+        }
+
+        try {
+            return HttpBatchFormat.getBatchFormat(format);
+        } catch (IllegalArgumentException e) {
+            return HttpBatchFormat.JSON_ARRAY;
+        }
+    }
+
     private static int getIntOrDefault(String key, int defaultValue) {
-        String value = getEnvVar(key);
+        String value = getValue(key);
         if (StringUtils.isNullOrEmpty(value)) {
             return defaultValue;
         }
@@ -72,9 +221,43 @@ public class EnvironmentConfigurationProvider {
         }
     }
 
-    private static String getEnvVar(String key) {
-        String name = String.join("", ConfigurationKeys.ENV_VAR_PREFIX, "_", key);
-        return getEnv(name);
+    private static String getValue(String key) {
+        String propertyName = getPropertyName(key);
+        String value = SystemWrapper.getProperty(propertyName);
+        if (value == null) {
+            value = getEnv(getEnvVarName(key));
+        }
+        if (value == null) {
+            value = fileProperties.getProperty(propertyName);
+        }
+        return value;
+    }
+
+    private static Properties loadConfigFile() {
+        Properties properties = new Properties();
+        String file = SystemWrapper.getProperty(getPropertyName(ConfigurationKeys.CONFIG_FILE));
+        if (file == null) {
+            file = getEnv(getEnvVarName(ConfigurationKeys.CONFIG_FILE));
+        }
+        if (StringUtils.isNullOrEmpty(file)) {
+            return properties;
+        }
+        try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read the EMF configuration file {}", file, e);
+        }
+        return properties;
+    }
+
+    private static String getEnvVarName(String key) {
+        return String.join("", ConfigurationKeys.ENV_VAR_PREFIX, "_", key);
+    }
+
+    /** @return the system property name of a key, e.g. aws.emf.log.group.name */
+    private static String getPropertyName(String key) {
+        return ConfigurationKeys.SYSTEM_PROPERTY_PREFIX
+                + key.toLowerCase(Locale.ROOT).replace('_', '.');
     }
 
     private static String getEnv(String name) {
@@ -16,7 +16,10 @@
 
 package software.amazon.cloudwatchlogs.emf.config;
 
-/** A wrapper class that can be used to mock 'System.getenv' with PowerMock. */
+/**
+ * A wrapper class that can be used to mock 'System.getenv' and 'System.getProperty' with
+ * PowerMock.
+ */
 public class SystemWrapper {
     private SystemWrapper() {
         throw new IllegalStateException("Utility class");
@@ -25,4 +28,8 @@ public class SystemWrapper {
     public static String getenv(String name) {
         return System.getenv(name);
     }
+
+    public static String getProperty(String name) {
+        return System.getProperty(name);
+    }
 }
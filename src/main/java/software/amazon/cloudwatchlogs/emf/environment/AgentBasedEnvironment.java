@@ -16,21 +16,32 @@
 
 package software.amazon.cloudwatchlogs.emf.environment;
 
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Paths;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.cloudwatchlogs.emf.Constants;
 import software.amazon.cloudwatchlogs.emf.config.Configuration;
 import software.amazon.cloudwatchlogs.emf.sinks.AgentSink;
 import software.amazon.cloudwatchlogs.emf.sinks.ConsoleSink;
 import software.amazon.cloudwatchlogs.emf.sinks.Endpoint;
+import software.amazon.cloudwatchlogs.emf.sinks.HttpSink;
 import software.amazon.cloudwatchlogs.emf.sinks.ISink;
+import software.amazon.cloudwatchlogs.emf.sinks.RotatingFileSink;
 import software.amazon.cloudwatchlogs.emf.sinks.SocketClientFactory;
+import software.amazon.cloudwatchlogs.emf.sinks.SpillQueue;
 import software.amazon.cloudwatchlogs.emf.sinks.retry.FibonacciRetryStrategy;
+import software.amazon.cloudwatchlogs.emf.util.Threads;
 
 @Slf4j
 public abstract class AgentBasedEnvironment implements Environment {
     private final Configuration config;
-    private ISink sink;
+    // created on first use; warmUp() and the first flush may ask for it from different threads
+    private volatile ISink sink;
 
     protected AgentBasedEnvironment(Configuration config) {
         this.config = config;
@@ -66,34 +77,147 @@ public abstract class AgentBasedEnvironment implements Environment {
     }
 
     @Override
-    public ISink getSink() {
+    public void beforeCheckpoint() {
+        if (sink != null) {
+            sink.beforeCheckpoint();
+        }
+    }
+
+    @Override
+    public void afterRestore() {
+        if (sink != null) {
+            sink.afterRestore();
+        }
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> shutdown() {
         if (sink == null) {
-            if (config.shouldWriteToStdout()) {
-                sink = new ConsoleSink();
-            } else {
-                Endpoint endpoint;
-                if (config.getAgentEndpoint().isPresent()) {
-                    endpoint = Endpoint.fromURL(config.getAgentEndpoint().get());
-                } else {
-                    log.info(
-                            "Endpoint is not defined. Using default: {}",
-                            Endpoint.DEFAULT_TCP_ENDPOINT);
-                    endpoint = Endpoint.DEFAULT_TCP_ENDPOINT;
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> shutdown = sink.shutdown();
+        sink = null;
+        return shutdown;
+    }
+
+    @Override
+    public ISink getSink() {
+        ISink current = sink;
+        if (current == null) {
+            synchronized (this) {
+                current = sink;
+                if (current == null) {
+                    current = createSink();
+                    sink = current;
                 }
-                sink =
-                        new AgentSink(
-                                getLogGroupName(),
-                                getLogStreamName(),
-                                endpoint,
-                                new SocketClientFactory(),
-                                config.getAsyncBufferSize(),
-                                () ->
-                                        new FibonacciRetryStrategy(
-                                                Constants.MIN_BACKOFF_MILLIS,
-                                                Constants.MAX_BACKOFF_MILLIS,
-                                                Constants.MAX_BACKOFF_JITTER));
             }
         }
-        return sink;
+        return current;
+    }
+
+    private ISink createSink() {
+        if (config.shouldWriteToStdout()) {
+            return ConsoleSink.builder()
+                    .buffered(config.shouldBufferStdout())
+                    .asyncQueueDepth(config.getStdoutAsyncQueueDepth())
+                    .threadFactory(
+                            Threads.threadFactory(
+                                    "emf-console-writer", config.shouldUseVirtualThreads()))
+                    .build();
+        } else if (config.getFileSinkDirectory().isPresent()) {
+            return RotatingFileSink.builder()
+                    .directory(Paths.get(config.getFileSinkDirectory().get()))
+                    .maxFileSize(config.getFileSinkMaxFileSize())
+                    .rotationIntervalMillis(
+                            TimeUnit.SECONDS.toMillis(config.getFileSinkRotationSeconds()))
+                    .maxFiles(config.getFileSinkMaxFiles())
+                    .syncIntervalMillis(Constants.DEFAULT_FILE_SINK_SYNC_MILLIS)
+                    .build();
+        } else if (getHttpEndpoint().isPresent()) {
+            return HttpSink.builder()
+                    .url(getHttpEndpoint().get())
+                    .logGroupName(getLogGroupName())
+                    .logStreamName(getLogStreamName())
+                    .format(config.getHttpBatchFormat())
+                    .gzip(config.shouldGzipHttp())
+                    .lingerMillis(Constants.DEFAULT_HTTP_LINGER_MILLIS)
+                    .maxInFlightRequests(Constants.DEFAULT_HTTP_MAX_IN_FLIGHT_REQUESTS)
+                    .asyncQueueDepth(config.getAsyncBufferSize())
+                    .overflowPolicy(config.getOverflowPolicy())
+                    .threadFactory(
+                            config.shouldUseVirtualThreads()
+                                    ? Threads.virtualThreadFactory("emf-http-sender")
+                                    : null)
+                    .telemetryIntervalMillis(getTelemetryIntervalMillis())
+                    .build();
+        }
+
+        Endpoint endpoint;
+        if (config.getAgentEndpoint().isPresent()) {
+            endpoint = Endpoint.fromURL(config.getAgentEndpoint().get());
+        } else {
+            log.info("Endpoint is not defined. Using default: {}", Endpoint.DEFAULT_TCP_ENDPOINT);
+            endpoint = Endpoint.DEFAULT_TCP_ENDPOINT;
+        }
+        return AgentSink.builder()
+                .logGroupName(getLogGroupName())
+                .logStreamName(getLogStreamName())
+                .endpoint(endpoint)
+                .clientFactory(
+                        new SocketClientFactory(
+                                config.getUdpMaxPayloadSize(),
+                                config.getFluentTag(),
+                                config.shouldRequireFluentAck()))
+                .asyncQueueDepth(config.getAsyncBufferSize())
+                .retryStrategy(
+                        () ->
+                                new FibonacciRetryStrategy(
+                                        Constants.MIN_BACKOFF_MILLIS,
+                                        Constants.MAX_BACKOFF_MILLIS,
+                                        Constants.MAX_BACKOFF_JITTER))
+                .circuitBreakerThreshold(config.getCircuitBreakerThreshold())
+                .connectionCount(config.getAgentConnectionCount())
+                .partitionStrategy(config.getAgentPartitionStrategy())
+                .overflowPolicy(config.getOverflowPolicy())
+                .spillQueue(createSpillQueue())
+                .threadFactory(
+                        config.shouldUseVirtualThreads()
+                                ? Threads.virtualThreadFactory("emf-agent-sender")
+                                : null)
+                .telemetryIntervalMillis(getTelemetryIntervalMillis())
+                .build();
+    }
+
+    private long getTelemetryIntervalMillis() {
+        return TimeUnit.SECONDS.toMillis(Math.max(0, config.getTelemetryIntervalSeconds()));
+    }
+
+    private Optional<URL> getHttpEndpoint() {
+        Optional<String> endpoint = config.getHttpEndpoint();
+        if (!endpoint.isPresent()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new URL(endpoint.get()));
+        } catch (MalformedURLException e) {
+            log.warn("Failed to parse the HTTP endpoint: {}", endpoint.get());
+            return Optional.empty();
+        }
+    }
+
+    private SpillQueue createSpillQueue() {
+        if (!config.getSpillDirectory().isPresent()) {
+            return null;
+        }
+        String directory = config.getSpillDirectory().get();
+        try {
+            return new SpillQueue(
+                    Paths.get(directory),
+                    config.getSpillSegmentSize(),
+                    config.getSpillMaxSegments());
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Failed to open the spill queue in {}. Spilling is disabled.", directory, e);
+            return null;
+        }
     }
 }
@@ -0,0 +1,49 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.environment;
+
+/**
+ * An environment whose probe result can be stored in an {@link EnvironmentCache} and restored by
+ * a later process on the same host without probing again.
+ *
+ * @param <T> the type of the metadata found by the probe
+ */
+interface CacheableEnvironment<T> extends Environment {
+
+    /**
+     * Get the identity of the instance or task the process runs in, from local sources only. A
+     * cached probe result is only restored for the same identity.
+     *
+     * @return the identity, or null if it cannot be determined without a network call
+     */
+    String getCacheIdentity();
+
+    /** @return the metadata found by the last successful probe, or null */
+    T getMetadata();
+
+    /** @return the type of the metadata, used to read it back from the cache */
+    Class<T> getMetadataType();
+
+    /**
+     * Use metadata from the cache instead of probing.
+     *
+     * @param metadata the cached metadata
+     * @return true if the metadata belongs to this environment and was restored
+     */
+    boolean restoreMetadata(T metadata);
+}
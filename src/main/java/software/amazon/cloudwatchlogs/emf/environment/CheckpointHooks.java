@@ -0,0 +1,146 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.environment;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the resolved environment and its sink correct across a checkpoint and restore of the
+ * process, such as a Lambda SnapStart snapshot or a CRaC checkpoint. Before the checkpoint, the
+ * sink writes out its buffered events and closes its connections. After the restore, the sink
+ * reconnects, and environments that may differ on the restored host are resolved again.
+ *
+ * <p>The hooks are registered as an {@code org.crac.Resource} once an environment has been
+ * resolved. The CRaC API is looked up reflectively, so the hooks are only registered when the
+ * application has {@code org.crac} on its class path, and the library does not depend on it.
+ * Applications that coordinate checkpoints themselves can call {@link #beforeCheckpoint()} and
+ * {@link #afterRestore()} directly.
+ */
+@Slf4j
+public final class CheckpointHooks {
+    private static final String CORE_CLASS = "org.crac.Core";
+    private static final String CONTEXT_CLASS = "org.crac.Context";
+    private static final String RESOURCE_CLASS = "org.crac.Resource";
+
+    private static final AtomicBoolean registrationAttempted = new AtomicBoolean();
+    private static final AtomicLong restoreCount = new AtomicLong();
+    // the CRaC context only holds its resources weakly
+    private static volatile Object resource;
+
+    private CheckpointHooks() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Register the hooks with the global CRaC context, once per process. Does nothing if the CRaC
+     * API is not available.
+     */
+    static void register() {
+        if (registrationAttempted.compareAndSet(false, true)) {
+            register(CheckpointHooks.class.getClassLoader());
+        }
+    }
+
+    /** @return true if the hooks were registered with the CRaC API found by the class loader */
+    static boolean register(ClassLoader classLoader) {
+        try {
+            Class<?> core = Class.forName(CORE_CLASS, true, classLoader);
+            Class<?> context = Class.forName(CONTEXT_CLASS, true, classLoader);
+            Class<?> resourceType = Class.forName(RESOURCE_CLASS, true, classLoader);
+            Object globalContext = core.getMethod("getGlobalContext").invoke(null);
+            Object hooks = createResource(resourceType);
+            Method register = context.getMethod("register", resourceType);
+            register.invoke(globalContext, hooks);
+            resource = hooks;
+            log.debug("Registered the EMF checkpoint hooks.");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            log.warn("Failed to register the EMF checkpoint hooks: ", e);
+            return false;
+        }
+    }
+
+    /**
+     * Write out the buffered events of the resolved environment's sink and close its
+     * connections.
+     */
+    public static void beforeCheckpoint() {
+        Environment environment = EnvironmentProvider.getResolvedEnvironment();
+        if (environment != null) {
+            environment.beforeCheckpoint();
+        }
+    }
+
+    /**
+     * Reconnect the sink of the resolved environment and validate the environment. Environments
+     * that are detected over the network, or whose properties are captured once, are resolved
+     * again, since the process may have been restored on another host. The sink of a discarded
+     * environment is shut down, and loggers that were created with an {@link EnvironmentProvider}
+     * resolve their environment again when they next flush.
+     */
+    public static void afterRestore() {
+        restoreCount.incrementAndGet();
+        Environment environment = EnvironmentProvider.getResolvedEnvironment();
+        if (environment == null) {
+            return;
+        }
+        environment.afterRestore();
+        if (environment.hasNetworkProbe()
+                || environment.hasStaticContext()
+                || !environment.probe()) {
+            EnvironmentProvider.discardResolvedEnvironment(environment);
+        }
+    }
+
+    /**
+     * @return the number of times the process has been restored from a checkpoint, which lets
+     *     state captured before a checkpoint be recognized
+     */
+    public static long getRestoreCount() {
+        return restoreCount.get();
+    }
+
+    private static Object createResource(Class<?> resourceType) {
+        return Proxy.newProxyInstance(
+                resourceType.getClassLoader(),
+                new Class<?>[] {resourceType},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "beforeCheckpoint":
+                            beforeCheckpoint();
+                            return null;
+                        case "afterRestore":
+                            afterRestore();
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "EMF checkpoint hooks";
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -48,6 +48,11 @@ public class DefaultEnvironment extends AgentBasedEnvironment {
         return Constants.UNKNOWN;
     }
 
+    @Override
+    public boolean hasStaticContext() {
+        return true;
+    }
+
     @Override
     public void configureContext(MetricsContext context) {
         // no-op
@@ -17,9 +17,17 @@
 package software.amazon.cloudwatchlogs.emf.environment;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.cloudwatchlogs.emf.Constants;
@@ -28,10 +36,15 @@ import software.amazon.cloudwatchlogs.emf.exception.EMFClientException;
 import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
 
 @Slf4j
-public class EC2Environment extends AgentBasedEnvironment {
+public class EC2Environment extends AgentBasedEnvironment
+        implements CacheableEnvironment<EC2Environment.EC2Metadata> {
     private Configuration config;
     private EC2Metadata metadata;
     private ResourceFetcher fetcher;
+    private final List<Path> instanceIdFiles;
+    // the IMDSv2 session token, reused by later probes until shortly before it expires
+    private String token;
+    private long tokenExpiresAtMillis;
 
     private static final String INSTANCE_IDENTITY_URL =
             "http://169.254.169.254/latest/dynamic/instance-identity/document";
@@ -40,32 +53,48 @@ public class EC2Environment extends AgentBasedEnvironment {
     private static final String CFN_EC2_TYPE = "AWS::EC2::Instance";
     private static final String TOKEN_REQUEST_HEADER_KEY = "X-aws-ec2-metadata-token-ttl-seconds";
     private static final String TOKEN_REQUEST_HEADER_VALUE = "21600";
+    private static final long TOKEN_TTL_MILLIS =
+            TimeUnit.SECONDS.toMillis(Long.parseLong(TOKEN_REQUEST_HEADER_VALUE));
+    private static final long TOKEN_REFRESH_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(1);
 
     private static final String METADATA_REQUEST_TOKEN_HEADER_KEY = "X-aws-ec2-metadata-token";
 
+    // local files holding the instance id: the DMI asset tag of Nitro instances and cloud-init data
+    private static final List<Path> INSTANCE_ID_FILES =
+            Arrays.asList(
+                    Paths.get("/sys/devices/virtual/dmi/id/board_asset_tag"),
+                    Paths.get("/var/lib/cloud/data/instance-id"));
+    private static final String INSTANCE_ID_PREFIX = "i-";
+
     EC2Environment(Configuration config, ResourceFetcher fetcher) {
+        this(config, fetcher, INSTANCE_ID_FILES);
+    }
+
+    EC2Environment(Configuration config, ResourceFetcher fetcher, List<Path> instanceIdFiles) {
         super(config);
         this.config = config;
         this.fetcher = fetcher;
+        this.instanceIdFiles = instanceIdFiles;
+    }
+
+    @Override
+    public boolean hasNetworkProbe() {
+        return true;
+    }
+
+    /** Abort the metadata requests of a probe running on another thread. */
+    @Override
+    public void cancelProbe() {
+        fetcher.disconnect();
     }
 
     @Override
     public boolean probe() {
         String token;
-        Map<String, String> tokenRequestHeader =
-                Collections.singletonMap(TOKEN_REQUEST_HEADER_KEY, TOKEN_REQUEST_HEADER_VALUE);
-
-        URI tokenEndpoint = null;
         try {
-            tokenEndpoint = new URI(INSTANCE_TOKEN_URL);
-        } catch (Exception ex) {
-            log.debug("Failed to construct url: " + INSTANCE_IDENTITY_URL);
-            return false;
-        }
-        try {
-            token = fetcher.fetch(tokenEndpoint, "PUT", tokenRequestHeader);
+            token = getToken();
         } catch (EMFClientException ex) {
-            log.debug("Failed to get response from: " + tokenEndpoint, ex);
+            log.debug("Failed to get response from: " + INSTANCE_TOKEN_URL, ex);
             return false;
         }
 
@@ -84,10 +113,75 @@ public class EC2Environment extends AgentBasedEnvironment {
             return true;
         } catch (EMFClientException ex) {
             log.debug("Failed to get response from: " + endpoint, ex);
+            // the token may have been revoked, so request a new one on the next probe
+            invalidateToken();
         }
         return false;
     }
 
+    /**
+     * @return the cached IMDSv2 token, or a new one if it is about to expire
+     * @throws EMFClientException if a new token cannot be fetched
+     */
+    private synchronized String getToken() {
+        if (token != null && System.currentTimeMillis() < tokenExpiresAtMillis) {
+            return token;
+        }
+        Map<String, String> tokenRequestHeader =
+                Collections.singletonMap(TOKEN_REQUEST_HEADER_KEY, TOKEN_REQUEST_HEADER_VALUE);
+        long requestedAtMillis = System.currentTimeMillis();
+        token = fetcher.fetch(URI.create(INSTANCE_TOKEN_URL), "PUT", tokenRequestHeader);
+        tokenExpiresAtMillis = requestedAtMillis + TOKEN_TTL_MILLIS - TOKEN_REFRESH_MARGIN_MILLIS;
+        return token;
+    }
+
+    /** The metadata token is not reused after a restore, which may be on another instance. */
+    @Override
+    public void beforeCheckpoint() {
+        super.beforeCheckpoint();
+        invalidateToken();
+    }
+
+    private synchronized void invalidateToken() {
+        token = null;
+    }
+
+    /** @return the instance id read from local files, or null if it is not available */
+    @Override
+    public String getCacheIdentity() {
+        for (Path file : instanceIdFiles) {
+            try {
+                String instanceId =
+                        new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+                if (instanceId.startsWith(INSTANCE_ID_PREFIX)) {
+                    return instanceId;
+                }
+            } catch (IOException | SecurityException e) {
+                log.debug("Unable to read the instance id from {}", file);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public EC2Metadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public Class<EC2Metadata> getMetadataType() {
+        return EC2Metadata.class;
+    }
+
+    @Override
+    public boolean restoreMetadata(EC2Metadata metadata) {
+        if (metadata.instanceId == null || !metadata.instanceId.equals(getCacheIdentity())) {
+            return false;
+        }
+        this.metadata = metadata;
+        return true;
+    }
+
     @Override
     public String getType() {
         if (config.getServiceType().isPresent()) {
@@ -99,6 +193,11 @@ public class EC2Environment extends AgentBasedEnvironment {
         return Constants.UNKNOWN;
     }
 
+    @Override
+    public boolean hasStaticContext() {
+        return true;
+    }
+
     @Override
     public void configureContext(MetricsContext context) {
         if (metadata != null) {
@@ -32,7 +32,8 @@ import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
 import software.amazon.cloudwatchlogs.emf.util.StringUtils;
 
 @Slf4j
-public class ECSEnvironment extends AgentBasedEnvironment {
+public class ECSEnvironment extends AgentBasedEnvironment
+        implements CacheableEnvironment<ECSEnvironment.ECSMetadata> {
     private Configuration config;
     private ECSMetadata metadata;
     private ResourceFetcher fetcher;
@@ -44,7 +45,7 @@ public class ECSEnvironment extends AgentBasedEnvironment {
     private static final String ENVIRONMENT_TYPE = "AWS::ECS::Container";
 
     public ECSEnvironment(Configuration config) {
-        this(config, new ResourceFetcher());
+        this(config, new ResourceFetcher(config.getEcsMetadataTimeoutMillis()));
     }
 
     ECSEnvironment(Configuration config, ResourceFetcher fetcher) {
@@ -53,6 +54,17 @@ public class ECSEnvironment extends AgentBasedEnvironment {
         this.fetcher = fetcher;
     }
 
+    @Override
+    public boolean hasNetworkProbe() {
+        return true;
+    }
+
+    /** Abort the metadata requests of a probe running on another thread. */
+    @Override
+    public void cancelProbe() {
+        fetcher.disconnect();
+    }
+
     @Override
     public boolean probe() {
         String uri = getEnv(ECS_CONTAINER_METADATA_URI);
@@ -63,12 +75,10 @@ public class ECSEnvironment extends AgentBasedEnvironment {
 
         checkAndSetFluentHost();
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true);
         URI parsedURI = null;
         try {
             parsedURI = new URI(uri);
-            metadata = fetcher.fetch(parsedURI, objectMapper, ECSMetadata.class);
+            metadata = fetcher.fetch(parsedURI, MapperHolder.MAPPER, ECSMetadata.class);
             formatImageName();
             return true;
         } catch (Exception ex) {
@@ -89,6 +99,36 @@ public class ECSEnvironment extends AgentBasedEnvironment {
         return Constants.UNKNOWN;
     }
 
+    /**
+     * @return the container metadata URI, which is unique to the container, or null outside of
+     *     ECS
+     */
+    @Override
+    public String getCacheIdentity() {
+        return getEnv(ECS_CONTAINER_METADATA_URI);
+    }
+
+    @Override
+    public ECSMetadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public Class<ECSMetadata> getMetadataType() {
+        return ECSMetadata.class;
+    }
+
+    @Override
+    public boolean restoreMetadata(ECSMetadata metadata) {
+        if (getCacheIdentity() == null || metadata.labels == null) {
+            return false;
+        }
+        checkAndSetFluentHost();
+        this.metadata = metadata;
+        formatImageName();
+        return true;
+    }
+
     @Override
     public String getType() {
         if (config.getServiceType().isPresent()) {
@@ -108,6 +148,11 @@ public class ECSEnvironment extends AgentBasedEnvironment {
         return super.getLogGroupName();
     }
 
+    @Override
+    public boolean hasStaticContext() {
+        return true;
+    }
+
     @Override
     public void configureContext(MetricsContext context) {
 
@@ -139,7 +184,12 @@ public class ECSEnvironment extends AgentBasedEnvironment {
         String fluentHost = getEnv(FLUENT_HOST);
         if (fluentHost != null && !config.getAgentEndpoint().isPresent()) {
             fluentBitEndpoint =
-                    String.format("tcp://%s:%d", fluentHost, Constants.DEFAULT_AGENT_PORT);
+                    config.shouldUseFluentForward()
+                            ? String.format(
+                                    "forward://%s:%d",
+                                    fluentHost, Constants.DEFAULT_FLUENT_FORWARD_PORT)
+                            : String.format(
+                                    "tcp://%s:%d", fluentHost, Constants.DEFAULT_AGENT_PORT);
             config.setAgentEndpoint(fluentBitEndpoint);
             log.info("Using FluentBit configuration. Endpoint: {}", fluentBitEndpoint);
         }
@@ -153,6 +203,13 @@ public class ECSEnvironment extends AgentBasedEnvironment {
         }
     }
 
+    /** Holds the mapper, so that it is only created when running on ECS. */
+    private static class MapperHolder {
+        static final ObjectMapper MAPPER =
+                new ObjectMapper()
+                        .configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true);
+    }
+
     @Data
     @JsonIgnoreProperties(ignoreUnknown = true)
     static class ECSMetadata {
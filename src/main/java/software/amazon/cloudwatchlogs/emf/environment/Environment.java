@@ -16,6 +16,7 @@
 
 package software.amazon.cloudwatchlogs.emf.environment;
 
+import java.util.concurrent.CompletableFuture;
 import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
 import software.amazon.cloudwatchlogs.emf.sinks.ISink;
 
@@ -29,6 +30,24 @@ public interface Environment {
      */
     boolean probe();
 
+    /**
+     * Whether {@link #probe()} makes network calls, such as requests to a metadata endpoint. Probes
+     * without network calls are run first, on the calling thread.
+     *
+     * @return true if probing may block on the network, otherwise, false
+     */
+    default boolean hasNetworkProbe() {
+        return false;
+    }
+
+    /**
+     * Abort a probe that is running on another thread, because its result is no longer needed.
+     * Environments whose probes make network calls should close the connections in use, since
+     * blocking socket reads ignore interrupts. Without this, a cancelled probe keeps running
+     * until its own timeouts expire.
+     */
+    default void cancelProbe() {}
+
     /**
      * Get the environment name. This will be used to set the ServiceName dimension.
      *
@@ -53,6 +72,37 @@ public interface Environment {
     /** @param context the context to configure with environment properties */
     void configureContext(MetricsContext context);
 
+    /**
+     * Whether {@link #configureContext(MetricsContext)} adds the same properties every time once
+     * the environment is resolved. The properties of such environments are collected once and
+     * copied into each flushed context.
+     *
+     * @return true if the properties never change, false if they are added on every flush
+     */
+    default boolean hasStaticContext() {
+        return false;
+    }
+
     /** @return an appropriate sink for this environment */
     ISink getSink();
+
+    /**
+     * Release what must not be captured in a checkpoint of the process, such as connections and
+     * metadata credentials, and write out buffered events. See {@link ISink#beforeCheckpoint()}.
+     */
+    default void beforeCheckpoint() {}
+
+    /** Reconnect after the process has been restored from a checkpoint. */
+    default void afterRestore() {}
+
+    /**
+     * Shut down the sink of the environment, if it has been created, once the environment is no
+     * longer used. See {@link ISink#shutdown()}. Should the environment be resolved again, it
+     * creates a new sink.
+     *
+     * @return a future that completes when the sink has been shut down
+     */
+    default CompletableFuture<Void> shutdown() {
+        return CompletableFuture.completedFuture(null);
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.environment;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A file that remembers the resolved environment together with its metadata, so that later
+ * processes on the same instance or task resolve the environment without network calls. The
+ * entry is keyed by the identity of the instance or task and expires after a time to live.
+ *
+ * <p>The file is replaced atomically, so concurrent processes never read a partial entry. A file
+ * that cannot be read or written is ignored and the environment is probed as usual.
+ */
+@Slf4j
+class EnvironmentCache {
+    private static final ObjectMapper objectMapper =
+            new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Path file;
+    private final long ttlMillis;
+
+    /**
+     * @param file the cache file. Its directory is created if necessary.
+     * @param ttlMillis how long an entry is used after it was written
+     */
+    EnvironmentCache(Path file, long ttlMillis) {
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Restore the cached environment if it is one of the candidates, its identity matches and it
+     * has not expired. A candidate is not restored while a candidate with a higher priority has an
+     * identity, since that environment would win the probes.
+     *
+     * @param candidates the environments that may be restored, ordered from the highest priority
+     * @return the restored environment, or empty if the environment needs to be probed
+     */
+    Optional<Environment> restore(List<CacheableEnvironment<?>> candidates) {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        Entry entry;
+        try {
+            entry = objectMapper.readValue(file.toFile(), Entry.class);
+        } catch (IOException e) {
+            log.debug("Failed to read the environment cache {}", file, e);
+            return Optional.empty();
+        }
+        if (entry.getExpiresAtMillis() < System.currentTimeMillis()) {
+            log.debug("The environment cache {} has expired.", file);
+            return Optional.empty();
+        }
+
+        for (CacheableEnvironment<?> candidate : candidates) {
+            if (candidate.getClass().getSimpleName().equals(entry.getEnvironment())) {
+                if (restore(candidate, entry)) {
+                    log.debug("Restored the {} from {}", entry.getEnvironment(), file);
+                    return Optional.of(candidate);
+                }
+                return Optional.empty();
+            }
+            if (candidate.getCacheIdentity() != null) {
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Store the environment and its metadata. Environments that are not cacheable, or whose
+     * identity or metadata are unknown, are not stored.
+     *
+     * @param environment the resolved environment
+     */
+    void save(Environment environment) {
+        if (!(environment instanceof CacheableEnvironment)) {
+            return;
+        }
+        CacheableEnvironment<?> cacheable = (CacheableEnvironment<?>) environment;
+        String identity = cacheable.getCacheIdentity();
+        Object metadata = cacheable.getMetadata();
+        if (identity == null || metadata == null) {
+            return;
+        }
+
+        Entry entry =
+                new Entry(
+                        environment.getClass().getSimpleName(),
+                        identity,
+                        System.currentTimeMillis() + ttlMillis,
+                        objectMapper.valueToTree(metadata));
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                objectMapper.writeValue(temporary.toFile(), entry);
+                move(temporary);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.debug("Failed to write the environment cache {}", file, e);
+        }
+    }
+
+    private static <T> boolean restore(CacheableEnvironment<T> candidate, Entry entry) {
+        if (entry.getIdentity() == null
+                || !entry.getIdentity().equals(candidate.getCacheIdentity())) {
+            return false;
+        }
+        try {
+            T metadata = objectMapper.treeToValue(entry.getMetadata(), candidate.getMetadataType());
+            return metadata != null && candidate.restoreMetadata(metadata);
+        } catch (IOException e) {
+            log.debug("Failed to read the cached metadata of the {}", entry.getEnvironment(), e);
+            return false;
+        }
+    }
+
+    private void move(Path temporary) throws IOException {
+        try {
+            Files.move(
+                    temporary,
+                    file,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Entry {
+        private String environment;
+        private String identity;
+        private long expiresAtMillis;
+        private JsonNode metadata;
+    }
+}
@@ -16,84 +16,316 @@
 
 package software.amazon.cloudwatchlogs.emf.environment;
 
-import java.util.ArrayList;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.Constants;
 import software.amazon.cloudwatchlogs.emf.config.Configuration;
 import software.amazon.cloudwatchlogs.emf.config.EnvironmentConfigurationProvider;
+import software.amazon.cloudwatchlogs.emf.util.Threads;
 
 /** A provider that will detect the environment. */
+@Slf4j
 public class EnvironmentProvider {
-    private static Environment cachedEnvironment;
-    private final Configuration config = EnvironmentConfigurationProvider.getConfig();
-    private final Environment lambdaEnvironment = new LambdaEnvironment();
-    private final Environment defaultEnvironment = new DefaultEnvironment(config);
-    private final Environment ec2Environment = new EC2Environment(config, new ResourceFetcher());
-    private final Environment ecsEnvironment = new ECSEnvironment(config, new ResourceFetcher());
-
-    // Ordering of this array matters
-    private final Environment[] environments =
-            new Environment[] {
-                lambdaEnvironment, ecsEnvironment, ec2Environment, defaultEnvironment
-            };
+    // the resolved environment is shared by all providers in the process
+    private static volatile Environment cachedEnvironment;
+    // the resolution in progress, so that concurrent providers wait for it instead of probing
+    private static final AtomicReference<CompletableFuture<Environment>> inFlightResolution =
+            new AtomicReference<>();
+    // incremented whenever the resolved environment is discarded
+    private static final AtomicLong discardCount = new AtomicLong();
+    // the configuration that the environments of this provider were created with
+    private Configuration config = EnvironmentConfigurationProvider.getConfig();
+    // Each environment is created on first use, since most providers find the environment that
+    // another provider already resolved and never need them, and a resolution only needs the
+    // environments that it probes.
+    private Environment lambdaEnvironment;
+    private Environment defaultEnvironment;
+    private Environment kubernetesEnvironment;
+    private EC2Environment ec2Environment;
+    private ECSEnvironment ecsEnvironment;
 
+    // the environments to probe, in priority order
+    private List<Supplier<Environment>> candidates;
+
+    // runs the blocking probes, so that they do not occupy the common fork join pool
+    private final Executor probeExecutor;
+
+    public EnvironmentProvider() {
+        this(
+                Threads.threadPerTaskExecutor(
+                        Threads.threadFactory(
+                                "emf-environment-probe",
+                                EnvironmentConfigurationProvider.getConfig()
+                                        .shouldUseVirtualThreads())));
+    }
+
+    /**
+     * @param probeExecutor the executor that runs the environment probes, which may block on
+     *     network calls to metadata endpoints
+     */
+    public EnvironmentProvider(Executor probeExecutor) {
+        this.probeExecutor = probeExecutor;
+    }
+
+    /**
+     * Resolve the environment. The environment is resolved once per process: while a resolution
+     * is in progress, all callers share its future, and afterwards the resolved environment is
+     * returned immediately.
+     *
+     * @return a future of the resolved environment
+     */
     public CompletableFuture<Environment> resolveEnvironment() {
-        if (cachedEnvironment != null) {
-            return CompletableFuture.completedFuture(cachedEnvironment);
+        while (true) {
+            Environment resolved = cachedEnvironment;
+            if (resolved != null) {
+                return CompletableFuture.completedFuture(resolved);
+            }
+            CompletableFuture<Environment> inFlight = inFlightResolution.get();
+            if (inFlight != null) {
+                // a dependent future, so that a caller cannot complete the shared one
+                return inFlight.thenApply(environment -> environment);
+            }
+
+            CompletableFuture<Environment> resolution = new CompletableFuture<>();
+            if (inFlightResolution.compareAndSet(null, resolution)) {
+                startResolution(resolution);
+                return resolution;
+            }
         }
+    }
 
+    private void startResolution(CompletableFuture<Environment> resolution) {
+        CompletableFuture<Environment> resolvedEnv;
+        try {
+            resolvedEnv = doResolveEnvironment();
+        } catch (RuntimeException e) {
+            resolvedEnv = new CompletableFuture<>();
+            resolvedEnv.completeExceptionally(e);
+        }
+        resolvedEnv.whenComplete(
+                (environment, error) -> {
+                    // publish the environment before the in-flight future is cleared, so that
+                    // every caller finds one of the two
+                    if (error == null) {
+                        cachedEnvironment = environment;
+                        CheckpointHooks.register();
+                    }
+                    inFlightResolution.compareAndSet(resolution, null);
+                    if (error == null) {
+                        resolution.complete(environment);
+                    } else {
+                        resolution.completeExceptionally(error);
+                    }
+                });
+    }
+
+    private CompletableFuture<Environment> doResolveEnvironment() {
+        refreshConfig();
         Optional<Environment> env = getEnvironmentFromOverride();
         if (env.isPresent()) {
-            cachedEnvironment = env.get();
-            return CompletableFuture.completedFuture(cachedEnvironment);
+            return CompletableFuture.completedFuture(env.get());
+        }
+
+        EnvironmentCache cache = getEnvironmentCache();
+        // environments that are detected without network calls take precedence over the cache
+        if (cache != null
+                && !getLambdaEnvironment().probe()
+                && !getKubernetesEnvironment().probe()) {
+            env = cache.restore(Arrays.asList(getEcsEnvironment(), getEc2Environment()));
+            if (env.isPresent()) {
+                return CompletableFuture.completedFuture(env.get());
+            }
         }
 
         CompletableFuture<Optional<Environment>> resolvedEnv = discoverEnvironmentAsync();
 
         return resolvedEnv.thenApply(
                 optionalEnv -> {
-                    cachedEnvironment = optionalEnv.orElse(defaultEnvironment);
-                    return cachedEnvironment;
+                    // the default environment is only created once every probe has failed
+                    Environment environment = optionalEnv.orElseGet(this::getDefaultEnvironment);
+                    if (cache != null) {
+                        cache.save(environment);
+                    }
+                    return environment;
                 });
     }
 
-    public Environment getDefaultEnvironment() {
+    public synchronized Environment getDefaultEnvironment() {
+        refreshConfig();
+        if (defaultEnvironment == null) {
+            defaultEnvironment = new DefaultEnvironment(config);
+        }
         return defaultEnvironment;
     }
 
+    private synchronized Environment getLambdaEnvironment() {
+        if (lambdaEnvironment == null) {
+            lambdaEnvironment = new LambdaEnvironment(config);
+        }
+        return lambdaEnvironment;
+    }
+
+    private synchronized Environment getKubernetesEnvironment() {
+        if (kubernetesEnvironment == null) {
+            kubernetesEnvironment = new KubernetesEnvironment(config);
+        }
+        return kubernetesEnvironment;
+    }
+
+    private synchronized EC2Environment getEc2Environment() {
+        if (ec2Environment == null) {
+            ec2Environment =
+                    new EC2Environment(
+                            config, new ResourceFetcher(config.getEc2MetadataTimeoutMillis()));
+        }
+        return ec2Environment;
+    }
+
+    private synchronized ECSEnvironment getEcsEnvironment() {
+        if (ecsEnvironment == null) {
+            ecsEnvironment =
+                    new ECSEnvironment(
+                            config, new ResourceFetcher(config.getEcsMetadataTimeoutMillis()));
+        }
+        return ecsEnvironment;
+    }
+
+    private synchronized List<Supplier<Environment>> getCandidates() {
+        if (candidates == null) {
+            // Ordering of this list matters, the first environment whose probe succeeds is used
+            candidates =
+                    Arrays.asList(
+                            this::getLambdaEnvironment,
+                            this::getKubernetesEnvironment,
+                            this::getEcsEnvironment,
+                            this::getEc2Environment);
+        }
+        return candidates;
+    }
+
+    /**
+     * Drop the environments if the configuration was replaced since they were created. The
+     * candidates create them again from the new configuration.
+     */
+    private synchronized void refreshConfig() {
+        Configuration current = EnvironmentConfigurationProvider.getConfig();
+        if (config == current) {
+            return;
+        }
+        config = current;
+        lambdaEnvironment = null;
+        defaultEnvironment = null;
+        kubernetesEnvironment = null;
+        ec2Environment = null;
+        ecsEnvironment = null;
+    }
+
+    /** @return the environment resolved in this process, or null if none has been resolved */
+    static Environment getResolvedEnvironment() {
+        return cachedEnvironment;
+    }
+
+    /**
+     * Resolve the environment again on the next call to {@link #resolveEnvironment()}, unless
+     * another environment has been resolved since, and shut down the sink of the discarded
+     * environment. The shutdown is awaited for up to {@link
+     * Constants#CHECKPOINT_DRAIN_TIMEOUT_MILLIS}, so that the sink of the next environment can
+     * take over resources such as the spill directory.
+     */
+    static void discardResolvedEnvironment(Environment environment) {
+        synchronized (EnvironmentProvider.class) {
+            if (environment == null || cachedEnvironment != environment) {
+                return;
+            }
+            cachedEnvironment = null;
+            discardCount.incrementAndGet();
+        }
+        try {
+            environment
+                    .shutdown()
+                    .get(Constants.CHECKPOINT_DRAIN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("The sink of the discarded environment did not shut down in time.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            log.warn("Failed to shut down the sink of the discarded environment: ", e);
+        }
+    }
+
+    /**
+     * Discard the environment resolved in this process, if any, so that it is resolved again from
+     * the current configuration. Its sink is shut down as described in {@link
+     * #discardResolvedEnvironment(Environment)}, and loggers resolve the environment again on
+     * their next flush.
+     */
+    public static void discardResolvedEnvironment() {
+        discardResolvedEnvironment(cachedEnvironment);
+    }
+
+    /**
+     * @return how many times the resolved environment has been discarded, so that callers holding
+     *     an environment can tell whether they should resolve it again
+     */
+    public static long getDiscardCount() {
+        return discardCount.get();
+    }
+
     /** A helper method to clean the cached environment in tests. */
     void cleanResolvedEnvironment() {
         cachedEnvironment = null;
+        inFlightResolution.set(null);
     }
 
-    private CompletableFuture<Optional<Environment>> discoverEnvironmentAsync() {
-
-        CompletableFuture<Optional<Environment>> ans = new CompletableFuture<>();
-
-        List<CompletableFuture<EnvironmentResolveResult>> futures = new ArrayList<>();
-        for (Environment env : environments) {
-            CompletableFuture<EnvironmentResolveResult> future =
-                    CompletableFuture.supplyAsync(
-                            () -> new EnvironmentResolveResult(env.probe(), env));
-            futures.add(future);
+    /** @return the cache of the resolved environment, or null if caching is not configured */
+    private EnvironmentCache getEnvironmentCache() {
+        Optional<String> file = config.getEnvironmentCacheFile();
+        if (!file.isPresent()) {
+            return null;
         }
+        int ttlSeconds = config.getEnvironmentCacheTtlSeconds();
+        return new EnvironmentCache(
+                Paths.get(file.get()),
+                TimeUnit.SECONDS.toMillis(
+                        ttlSeconds > 0
+                                ? ttlSeconds
+                                : Constants.DEFAULT_ENVIRONMENT_CACHE_TTL_SECONDS));
+    }
 
-        CompletableFuture.runAsync(
-                () -> {
-                    for (CompletableFuture<EnvironmentResolveResult> future : futures) {
-                        EnvironmentResolveResult result = future.join();
-                        if (result.isCandidate) {
-                            ans.complete(Optional.of(result.environment));
-                            return;
-                        }
-                    }
-                    ans.complete(Optional.empty());
-                });
+    private CompletableFuture<Optional<Environment>> discoverEnvironmentAsync() {
+        int timeoutMillis = config.getEnvironmentDetectionTimeoutMillis();
+        return new EnvironmentResolver(
+                        getCandidates(),
+                        probeExecutor,
+                        timeoutMillis > 0 ? timeoutMillis : defaultDetectionTimeoutMillis(config))
+                .resolve();
+    }
+
+    /**
+     * The default deadline leaves time for the slowest network probe to complete. The EC2 probe
+     * requests a session token and then the instance identity document, and the ECS probe makes a
+     * single request, each of which may take up to the metadata timeout of its endpoint.
+     */
+    static int defaultDetectionTimeoutMillis(Configuration config) {
+        int ec2ProbeMillis = 2 * metadataTimeoutMillis(config.getEc2MetadataTimeoutMillis());
+        int ecsProbeMillis = metadataTimeoutMillis(config.getEcsMetadataTimeoutMillis());
+        return Math.max(ec2ProbeMillis, ecsProbeMillis)
+                + Constants.ENVIRONMENT_DETECTION_MARGIN_MILLIS;
+    }
 
-        return ans;
+    private static int metadataTimeoutMillis(int configuredMillis) {
+        return configuredMillis > 0 ? configuredMillis : Constants.DEFAULT_METADATA_TIMEOUT_MILLIS;
     }
 
     private Optional<Environment> getEnvironmentFromOverride() {
@@ -102,16 +334,21 @@ public class EnvironmentProvider {
         Optional<Environment> environment;
         switch (config.getEnvironmentOverride()) {
             case Lambda:
-                environment = Optional.of(lambdaEnvironment);
+                environment = Optional.of(getLambdaEnvironment());
                 break;
             case Agent:
-                environment = Optional.of(defaultEnvironment);
+                environment = Optional.of(getDefaultEnvironment());
                 break;
             case EC2:
-                environment = Optional.of(ec2Environment);
+                environment = Optional.of(getEc2Environment());
                 break;
             case ECS:
-                environment = Optional.of(ecsEnvironment);
+                environment = Optional.of(getEcsEnvironment());
+                break;
+            case Kubernetes:
+                Environment kubernetes = getKubernetesEnvironment();
+                kubernetes.probe();
+                environment = Optional.of(kubernetes);
                 break;
             case Local:
                 environment = Optional.of(new LocalEnvironment(config));
@@ -122,11 +359,4 @@ public class EnvironmentProvider {
         }
         return environment;
     }
-
-    @AllArgsConstructor
-    @Data
-    static class EnvironmentResolveResult {
-        private boolean isCandidate;
-        private Environment environment;
-    }
 }
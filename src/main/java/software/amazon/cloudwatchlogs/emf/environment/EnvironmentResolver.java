@@ -0,0 +1,243 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.environment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.util.Threads;
+
+/**
+ * Resolves the first environment, in priority order, whose probe succeeds. Probes without network
+ * calls run first on the calling thread, so a positive local probe resolves the environment
+ * without starting any network probe. Each candidate is created when it is reached in priority
+ * order, so candidates after a positive local probe are never created. The network probes of
+ * environments with a higher priority than the first positive local probe then run concurrently,
+ * and the resolution completes as soon as the result of the highest priority environment is
+ * known. Outstanding probes are cancelled
+ * once the resolution completes or the deadline passes. At the deadline, the highest priority
+ * environment whose probe has succeeded so far is used.
+ *
+ * <p>The deadline is enforced by a shared scheduler rather than the probe executor, so it also
+ * fires when a bounded executor is busy with the probes. Cancelled probes are interrupted and
+ * asked to close their connections through {@link Environment#cancelProbe()}.
+ */
+@Slf4j
+class EnvironmentResolver {
+    private static final ScheduledThreadPoolExecutor DEADLINES = createDeadlineScheduler();
+
+    private final List<Supplier<Environment>> candidates;
+    // the candidates created so far
+    private final Environment[] environments;
+    private final Executor executor;
+    private final long timeoutMillis;
+
+    // the probe result of each environment, null while it is unknown; guarded by this
+    private final Boolean[] results;
+    private final List<ProbeTask> tasks = new ArrayList<>();
+    private final CompletableFuture<Optional<Environment>> resolved = new CompletableFuture<>();
+
+    /**
+     * @param candidates create the candidate environments, ordered from the highest priority
+     * @param executor runs the network probes
+     * @param timeoutMillis the deadline for the whole resolution
+     */
+    EnvironmentResolver(
+            List<Supplier<Environment>> candidates, Executor executor, long timeoutMillis) {
+        this.candidates = candidates;
+        this.environments = new Environment[candidates.size()];
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        this.results = new Boolean[candidates.size()];
+    }
+
+    /**
+     * Start the resolution. This must be called only once.
+     *
+     * @return a future of the resolved environment, empty if no probe succeeded
+     */
+    CompletableFuture<Optional<Environment>> resolve() {
+        int firstLocalCandidate = environments.length;
+        for (int i = 0; i < environments.length; i++) {
+            environments[i] = candidates.get(i).get();
+            if (!environments[i].hasNetworkProbe()) {
+                results[i] = probe(environments[i]);
+                if (results[i]) {
+                    firstLocalCandidate = i;
+                    break;
+                }
+            }
+        }
+
+        synchronized (this) {
+            if (tryComplete()) {
+                return resolved;
+            }
+            // only environments with a higher priority than a local candidate are worth probing
+            for (int i = 0; i < firstLocalCandidate; i++) {
+                if (results[i] == null) {
+                    tasks.add(new ProbeTask(i));
+                }
+            }
+        }
+
+        ScheduledFuture<?> deadline =
+                DEADLINES.schedule(this::onDeadline, timeoutMillis, TimeUnit.MILLISECONDS);
+        resolved.whenComplete((environment, error) -> deadline.cancel(false));
+        for (ProbeTask task : tasks) {
+            executor.execute(task);
+        }
+        return resolved;
+    }
+
+    private void onDeadline() {
+        synchronized (this) {
+            if (!resolved.isDone()) {
+                log.debug("Environment detection did not complete within {} ms.", timeoutMillis);
+                completeWithBestKnown();
+            }
+        }
+        cancelOutstandingProbes();
+    }
+
+    private void onResult(int index, boolean candidate) {
+        boolean completed;
+        synchronized (this) {
+            results[index] = candidate;
+            completed = tryComplete();
+        }
+        if (completed) {
+            cancelOutstandingProbes();
+        }
+    }
+
+    /**
+     * Complete with the first candidate once all environments with a higher priority are known
+     * not to be candidates.
+     *
+     * @return true if the resolution is complete
+     */
+    private boolean tryComplete() {
+        if (resolved.isDone()) {
+            return true;
+        }
+        for (int i = 0; i < environments.length; i++) {
+            if (results[i] == null) {
+                return false;
+            }
+            if (results[i]) {
+                return resolved.complete(Optional.of(environments[i]));
+            }
+        }
+        return resolved.complete(Optional.empty());
+    }
+
+    private void completeWithBestKnown() {
+        for (int i = 0; i < environments.length; i++) {
+            if (Boolean.TRUE.equals(results[i])) {
+                resolved.complete(Optional.of(environments[i]));
+                return;
+            }
+        }
+        resolved.complete(Optional.empty());
+    }
+
+    private void cancelOutstandingProbes() {
+        List<ProbeTask> outstanding;
+        synchronized (this) {
+            outstanding = new ArrayList<>(tasks);
+        }
+        for (ProbeTask task : outstanding) {
+            task.cancel();
+        }
+    }
+
+    private static boolean probe(Environment environment) {
+        try {
+            return environment.probe();
+        } catch (RuntimeException e) {
+            log.debug("Failed to probe the environment {}", environment.getClass(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Runs the probe of a single environment. A cancelled probe is interrupted and its environment
+     * is asked to abort it.
+     */
+    private class ProbeTask implements Runnable {
+        private final int index;
+        private Thread runner;
+        private boolean done;
+
+        ProbeTask(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            boolean candidate = probe(environments[index]);
+            synchronized (this) {
+                done = true;
+                runner = null;
+                // do not leave an interrupt from a late cancellation on a pooled thread
+                Thread.interrupted();
+            }
+            onResult(index, candidate);
+        }
+
+        void cancel() {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                if (runner == null) {
+                    // the probe has not started and never will
+                    return;
+                }
+                runner.interrupt();
+            }
+            environments[index].cancelProbe();
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createDeadlineScheduler() {
+        ScheduledThreadPoolExecutor scheduler =
+                new ScheduledThreadPoolExecutor(
+                        1, Threads.daemonThreadFactory("emf-environment-deadline"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        // the thread only lives while a resolution is in progress
+        scheduler.setKeepAliveTime(1, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        return scheduler;
+    }
+}
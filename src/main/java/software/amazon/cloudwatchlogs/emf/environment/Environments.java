@@ -22,5 +22,6 @@ public enum Environments {
     Agent,
     EC2,
     ECS,
+    Kubernetes,
     Unknown
 }
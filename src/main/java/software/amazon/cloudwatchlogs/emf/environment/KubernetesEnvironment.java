@@ -0,0 +1,153 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.environment;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.config.Configuration;
+import software.amazon.cloudwatchlogs.emf.config.SystemWrapper;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+import software.amazon.cloudwatchlogs.emf.util.StringUtils;
+
+/**
+ * A pod in a Kubernetes cluster, such as EKS. The environment is detected from local sources only,
+ * so probing it never blocks on the network: the service account that Kubernetes mounts into each
+ * pod and the {@code KUBERNETES_SERVICE_HOST} variable it sets. The pod, namespace and node are
+ * read from variables or files exposed through the downward API. Nothing available locally tells
+ * an EKS pod apart from other Kubernetes pods, so the pod is only reported as running on EKS when
+ * {@code CLUSTER_NAME} names its cluster.
+ */
+@Slf4j
+public class KubernetesEnvironment extends AgentBasedEnvironment {
+    private static final String KUBERNETES_SERVICE_HOST = "KUBERNETES_SERVICE_HOST";
+    private static final String POD_NAME = "POD_NAME";
+    private static final String POD_NAMESPACE = "POD_NAMESPACE";
+    private static final String NODE_NAME = "NODE_NAME";
+    private static final String CLUSTER_NAME = "CLUSTER_NAME";
+    // the pod name is the default hostname of its containers
+    private static final String HOSTNAME = "HOSTNAME";
+
+    private static final Path SERVICE_ACCOUNT_DIRECTORY =
+            Paths.get("/var/run/secrets/kubernetes.io/serviceaccount");
+    private static final Path DOWNWARD_API_DIRECTORY = Paths.get("/etc/podinfo");
+    private static final String NAMESPACE_FILE = "namespace";
+    private static final String POD_NAME_FILE = "podname";
+    private static final String NODE_NAME_FILE = "nodename";
+    private static final String ENVIRONMENT_TYPE = "Kubernetes::Pod";
+    private static final String EKS_ENVIRONMENT_TYPE = "AWS::EKS::Pod";
+
+    private final Configuration config;
+    private final Path serviceAccountDirectory;
+    private final Path downwardApiDirectory;
+    private String podName;
+    private String namespace;
+    private String nodeName;
+    private String clusterName;
+
+    public KubernetesEnvironment(Configuration config) {
+        this(config, SERVICE_ACCOUNT_DIRECTORY, DOWNWARD_API_DIRECTORY);
+    }
+
+    KubernetesEnvironment(
+            Configuration config, Path serviceAccountDirectory, Path downwardApiDirectory) {
+        super(config);
+        this.config = config;
+        this.serviceAccountDirectory = serviceAccountDirectory;
+        this.downwardApiDirectory = downwardApiDirectory;
+    }
+
+    @Override
+    public boolean probe() {
+        if (getEnv(KUBERNETES_SERVICE_HOST) == null
+                && !Files.exists(serviceAccountDirectory.resolve(NAMESPACE_FILE))) {
+            return false;
+        }
+
+        podName =
+                firstNonEmpty(
+                        getEnv(POD_NAME),
+                        readFile(downwardApiDirectory, POD_NAME_FILE),
+                        getEnv(HOSTNAME));
+        namespace =
+                firstNonEmpty(
+                        getEnv(POD_NAMESPACE),
+                        readFile(downwardApiDirectory, NAMESPACE_FILE),
+                        readFile(serviceAccountDirectory, NAMESPACE_FILE));
+        nodeName =
+                firstNonEmpty(getEnv(NODE_NAME), readFile(downwardApiDirectory, NODE_NAME_FILE));
+        clusterName = firstNonEmpty(getEnv(CLUSTER_NAME));
+        return true;
+    }
+
+    @Override
+    public String getType() {
+        if (config.getServiceType().isPresent()) {
+            return config.getServiceType().get();
+        }
+        return clusterName != null ? EKS_ENVIRONMENT_TYPE : ENVIRONMENT_TYPE;
+    }
+
+    @Override
+    public boolean hasStaticContext() {
+        return true;
+    }
+
+    @Override
+    public void configureContext(MetricsContext context) {
+        addProperty(context, "podName", podName);
+        addProperty(context, "namespace", namespace);
+        addProperty(context, "nodeName", nodeName);
+        addProperty(context, "cluster", clusterName);
+    }
+
+    private void addProperty(MetricsContext context, String key, String value) {
+        if (value != null) {
+            context.putProperty(key, value);
+        }
+    }
+
+    private String getEnv(String name) {
+        return SystemWrapper.getenv(name);
+    }
+
+    private static String readFile(Path directory, String name) {
+        Path file = directory.resolve(name);
+        if (!Files.isReadable(file)) {
+            return null;
+        }
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            log.debug("Unable to read {}", file, e);
+            return null;
+        }
+    }
+
+    private static String firstNonEmpty(String... values) {
+        for (String value : values) {
+            if (!StringUtils.isNullOrEmpty(value)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
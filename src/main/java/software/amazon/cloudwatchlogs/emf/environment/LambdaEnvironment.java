@@ -17,10 +17,14 @@
 package software.amazon.cloudwatchlogs.emf.environment;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import software.amazon.cloudwatchlogs.emf.config.Configuration;
+import software.amazon.cloudwatchlogs.emf.config.EnvironmentConfigurationProvider;
 import software.amazon.cloudwatchlogs.emf.config.SystemWrapper;
 import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
 import software.amazon.cloudwatchlogs.emf.sinks.ConsoleSink;
 import software.amazon.cloudwatchlogs.emf.sinks.ISink;
+import software.amazon.cloudwatchlogs.emf.util.Threads;
 
 /** An environment stands for the AWS Lambda environment. */
 public class LambdaEnvironment implements Environment {
@@ -31,7 +35,16 @@ public class LambdaEnvironment implements Environment {
     private static final String TRACE_ID = "_X_AMZN_TRACE_ID";
     private static final String LAMBDA_CFN_NAME = "AWS::Lambda::Function";
 
-    private ISink sink = null;
+    private final Configuration config;
+    private volatile ISink sink;
+
+    public LambdaEnvironment() {
+        this(EnvironmentConfigurationProvider.getConfig());
+    }
+
+    public LambdaEnvironment(Configuration config) {
+        this.config = config;
+    }
 
     // TODO: support probing asynchronously
     @Override
@@ -65,11 +78,43 @@ public class LambdaEnvironment implements Environment {
     }
 
     @Override
-    public ISink getSink() {
+    public void beforeCheckpoint() {
+        if (sink != null) {
+            sink.beforeCheckpoint();
+        }
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> shutdown() {
         if (sink == null) {
-            sink = new ConsoleSink();
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> shutdown = sink.shutdown();
+        sink = null;
+        return shutdown;
+    }
+
+    @Override
+    public ISink getSink() {
+        ISink current = sink;
+        if (current == null) {
+            synchronized (this) {
+                current = sink;
+                if (current == null) {
+                    current =
+                            ConsoleSink.builder()
+                                    .buffered(config.shouldBufferStdout())
+                                    .asyncQueueDepth(config.getStdoutAsyncQueueDepth())
+                                    .threadFactory(
+                                            Threads.threadFactory(
+                                                    "emf-console-writer",
+                                                    config.shouldUseVirtualThreads()))
+                                    .build();
+                    sink = current;
+                }
+            }
         }
-        return sink;
+        return current;
     }
 
     private void addProperty(MetricsContext context, String key, String value) {
@@ -16,16 +16,18 @@
 
 package software.amazon.cloudwatchlogs.emf.environment;
 
+import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.cloudwatchlogs.emf.Constants;
 import software.amazon.cloudwatchlogs.emf.config.Configuration;
 import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
 import software.amazon.cloudwatchlogs.emf.sinks.ConsoleSink;
 import software.amazon.cloudwatchlogs.emf.sinks.ISink;
+import software.amazon.cloudwatchlogs.emf.util.Threads;
 
 @Slf4j
 public class LocalEnvironment implements Environment {
-    private ISink sink;
+    private volatile ISink sink;
     private Configuration config;
 
     LocalEnvironment(Configuration config) {
@@ -63,16 +65,46 @@ public class LocalEnvironment implements Environment {
         return config.getLogGroupName().orElse(getName() + "-metrics");
     }
 
+    @Override
+    public boolean hasStaticContext() {
+        return true;
+    }
+
     @Override
     public void configureContext(MetricsContext context) {
         // no-op
     }
 
     @Override
-    public ISink getSink() {
+    public synchronized CompletableFuture<Void> shutdown() {
         if (sink == null) {
-            this.sink = new ConsoleSink();
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> shutdown = sink.shutdown();
+        sink = null;
+        return shutdown;
+    }
+
+    @Override
+    public ISink getSink() {
+        ISink current = sink;
+        if (current == null) {
+            synchronized (this) {
+                current = sink;
+                if (current == null) {
+                    current =
+                            ConsoleSink.builder()
+                                    .buffered(config.shouldBufferStdout())
+                                    .asyncQueueDepth(config.getStdoutAsyncQueueDepth())
+                                    .threadFactory(
+                                            Threads.threadFactory(
+                                                    "emf-console-writer",
+                                                    config.shouldUseVirtualThreads()))
+                                    .build();
+                    sink = current;
+                }
+            }
         }
-        return this.sink;
+        return current;
     }
 }
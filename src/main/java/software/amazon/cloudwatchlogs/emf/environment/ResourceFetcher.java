@@ -25,13 +25,37 @@ import java.net.Proxy;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.Constants;
 import software.amazon.cloudwatchlogs.emf.exception.EMFClientException;
 import software.amazon.cloudwatchlogs.emf.util.IOUtils;
 import software.amazon.cloudwatchlogs.emf.util.Jackson;
 
+/**
+ * Fetches resources from metadata endpoints. Response bodies are always read to the end, so that
+ * the underlying keep-alive connection is returned to the JVM connection cache and reused by the
+ * next request to the same endpoint. A fetcher is safe to share between threads.
+ */
 @Slf4j
 public class ResourceFetcher {
+    private final int timeoutMillis;
+    // the connections of requests in progress, so that they can be aborted
+    private final Set<HttpURLConnection> openConnections = ConcurrentHashMap.newKeySet();
+
+    public ResourceFetcher() {
+        this(Constants.DEFAULT_METADATA_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param timeoutMillis the connect and read timeout of each request. A value of 0 or less uses
+     *     the default timeout.
+     */
+    public ResourceFetcher(int timeoutMillis) {
+        this.timeoutMillis =
+                timeoutMillis > 0 ? timeoutMillis : Constants.DEFAULT_METADATA_TIMEOUT_MILLIS;
+    }
 
     /** Fetch a json object from a given uri and deserialize it to the specified class: clazz. */
     <T> T fetch(URI endpoint, Class<T> clazz) {
@@ -62,10 +86,24 @@ public class ResourceFetcher {
         return Jackson.fromJsonString(response, objectMapper, clazz);
     }
 
+    /**
+     * Abort the requests in progress on other threads, which then fail with an {@link
+     * EMFClientException}. This is best effort: a request that is still resolving its host or has
+     * not yet opened its connection may not notice.
+     */
+    void disconnect() {
+        for (HttpURLConnection connection : openConnections) {
+            connection.disconnect();
+        }
+    }
+
     private String doReadResource(URI endpoint, String method, Map<String, String> headers) {
         InputStream inputStream = null;
+        HttpURLConnection connection = null;
         try {
-            HttpURLConnection connection = connectToEndpoint(endpoint, method, headers);
+            connection = createConnection(endpoint, method, headers);
+            openConnections.add(connection);
+            connection.connect();
 
             int statusCode = connection.getResponseCode();
 
@@ -73,6 +111,11 @@ public class ResourceFetcher {
                 inputStream = connection.getInputStream();
                 return IOUtils.toString(inputStream);
             } else if (statusCode == HttpURLConnection.HTTP_NOT_FOUND) {
+                // drain the body, so that the connection can be reused
+                inputStream = connection.getErrorStream();
+                if (inputStream != null) {
+                    IOUtils.toByteArray(inputStream);
+                }
                 throw new EMFClientException(
                         "The requested metadata is not found at " + connection.getURL());
             } else {
@@ -88,6 +131,9 @@ public class ResourceFetcher {
             throw new EMFClientException("Failed to connect to service endpoint: ", ioException);
         } finally {
             IOUtils.closeQuietly(inputStream, log);
+            if (connection != null) {
+                openConnections.remove(connection);
+            }
         }
         return "";
     }
@@ -120,12 +166,12 @@ public class ResourceFetcher {
         }
     }
 
-    private HttpURLConnection connectToEndpoint(
+    private HttpURLConnection createConnection(
             URI endpoint, String method, Map<String, String> headers) throws IOException {
         HttpURLConnection connection =
                 (HttpURLConnection) endpoint.toURL().openConnection(Proxy.NO_PROXY);
-        connection.setConnectTimeout(1000);
-        connection.setReadTimeout(1000);
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
         connection.setRequestMethod(method);
         connection.setDoOutput(true);
 
@@ -133,8 +179,6 @@ public class ResourceFetcher {
             connection.setRequestProperty(header.getKey(), header.getValue());
         }
 
-        connection.connect();
-
         return connection;
     }
 }
@@ -0,0 +1,120 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.logger;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import software.amazon.cloudwatchlogs.emf.config.Configuration;
+import software.amazon.cloudwatchlogs.emf.config.EnvironmentConfigurationProvider;
+import software.amazon.cloudwatchlogs.emf.environment.Environment;
+import software.amazon.cloudwatchlogs.emf.exception.DimensionSetExceededException;
+import software.amazon.cloudwatchlogs.emf.exception.InvalidDimensionException;
+import software.amazon.cloudwatchlogs.emf.model.DimensionSet;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+
+/**
+ * The default dimensions and properties that an environment adds to each flushed context. They
+ * are validated and collected once per resolved environment, so that applying them to a context
+ * only copies the prepared values. Loggers keep the enrichment they last applied, and the most
+ * recently computed one is shared with new loggers; both are checked without locking and replaced
+ * when the environment or the configuration changes.
+ */
+final class EnvironmentEnrichment {
+    // the enrichment computed last, shared by loggers that have not cached one yet
+    private static volatile EnvironmentEnrichment latest;
+
+    // weak, so that the shared enrichment does not keep a discarded environment reachable
+    private final WeakReference<Environment> environment;
+    // the configuration in effect when the enrichment was computed
+    private final Configuration configuration;
+    private final DimensionSet defaultDimensions;
+    // null if the environment adds different properties on each flush
+    private final Map<String, Object> properties;
+
+    private EnvironmentEnrichment(Environment environment, Configuration configuration) {
+        this.environment = new WeakReference<>(environment);
+        this.configuration = configuration;
+        this.defaultDimensions = new DimensionSet();
+        addDimension("LogGroup", environment.getLogGroupName());
+        addDimension("ServiceName", environment.getName());
+        addDimension("ServiceType", environment.getType());
+
+        if (environment.hasStaticContext()) {
+            MetricsContext template = new MetricsContext();
+            environment.configureContext(template);
+            this.properties =
+                    Collections.unmodifiableMap(new LinkedHashMap<>(template.getProperties()));
+        } else {
+            this.properties = null;
+        }
+    }
+
+    /**
+     * @param environment the resolved environment
+     * @param cached the enrichment that the caller applied last, or null
+     * @return the cached enrichment if it was computed for the environment and the current
+     *     configuration, otherwise a shared or newly computed one
+     */
+    static EnvironmentEnrichment of(Environment environment, EnvironmentEnrichment cached) {
+        Configuration current = EnvironmentConfigurationProvider.getConfig();
+        if (cached != null && cached.isFor(environment, current)) {
+            return cached;
+        }
+        EnvironmentEnrichment shared = latest;
+        if (shared == null || !shared.isFor(environment, current)) {
+            // racing callers may each compute an equivalent enrichment, of which one is kept
+            shared = new EnvironmentEnrichment(environment, current);
+            latest = shared;
+        }
+        return shared;
+    }
+
+    private boolean isFor(Environment environment, Configuration configuration) {
+        return this.configuration == configuration && this.environment.get() == environment;
+    }
+
+    /**
+     * Set the default dimensions of the context and add the environment properties to it.
+     *
+     * @param context the context to enrich
+     * @param environment the environment that the enrichment was computed for
+     */
+    void applyTo(MetricsContext context, Environment environment) {
+        try {
+            context.setDefaultDimensions(new DimensionSet().add(defaultDimensions));
+        } catch (DimensionSetExceededException ignored) {
+            // the prepared set never exceeds the limit
+        }
+        if (properties == null) {
+            environment.configureContext(context);
+            return;
+        }
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            context.putProperty(property.getKey(), property.getValue());
+        }
+    }
+
+    private void addDimension(String dimKey, String dimVal) {
+        try {
+            defaultDimensions.addDimension(dimKey, dimVal);
+        } catch (InvalidDimensionException | DimensionSetExceededException ignored) {
+        }
+    }
+}
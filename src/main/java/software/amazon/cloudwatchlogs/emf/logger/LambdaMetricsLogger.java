@@ -0,0 +1,238 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.logger;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.environment.Environment;
+import software.amazon.cloudwatchlogs.emf.environment.EnvironmentProvider;
+import software.amazon.cloudwatchlogs.emf.exception.InvalidMetricException;
+import software.amazon.cloudwatchlogs.emf.exception.InvalidTimestampException;
+import software.amazon.cloudwatchlogs.emf.model.DimensionSet;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+import software.amazon.cloudwatchlogs.emf.model.StorageResolution;
+import software.amazon.cloudwatchlogs.emf.model.Unit;
+
+/**
+ * A metrics logger for AWS Lambda handlers that is created once per container, typically in a
+ * field of the handler, and reused by every invocation.
+ *
+ * <p>The namespace, dimensions and properties of the template context given at construction are
+ * set up once. Each invocation starts from a fresh copy of the template, so metrics, dimensions
+ * and properties added during an invocation never leak into the next one. The environment is
+ * resolved once per container, and {@link #flush()} sends the invocation to the sink of that
+ * environment, like {@link MetricsLogger}. In Lambda this is stdout, and with {@code
+ * BufferedStdout} enabled all events of the invocation are written with a single write on the
+ * calling thread, reusing the encoding buffers of previous flushes. The write completes before the
+ * handler returns, so it cannot be lost when Lambda freezes the container.
+ *
+ * <p>Lambda runs one invocation at a time per container, so this logger is not thread safe. Use
+ * {@link MetricsLogger} to record metrics from several threads.
+ */
+@Slf4j
+public class LambdaMetricsLogger {
+    private final MetricsContext template;
+    private final Map<String, Object> templateProperties;
+    private CompletableFuture<Environment> environmentFuture;
+    private final EnvironmentProvider environmentProvider;
+    private Environment environment;
+    private EnvironmentEnrichment enrichment;
+    // the discard count when the environment was resolved, to resolve it again once discarded
+    private long environmentDiscardCount = EnvironmentProvider.getDiscardCount();
+    // the context of the current invocation, created when it records its first value
+    private MetricsContext context;
+
+    /**
+     * @param template the namespace, dimensions and properties that every invocation starts with.
+     *     It is copied, so later changes to it have no effect.
+     */
+    public LambdaMetricsLogger(MetricsContext template) {
+        this(new EnvironmentProvider(), template);
+    }
+
+    public LambdaMetricsLogger(EnvironmentProvider environmentProvider, MetricsContext template) {
+        this.template = template.createCopyWithContext(true);
+        this.templateProperties = new LinkedHashMap<>(template.getProperties());
+        this.environmentProvider = environmentProvider;
+        this.environmentFuture = environmentProvider.resolveEnvironment();
+    }
+
+    /**
+     * Start a new invocation from the template, discarding anything recorded since the last
+     * flush. Calling this is optional, since the first value recorded after a flush starts a new
+     * invocation.
+     *
+     * @return the current logger
+     */
+    public LambdaMetricsLogger startInvocation() {
+        context = template.createCopyWithContext(true);
+        for (Map.Entry<String, Object> property : templateProperties.entrySet()) {
+            context.putProperty(property.getKey(), property.getValue());
+        }
+        return this;
+    }
+
+    /**
+     * Send the metrics of the current invocation to the sink of the environment. Nothing is sent
+     * if no values were recorded since the last flush.
+     */
+    public void flush() {
+        if (context == null) {
+            return;
+        }
+        MetricsContext flushed = context;
+        context = null;
+        Environment resolved = getEnvironment();
+        if (!flushed.hasDefaultDimensions()) {
+            enrichment = EnvironmentEnrichment.of(resolved, enrichment);
+            enrichment.applyTo(flushed, resolved);
+        }
+        resolved.getSink().accept(flushed);
+    }
+
+    /**
+     * Set a property on the metrics of the current invocation.
+     *
+     * @param key Property name
+     * @param value Property value
+     * @return the current logger
+     */
+    public LambdaMetricsLogger putProperty(String key, Object value) {
+        currentContext().putProperty(key, value);
+        return this;
+    }
+
+    /**
+     * Add a dimension set to the metrics of the current invocation.
+     *
+     * @param dimensions the DimensionSet to add
+     * @return the current logger
+     */
+    public LambdaMetricsLogger putDimensions(DimensionSet dimensions) {
+        currentContext().putDimension(dimensions);
+        return this;
+    }
+
+    /**
+     * Overwrite the dimensions of the current invocation, with an option to preserve default
+     * dimensions.
+     *
+     * @param useDefault indicates whether default dimensions should be used
+     * @param dimensionSets the dimensionSets to set
+     * @return the current logger
+     */
+    public LambdaMetricsLogger setDimensions(boolean useDefault, DimensionSet... dimensionSets) {
+        currentContext().setDimensions(useDefault, dimensionSets);
+        return this;
+    }
+
+    /**
+     * Put a metric value.
+     *
+     * @param key is the name of the metric
+     * @param value is the value of the metric
+     * @param unit is the unit of the metric value
+     * @param storageResolution is the resolution of the metric
+     * @return the current logger
+     * @throws InvalidMetricException if the metric is invalid
+     */
+    public LambdaMetricsLogger putMetric(
+            String key, double value, Unit unit, StorageResolution storageResolution)
+            throws InvalidMetricException {
+        currentContext().putMetric(key, value, unit, storageResolution);
+        return this;
+    }
+
+    /**
+     * Put a metric value.
+     *
+     * @param key is the name of the metric
+     * @param value is the value of the metric
+     * @param unit is the unit of the metric value
+     * @return the current logger
+     * @throws InvalidMetricException if the metric is invalid
+     */
+    public LambdaMetricsLogger putMetric(String key, double value, Unit unit)
+            throws InvalidMetricException {
+        return putMetric(key, value, unit, StorageResolution.STANDARD);
+    }
+
+    /**
+     * Put a metric value.
+     *
+     * @param key the name of the metric
+     * @param value the value of the metric
+     * @return the current logger
+     * @throws InvalidMetricException if the metric is invalid
+     */
+    public LambdaMetricsLogger putMetric(String key, double value) throws InvalidMetricException {
+        return putMetric(key, value, Unit.NONE, StorageResolution.STANDARD);
+    }
+
+    /**
+     * Add a custom key-value pair to the Metadata object of the current invocation.
+     *
+     * @param key the name of the key
+     * @param value the value associated with the key
+     * @return the current logger
+     */
+    public LambdaMetricsLogger putMetadata(String key, Object value) {
+        currentContext().putMetadata(key, value);
+        return this;
+    }
+
+    /**
+     * Set the timestamp of the current invocation's metrics. By default it is the time the
+     * invocation recorded its first value.
+     *
+     * @param timestamp value of timestamp to be set
+     * @return the current logger
+     * @throws InvalidTimestampException if the timestamp is invalid
+     */
+    public LambdaMetricsLogger setTimestamp(Instant timestamp) throws InvalidTimestampException {
+        currentContext().setTimestamp(timestamp);
+        return this;
+    }
+
+    private MetricsContext currentContext() {
+        if (context == null) {
+            startInvocation();
+        }
+        return context;
+    }
+
+    private Environment getEnvironment() {
+        long discards = EnvironmentProvider.getDiscardCount();
+        if (discards != environmentDiscardCount) {
+            environmentDiscardCount = discards;
+            environmentFuture = environmentProvider.resolveEnvironment();
+            environment = null;
+        }
+        if (environment == null) {
+            try {
+                environment = environmentFuture.join();
+            } catch (Exception ex) {
+                log.info("Failed to resolve environment. Fallback to default environment: ", ex);
+                environment = environmentProvider.getDefaultEnvironment();
+            }
+        }
+        return environment;
+    }
+}
@@ -18,15 +18,17 @@ package software.amazon.cloudwatchlogs.emf.logger;
 
 import java.time.Instant;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.config.EnvironmentConfigurationProvider;
+import software.amazon.cloudwatchlogs.emf.environment.CheckpointHooks;
 import software.amazon.cloudwatchlogs.emf.environment.Environment;
 import software.amazon.cloudwatchlogs.emf.environment.EnvironmentProvider;
-import software.amazon.cloudwatchlogs.emf.exception.DimensionSetExceededException;
-import software.amazon.cloudwatchlogs.emf.exception.InvalidDimensionException;
 import software.amazon.cloudwatchlogs.emf.exception.InvalidMetricException;
 import software.amazon.cloudwatchlogs.emf.exception.InvalidNamespaceException;
 import software.amazon.cloudwatchlogs.emf.exception.InvalidTimestampException;
@@ -35,6 +37,7 @@ import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
 import software.amazon.cloudwatchlogs.emf.model.StorageResolution;
 import software.amazon.cloudwatchlogs.emf.model.Unit;
 import software.amazon.cloudwatchlogs.emf.sinks.ISink;
+import software.amazon.cloudwatchlogs.emf.util.Threads;
 
 /**
  * A metrics logger. Use this interface to publish logs to CloudWatch Logs and extract metrics to
@@ -42,9 +45,19 @@ import software.amazon.cloudwatchlogs.emf.sinks.ISink;
  */
 @Slf4j
 public class MetricsLogger {
+    private static final Executor WARM_UP_EXECUTOR =
+            Threads.threadPerTaskExecutor(Threads.daemonThreadFactory("emf-warm-up"));
+    private static final AtomicBoolean automaticWarmUpStarted = new AtomicBoolean();
+
     private MetricsContext context;
-    private CompletableFuture<Environment> environmentFuture;
+    // the restore count when the context was created, and whether its timestamp was set
+    private long contextRestoreCount = CheckpointHooks.getRestoreCount();
+    private boolean timestampSet;
+    private volatile CompletableFuture<Environment> environmentFuture;
+    // the discard count when the environment was resolved, to resolve it again once discarded
+    private volatile long environmentDiscardCount = EnvironmentProvider.getDiscardCount();
     private EnvironmentProvider environmentProvider;
+    private volatile EnvironmentEnrichment enrichment;
     /**
      * This lock is used to create an internal sync context for flush() method in multi-threaded
      * situations. Flush() acquires write lock, other methods (accessing mutable shared data with
@@ -55,6 +68,14 @@ public class MetricsLogger {
 
     @Getter @Setter private boolean flushPreserveDimensions = true;
 
+    /**
+     * Sink saturation, as a percentage, at which metrics with repeated values are flushed as their
+     * distinct values and counts instead of raw values. 0 disables aggregation.
+     */
+    @Getter @Setter
+    private int aggregationSaturationPercent =
+            EnvironmentConfigurationProvider.getConfig().getAggregationSaturationPercent();
+
     public MetricsLogger() {
         this(new EnvironmentProvider());
     }
@@ -63,6 +84,7 @@ public class MetricsLogger {
         context = new MetricsContext();
         environmentFuture = CompletableFuture.completedFuture(environment);
         environmentProvider = null; // TODO: should do some refactoring here
+        startAutomaticWarmUp();
     }
 
     public MetricsLogger(EnvironmentProvider environmentProvider) {
@@ -73,31 +95,98 @@ public class MetricsLogger {
         context = metricsContext;
         environmentFuture = environmentProvider.resolveEnvironment();
         this.environmentProvider = environmentProvider;
+        startAutomaticWarmUp();
+    }
+
+    /**
+     * Prepare everything the first flush would otherwise have to set up, on a background thread:
+     * resolve the environment, create its sink, start the sink's threads and connect to the
+     * agent, and serialize a sample context. Calling this at startup gives the first flush
+     * steady-state latency. Nothing is sent to the sink.
+     *
+     * @return a future that completes when the warm-up has finished. Failures are logged rather
+     *     than surfaced, since the first flush will retry them.
+     */
+    public CompletableFuture<Void> warmUp() {
+        return CompletableFuture.runAsync(
+                () -> {
+                    try {
+                        Environment environment = resolveEnvironment();
+                        environment.getSink().warmUp();
+                        MetricsContext sample = new MetricsContext();
+                        configureContextForEnvironment(sample, environment);
+                        sample.putMetric("WarmUp", 0);
+                        sample.serialize();
+                    } catch (Exception e) {
+                        log.debug("Failed to warm up the metrics logger: ", e);
+                    }
+                },
+                WARM_UP_EXECUTOR);
     }
 
     /**
      * Flushes the current context state to the configured sink. TODO: Support flush asynchronously
      */
     public void flush() {
-        Environment environment;
+        Environment environment = resolveEnvironment();
+
+        rwl.writeLock().lock();
         try {
-            environment = environmentFuture.join();
-        } catch (Exception ex) {
-            log.info("Failed to resolve environment. Fallback to default environment: ", ex);
-            environment = environmentProvider.getDefaultEnvironment();
+            ISink sink = environment.getSink();
+            configureContextForEnvironment(context, environment);
+            refreshTimestampAfterRestore();
+            aggregateUnderPressure(sink);
+            sink.accept(context);
+            startNextContext();
+        } finally {
+            rwl.writeLock().unlock();
         }
+    }
+
+    /**
+     * Flushes the current context state to the configured sink unless the sink is saturated. When
+     * the sink rejects the metrics they are kept on this logger, and metrics added afterwards are
+     * appended to them, so that they can be flushed once the pressure clears.
+     *
+     * @return true if the metrics were flushed, false if the sink rejected them
+     */
+    public boolean tryFlush() {
+        Environment environment = resolveEnvironment();
 
         rwl.writeLock().lock();
         try {
             ISink sink = environment.getSink();
             configureContextForEnvironment(context, environment);
-            sink.accept(context);
-            context = context.createCopyWithContext(flushPreserveDimensions);
+            refreshTimestampAfterRestore();
+            aggregateUnderPressure(sink);
+            if (!sink.offer(context)) {
+                return false;
+            }
+            startNextContext();
+            return true;
         } finally {
             rwl.writeLock().unlock();
         }
     }
 
+    /**
+     * Get how much of the configured sink's buffering capacity is in use. Request handlers can use
+     * this to shed optional metrics before the sink starts dropping events.
+     *
+     * @return a value between 0 and 1, or 0 if the environment has not been resolved yet
+     */
+    public double getSinkSaturation() {
+        if (!environmentFuture.isDone() || environmentFuture.isCompletedExceptionally()) {
+            return 0;
+        }
+        return environmentFuture.join().getSink().getSaturation();
+    }
+
+    /** @return true if the configured sink would currently drop or reject new metrics */
+    public boolean isSinkSaturated() {
+        return getSinkSaturation() >= 1;
+    }
+
     /**
      * Set a property on the published metrics. This is stored in the emitted log data, and you are
      * not charged for this data by CloudWatch Metrics. These values can be values that are useful
@@ -300,26 +389,64 @@ public class MetricsLogger {
      */
     public MetricsLogger setTimestamp(Instant timestamp) throws InvalidTimestampException {
         this.context.setTimestamp(timestamp);
+        timestampSet = true;
         return this;
     }
 
-    private void configureContextForEnvironment(MetricsContext context, Environment environment) {
-        if (context.hasDefaultDimensions()) {
-            return;
+    private void startAutomaticWarmUp() {
+        if (EnvironmentConfigurationProvider.getConfig().shouldWarmUp()
+                && automaticWarmUpStarted.compareAndSet(false, true)) {
+            warmUp();
         }
-        DimensionSet defaultDimension = new DimensionSet();
-        setDefaultDimension(defaultDimension, "LogGroup", environment.getLogGroupName());
-        setDefaultDimension(defaultDimension, "ServiceName", environment.getName());
-        setDefaultDimension(defaultDimension, "ServiceType", environment.getType());
-        context.setDefaultDimensions(defaultDimension);
-        environment.configureContext(context);
     }
 
-    private void setDefaultDimension(DimensionSet defaultDimension, String dimKey, String dimVal) {
+    private Environment resolveEnvironment() {
+        long discards = EnvironmentProvider.getDiscardCount();
+        if (environmentProvider != null && discards != environmentDiscardCount) {
+            environmentDiscardCount = discards;
+            environmentFuture = environmentProvider.resolveEnvironment();
+        }
         try {
-            defaultDimension.addDimension(dimKey, dimVal);
-        } catch (InvalidDimensionException | DimensionSetExceededException ignored) {
+            return environmentFuture.join();
+        } catch (Exception ex) {
+            log.info("Failed to resolve environment. Fallback to default environment: ", ex);
+            return environmentProvider.getDefaultEnvironment();
+        }
+    }
+
+    private void startNextContext() {
+        context = context.createCopyWithContext(flushPreserveDimensions);
+        contextRestoreCount = CheckpointHooks.getRestoreCount();
+        timestampSet = false;
+    }
+
+    /**
+     * A context created before a checkpoint would carry the time of the checkpoint, so its
+     * timestamp is moved to the time of the flush, unless it was set explicitly.
+     */
+    private void refreshTimestampAfterRestore() {
+        long restores = CheckpointHooks.getRestoreCount();
+        if (restores != contextRestoreCount) {
+            if (!timestampSet) {
+                context.setTimestamp(Instant.now());
+            }
+            contextRestoreCount = restores;
+        }
+    }
+
+    private void aggregateUnderPressure(ISink sink) {
+        if (aggregationSaturationPercent > 0
+                && sink.getSaturation() * 100 >= aggregationSaturationPercent) {
+            context.aggregateMetrics();
+        }
+    }
+
+    private void configureContextForEnvironment(MetricsContext context, Environment environment) {
+        if (context.hasDefaultDimensions()) {
+            return;
         }
+        enrichment = EnvironmentEnrichment.of(environment, enrichment);
+        enrichment.applyTo(context, environment);
     }
 
     private MetricsLogger applyReadLock(Supplier<MetricsLogger> any) {
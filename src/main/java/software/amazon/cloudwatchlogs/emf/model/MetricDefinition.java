@@ -24,7 +24,6 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
@@ -34,7 +33,6 @@ import software.amazon.cloudwatchlogs.emf.serializers.UnitDeserializer;
 import software.amazon.cloudwatchlogs.emf.serializers.UnitSerializer;
 
 /** Represents the MetricDefinition of the EMF schema. */
-@AllArgsConstructor
 class MetricDefinition {
     @NonNull
     @Getter
@@ -59,6 +57,20 @@ class MetricDefinition {
 
     @JsonIgnore @NonNull @Getter private List<Double> values;
 
+    /** The values and their counts once the metric has been aggregated, otherwise null. */
+    @JsonIgnore @Getter private ValueCounts valueCounts;
+
+    MetricDefinition(
+            @NonNull String name,
+            Unit unit,
+            StorageResolution storageResolution,
+            @NonNull List<Double> values) {
+        this.name = name;
+        this.unit = unit;
+        this.storageResolution = storageResolution;
+        this.values = values;
+    }
+
     MetricDefinition(String name) {
         this(name, Unit.NONE, StorageResolution.STANDARD, new ArrayList<>());
     }
@@ -80,6 +92,56 @@ class MetricDefinition {
     }
 
     void addValue(double value) {
-        values.add(value);
+        if (valueCounts != null) {
+            valueCounts.addValue(value);
+        } else {
+            values.add(value);
+        }
+    }
+
+    /** @return true if the values of this metric are counted by distinct value */
+    boolean isAggregated() {
+        return valueCounts != null;
+    }
+
+    /** @return the number of values, or of distinct values once the metric has been aggregated */
+    int getDataPointCount() {
+        return valueCounts != null ? valueCounts.size() : values.size();
+    }
+
+    /**
+     * @param from the index of the first data point, inclusive
+     * @param to the index of the last data point, exclusive
+     * @return a metric with the same name, unit and resolution and the data points between the two
+     *     indexes
+     */
+    MetricDefinition slice(int from, int to) {
+        if (valueCounts == null) {
+            return new MetricDefinition(name, unit, storageResolution, values.subList(from, to));
+        }
+        MetricDefinition slice =
+                new MetricDefinition(name, unit, storageResolution, new ArrayList<>());
+        slice.valueCounts = valueCounts.slice(from, to);
+        return slice;
+    }
+
+    /**
+     * Replace the values recorded so far by their distinct values and how many times each of them
+     * was recorded. Values added afterwards are counted the same way. Metrics without repeated
+     * values are left as they are, since aggregating them would not make the event any smaller.
+     */
+    void aggregate() {
+        if (valueCounts != null || values.size() < 2) {
+            return;
+        }
+        ValueCounts counts = new ValueCounts();
+        for (double value : values) {
+            counts.addValue(value);
+        }
+        if (counts.size() == values.size()) {
+            return;
+        }
+        values = new ArrayList<>();
+        valueCounts = counts;
     }
 }
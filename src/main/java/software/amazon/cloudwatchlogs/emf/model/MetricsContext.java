@@ -20,6 +20,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -203,6 +204,11 @@ public class MetricsContext {
         return rootNode.getProperties().get(name);
     }
 
+    /** @return an unmodifiable view of all properties of this context */
+    public Map<String, Object> getProperties() {
+        return Collections.unmodifiableMap(rootNode.getProperties());
+    }
+
     /**
      * Add dimensions to the metric context.
      *
@@ -281,6 +287,16 @@ public class MetricsContext {
         rootNode.getAws().putCustomMetadata(key, value);
     }
 
+    /**
+     * Get a custom metadata value.
+     *
+     * @param key the name of the key
+     * @return the value associated with the key, or null if there is none
+     */
+    public Object getMetadata(String key) {
+        return rootNode.getAws().getCustomMetadata().get(key);
+    }
+
     /** @return timestamp field from the metadata. */
     public Instant getTimestamp() {
         return rootNode.getAws().getTimestamp();
@@ -297,6 +313,17 @@ public class MetricsContext {
         rootNode.getAws().setTimestamp(timestamp);
     }
 
+    /**
+     * Replace the values of every metric with repeated values by its distinct values and how many
+     * times each of them was recorded. Values added to these metrics afterwards are counted the
+     * same way. This trades the order of the values for smaller and fewer events.
+     */
+    public void aggregateMetrics() {
+        for (MetricDefinition metric : rootNode.metrics().values()) {
+            metric.aggregate();
+        }
+    }
+
     /**
      * Create a copy of the context
      *
@@ -335,26 +362,14 @@ public class MetricsContext {
                     metrics = new HashMap<>();
                 }
 
-                if (metric.getValues().size() <= Constants.MAX_DATAPOINTS_PER_METRIC) {
+                int dataPoints = metric.getDataPointCount();
+                if (dataPoints <= Constants.MAX_DATAPOINTS_PER_METRIC) {
                     metrics.put(metric.getName(), metric);
                 } else {
                     metrics.put(
-                            metric.getName(),
-                            new MetricDefinition(
-                                    metric.getName(),
-                                    metric.getUnit(),
-                                    metric.getStorageResolution(),
-                                    metric.getValues()
-                                            .subList(0, Constants.MAX_DATAPOINTS_PER_METRIC)));
+                            metric.getName(), metric.slice(0, Constants.MAX_DATAPOINTS_PER_METRIC));
                     metricDefinitions.offer(
-                            new MetricDefinition(
-                                    metric.getName(),
-                                    metric.getUnit(),
-                                    metric.getStorageResolution(),
-                                    metric.getValues()
-                                            .subList(
-                                                    Constants.MAX_DATAPOINTS_PER_METRIC,
-                                                    metric.getValues().size())));
+                            metric.slice(Constants.MAX_DATAPOINTS_PER_METRIC, dataPoints));
                 }
             }
             if (!metrics.isEmpty()) {
@@ -379,6 +394,6 @@ public class MetricsContext {
     private boolean anyMetricWithTooManyDataPoints(RootNode node) {
         return node.metrics().values().stream()
                 .anyMatch(
-                        metric -> metric.getValues().size() > Constants.MAX_DATAPOINTS_PER_METRIC);
+                        metric -> metric.getDataPointCount() > Constants.MAX_DATAPOINTS_PER_METRIC);
     }
 }
@@ -21,6 +21,7 @@ import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import java.util.HashMap;
 import java.util.List;
@@ -41,14 +42,10 @@ class RootNode {
     private final Metadata aws;
 
     private Map<String, Object> properties;
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-    private static final SimpleFilterProvider filterProvider =
-            new SimpleFilterProvider().addFilter("emptyMetricFilter", new EmptyMetricsFilter());
 
     RootNode() {
         aws = new Metadata();
         properties = new ConcurrentHashMap<>();
-        objectMapper.setFilterProvider(filterProvider);
     }
 
     public void putProperty(String key, Object value) {
@@ -67,6 +64,10 @@ class RootNode {
         targetMembers.putAll(getDimensions());
         for (MetricDirective metricDirective : aws.getCloudWatchMetrics()) {
             for (MetricDefinition metric : metricDirective.getMetrics().values()) {
+                if (metric.isAggregated()) {
+                    targetMembers.put(metric.getName(), metric.getValueCounts());
+                    continue;
+                }
                 List<Double> values = metric.getValues();
                 targetMembers.put(metric.getName(), values.size() == 1 ? values.get(0) : values);
             }
@@ -90,6 +91,19 @@ class RootNode {
     }
 
     String serialize() throws JsonProcessingException {
-        return objectMapper.writeValueAsString(this);
+        return WriterHolder.WRITER.writeValueAsString(this);
+    }
+
+    /**
+     * Holds the writer, so that Jackson is only loaded and the model classes only introspected
+     * when the first context is serialized. The writer is immutable and shared by all threads.
+     */
+    private static class WriterHolder {
+        static final ObjectWriter WRITER =
+                new ObjectMapper()
+                        .writer(
+                                new SimpleFilterProvider()
+                                        .addFilter("emptyMetricFilter", new EmptyMetricsFilter()))
+                        .forType(RootNode.class);
     }
 }
@@ -0,0 +1,72 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The distinct values of a metric and how many times each of them was recorded, serialized as the
+ * {@code Values} and {@code Counts} arrays that CloudWatch accepts in place of the raw values of a
+ * metric. Repeated values take up space only once while the distribution is kept intact, so it is
+ * used to keep events small when the sink cannot keep up.
+ */
+@JsonPropertyOrder({"Values", "Counts"})
+class ValueCounts {
+    private final Map<Double, Long> counts = new LinkedHashMap<>();
+
+    void addValue(double value) {
+        counts.merge(value, 1L, Long::sum);
+    }
+
+    @JsonProperty("Values")
+    List<Double> getValues() {
+        return new ArrayList<>(counts.keySet());
+    }
+
+    @JsonProperty("Counts")
+    List<Long> getCounts() {
+        return new ArrayList<>(counts.values());
+    }
+
+    /** @return the number of distinct values */
+    int size() {
+        return counts.size();
+    }
+
+    /**
+     * @param from the index of the first distinct value, inclusive
+     * @param to the index of the last distinct value, exclusive
+     * @return the distinct values between the two indexes together with their counts
+     */
+    ValueCounts slice(int from, int to) {
+        ValueCounts slice = new ValueCounts();
+        int index = 0;
+        for (Map.Entry<Double, Long> entry : counts.entrySet()) {
+            if (index >= from && index < to) {
+                slice.counts.put(entry.getKey(), entry.getValue());
+            }
+            index++;
+        }
+        return slice;
+    }
+}
@@ -17,29 +17,73 @@
 package software.amazon.cloudwatchlogs.emf.sinks;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
-import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.cloudwatchlogs.emf.Constants;
 import software.amazon.cloudwatchlogs.emf.exception.EMFClientException;
 import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+import software.amazon.cloudwatchlogs.emf.sinks.retry.FibonacciRetryStrategy;
 import software.amazon.cloudwatchlogs.emf.sinks.retry.RetryStrategy;
 import software.amazon.cloudwatchlogs.emf.util.StringUtils;
+import software.amazon.cloudwatchlogs.emf.util.Threads;
 
-/** An sink connecting to an agent over a socket. */
+/**
+ * An sink connecting to an agent over a socket. The queue depth and the overflow policy can be
+ * changed while the sink is running, see {@link TunableSink}.
+ */
 @Slf4j
-public class AgentSink implements ISink {
+public class AgentSink implements TunableSink {
     private final String logGroupName;
     private final String logStreamName;
-    private final SocketClient client;
-    private final ExecutorService executor;
+    private final Lane[] lanes;
+    private final PartitionStrategy partitionStrategy;
+    private final AtomicInteger nextLane = new AtomicInteger();
     private final Supplier<RetryStrategy> retryStrategyFactory;
-    private final LinkedBlockingQueue<Runnable> queue;
+
+    /** Which events are dropped when the queue of a connection is full. */
+    @Getter private volatile OverflowPolicy overflowPolicy;
+
+    /**
+     * The circuit breaker guarding the connection to the agent, or null if the sink was created
+     * without one.
+     */
+    @Getter private final CircuitBreaker circuitBreaker;
+
+    private final Consumer<String> fallback;
+
+    /** The queue that holds events on disk while the agent cannot keep up, or null. */
+    @Getter private final SpillQueue spillQueue;
+
+    private final ExecutorService replayExecutor;
+    private final AtomicBoolean replayScheduled = new AtomicBoolean();
+
+    /** Throughput, latency, queue depth, retry and drop counters for this sink. */
+    @Getter private final SinkTelemetry telemetry = new SinkTelemetry();
+
+    private final long telemetryIntervalMillis;
+    // reports the telemetry through this sink, null while reporting is disabled or stopped
+    private SinkTelemetryReporter telemetryReporter;
 
     public AgentSink(
             String logGroupName,
@@ -48,76 +92,600 @@ public class AgentSink implements ISink {
             SocketClientFactory clientFactory,
             int asyncQueueDepth,
             Supplier<RetryStrategy> retryStrategy) {
+        this(
+                logGroupName,
+                logStreamName,
+                endpoint,
+                clientFactory,
+                asyncQueueDepth,
+                retryStrategy,
+                0,
+                0,
+                null,
+                1,
+                null,
+                null,
+                null,
+                null,
+                0);
+    }
+
+    /**
+     * @param logGroupName the log group to write to, may be empty
+     * @param logStreamName the log stream to write to, may be empty
+     * @param endpoint the agent endpoint, defaults to {@link Endpoint#DEFAULT_TCP_ENDPOINT}
+     * @param clientFactory the factory used to create the socket clients
+     * @param asyncQueueDepth the number of events to buffer while the agent is unavailable. When
+     *     multiple connections are used, the buffer is divided evenly between them.
+     * @param retryStrategy a factory for the backoff used between send attempts
+     * @param circuitBreakerThreshold the number of consecutive send failures after which the
+     *     circuit opens. A value of 0 disables the circuit breaker.
+     * @param circuitBreakerProbeMillis the delay between connection probes while the circuit is
+     *     open
+     * @param fallback receives events that are short-circuited while the circuit is open. Events
+     *     are dropped if this is null.
+     * @param connectionCount the number of connections to the agent, each with its own sender
+     *     thread. Defaults to 1.
+     * @param partitionStrategy how contexts are distributed across connections, defaults to
+     *     {@link PartitionStrategy#ROUND_ROBIN}
+     * @param spillQueue a disk-backed queue that receives events when the in-memory buffer is full
+     *     or the circuit is open. Spilled events are replayed over the first connection once the
+     *     agent is reachable. Events are dropped if this is null.
+     * @param threadFactory creates the sender, replay and circuit breaker probe threads, for
+     *     example virtual threads from {@link Threads#virtualThreadFactory(String)}. Defaults to
+     *     platform threads.
+     * @param overflowPolicy which events are dropped when the queue of a connection is full,
+     *     defaults to {@link OverflowPolicy#DROP_OLDEST}
+     * @param telemetryIntervalMillis the interval at which the telemetry is reported as an EMF
+     *     event through this sink, until it is shut down. A value of 0 disables the reporting.
+     */
+    @Builder
+    public AgentSink(
+            String logGroupName,
+            String logStreamName,
+            Endpoint endpoint,
+            SocketClientFactory clientFactory,
+            int asyncQueueDepth,
+            Supplier<RetryStrategy> retryStrategy,
+            int circuitBreakerThreshold,
+            long circuitBreakerProbeMillis,
+            Consumer<String> fallback,
+            int connectionCount,
+            PartitionStrategy partitionStrategy,
+            SpillQueue spillQueue,
+            ThreadFactory threadFactory,
+            OverflowPolicy overflowPolicy,
+            long telemetryIntervalMillis) {
         this.logGroupName = logGroupName;
         this.logStreamName = logStreamName;
-        client = clientFactory.getClient(endpoint);
-        queue = new LinkedBlockingQueue<>(asyncQueueDepth);
-        executor = createSingleThreadedExecutor();
-        this.retryStrategyFactory = retryStrategy;
-    }
+        this.partitionStrategy =
+                partitionStrategy != null ? partitionStrategy : PartitionStrategy.ROUND_ROBIN;
+        this.overflowPolicy =
+                overflowPolicy != null ? overflowPolicy : OverflowPolicy.DROP_OLDEST;
 
-    private ExecutorService createSingleThreadedExecutor() {
-        return new ThreadPoolExecutor(
-                1,
-                1,
-                0L,
-                TimeUnit.MILLISECONDS,
-                queue,
-                new ThreadPoolExecutor.DiscardOldestPolicy());
+        SocketClientFactory factory =
+                clientFactory != null ? clientFactory : new SocketClientFactory();
+        Endpoint agentEndpoint = endpoint != null ? endpoint : Endpoint.DEFAULT_TCP_ENDPOINT;
+        int queueDepth =
+                asyncQueueDepth > 0 ? asyncQueueDepth : Constants.DEFAULT_ASYNC_BUFFER_SIZE;
+        int laneCount = Math.max(1, connectionCount);
+        int laneQueueDepth = laneQueueDepth(queueDepth, laneCount);
+        QueueOverflowHandler overflowHandler =
+                new QueueOverflowHandler(
+                        this::getOverflowPolicy,
+                        runnable ->
+                                runnable instanceof Sender ? ((Sender) runnable).events.size() : 0,
+                        telemetry);
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] =
+                    new Lane(
+                            factory.getClient(agentEndpoint),
+                            laneQueueDepth,
+                            telemetry,
+                            threadFactory != null
+                                    ? threadFactory
+                                    : Executors.defaultThreadFactory(),
+                            overflowHandler);
+        }
+
+        this.retryStrategyFactory =
+                retryStrategy != null
+                        ? retryStrategy
+                        : () ->
+                                new FibonacciRetryStrategy(
+                                        Constants.MIN_BACKOFF_MILLIS,
+                                        Constants.MAX_BACKOFF_MILLIS,
+                                        Constants.MAX_BACKOFF_JITTER);
+        this.circuitBreaker =
+                circuitBreakerThreshold > 0
+                        ? new CircuitBreaker(
+                                circuitBreakerThreshold,
+                                circuitBreakerProbeMillis > 0
+                                        ? circuitBreakerProbeMillis
+                                        : Constants.DEFAULT_CIRCUIT_BREAKER_PROBE_MILLIS,
+                                lanes[0].client::probe,
+                                threadFactory)
+                        : null;
+        for (Lane lane : lanes) {
+            lane.client.setWriteListener(this::recordWritten);
+        }
+        this.spillQueue = spillQueue;
+        if (fallback != null) {
+            this.fallback = fallback;
+        } else if (spillQueue != null) {
+            this.fallback = this::spill;
+        } else {
+            this.fallback =
+                    event -> {
+                        telemetry.recordDrops(1);
+                        log.debug("Circuit is open. Dropping EMF event.");
+                    };
+        }
+
+        if (spillQueue != null) {
+            this.replayExecutor =
+                    Executors.newSingleThreadExecutor(
+                            threadFactory != null
+                                    ? threadFactory
+                                    : Threads.daemonThreadFactory("emf-spill-replay"));
+            if (circuitBreaker != null) {
+                circuitBreaker.addListener(
+                        state -> {
+                            if (state == CircuitBreaker.State.CLOSED) {
+                                scheduleReplay();
+                            }
+                        });
+            }
+            // replay anything left over from a previous process
+            scheduleReplay();
+        } else {
+            this.replayExecutor = null;
+        }
+        this.telemetryIntervalMillis = telemetryIntervalMillis;
+        startTelemetryReporter();
     }
 
     public void accept(MetricsContext context) {
-        if (executor.isShutdown()) {
-            throw new EMFClientException(
-                    "Attempted to write data to a sink that has been previously shutdown.");
+        send(context, false);
+    }
+
+    /**
+     * Offer the context without displacing queued events. The context is rejected if the queue of
+     * its connection cannot hold all of its events, or if the circuit is open and there is no
+     * spill queue to fall back to. With a spill queue, events that do not fit into memory are
+     * spilled to disk instead. The capacity check is not atomic with respect to other producers,
+     * so concurrent callers may still displace a small number of events.
+     */
+    @Override
+    public boolean offer(MetricsContext context) {
+        return send(context, true);
+    }
+
+    /**
+     * Change the number of events buffered while the agent is unavailable. When multiple
+     * connections are used, the buffer is divided evenly between them. Events that are already
+     * queued are kept when the depth is reduced, but no new events are queued until the queue
+     * has drained below the new depth.
+     *
+     * @param asyncQueueDepth the number of events to buffer, must be positive
+     */
+    @Override
+    public void setAsyncQueueDepth(int asyncQueueDepth) {
+        if (asyncQueueDepth < 1) {
+            throw new IllegalArgumentException("The queue depth must be positive.");
+        }
+        int laneQueueDepth = laneQueueDepth(asyncQueueDepth, lanes.length);
+        for (Lane lane : lanes) {
+            lane.queue.setCapacity(laneQueueDepth);
         }
+    }
 
-        if (!StringUtils.isNullOrEmpty(logGroupName)) {
-            context.putMetadata("LogGroupName", logGroupName);
+    /** @param overflowPolicy which events are dropped when the queue of a connection is full */
+    @Override
+    public void setOverflowPolicy(@NonNull OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Start the sender threads and connect to the agent, so that the first flush does not pay for
+     * them. Connection failures are left to the regular retries.
+     */
+    @Override
+    public void warmUp() {
+        for (Lane lane : lanes) {
+            ((ThreadPoolExecutor) lane.executor).prestartAllCoreThreads();
+            if (!lane.client.probe()) {
+                log.debug("Failed to connect to the agent while warming up the sink.");
+            }
         }
+    }
 
-        if (!StringUtils.isNullOrEmpty(logStreamName)) {
-            context.putMetadata("LogStreamName", logStreamName);
+    /**
+     * Stop reporting telemetry, wait for the queued events to be sent, then send whatever the
+     * clients have buffered and close the connections to the agent. Events that are still queued
+     * after {@link Constants#CHECKPOINT_DRAIN_TIMEOUT_MILLIS} are sent after the restore, over new
+     * connections.
+     */
+    @Override
+    public void beforeCheckpoint() {
+        stopTelemetryReporter();
+        for (Lane lane : lanes) {
+            if (!Threads.awaitIdle(
+                    (ThreadPoolExecutor) lane.executor,
+                    Constants.CHECKPOINT_DRAIN_TIMEOUT_MILLIS)) {
+                log.warn("Queued EMF events were not sent before the checkpoint.");
+            }
+            flushClient(lane.client);
+            try {
+                lane.client.close();
+            } catch (IOException e) {
+                log.debug("Failed to close the connection to the agent.", e);
+            }
         }
+    }
 
-        try {
-            for (String event : context.serialize()) {
-                executor.submit(new Sender(event, client, retryStrategyFactory));
+    /** Reconnect to the agent and resume replaying spilled events and reporting telemetry. */
+    @Override
+    public void afterRestore() {
+        for (Lane lane : lanes) {
+            if (!lane.client.probe()) {
+                log.debug("Failed to reconnect to the agent after the restore.");
             }
-        } catch (JsonProcessingException e) {
-            log.error("Failed to serialize the metrics with the exception: ", e);
         }
+        if (spillQueue != null) {
+            scheduleReplay();
+        }
+        startTelemetryReporter();
+    }
+
+    /**
+     * @return the occupancy of the fullest connection queue, or 1 if the circuit is open and there
+     *     is no spill queue to fall back to
+     */
+    @Override
+    public double getSaturation() {
+        if (spillQueue == null && circuitBreaker != null && !circuitBreaker.allowRequest()) {
+            return 1;
+        }
+        double saturation = 0;
+        for (Lane lane : lanes) {
+            // the queue may hold more than its capacity right after the depth was reduced
+            double occupancy = (double) lane.queue.size() / lane.queue.getCapacity();
+            saturation = Math.max(saturation, Math.min(1, occupancy));
+        }
+        return saturation;
     }
 
     @Override
     public CompletableFuture<Void> shutdown() {
-        executor.shutdown();
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+        stopTelemetryReporter();
+        if (circuitBreaker != null) {
+            circuitBreaker.close();
+        }
         return CompletableFuture.supplyAsync(
                 () -> {
                     try {
-                        while ((!executor.awaitTermination(1000, TimeUnit.MILLISECONDS))) {
-                            // we add 1 because we assume that at least one task is running if the
-                            // queue is blocked
-                            log.debug(
-                                    "Waiting for graceful shutdown to complete. {} tasks pending.",
-                                    queue.size() + 1);
+                        for (Lane lane : lanes) {
+                            while ((!lane.executor.awaitTermination(
+                                    1000, TimeUnit.MILLISECONDS))) {
+                                log.debug(
+                                        "Waiting for graceful shutdown to complete. {} tasks pending.",
+                                        pendingTasks());
+                            }
+                        }
+                        if (replayExecutor != null) {
+                            replayExecutor.shutdownNow();
+                            replayExecutor.awaitTermination(1000, TimeUnit.MILLISECONDS);
                         }
                     } catch (InterruptedException e) {
                         log.warn("Thread terminated while awaiting shutdown.");
                     }
+                    // send what the clients have buffered; clients that fail to send it on close
+                    // record it as dropped
+                    for (Lane lane : lanes) {
+                        flushClient(lane.client);
+                        try {
+                            lane.client.close();
+                        } catch (IOException e) {
+                            log.debug("Failed to close the connection to the agent.", e);
+                        }
+                    }
+                    if (spillQueue != null) {
+                        try {
+                            spillQueue.close();
+                        } catch (IOException e) {
+                            log.warn("Failed to close the spill queue: ", e);
+                        }
+                    }
                     return null;
                 });
     }
 
-    @AllArgsConstructor
-    private static class Sender implements Runnable {
-        private final String event;
+    private synchronized void startTelemetryReporter() {
+        if (telemetryIntervalMillis > 0
+                && telemetryReporter == null
+                && !lanes[0].executor.isShutdown()) {
+            telemetryReporter =
+                    new SinkTelemetryReporter(
+                            telemetry,
+                            this,
+                            Constants.TELEMETRY_NAMESPACE,
+                            telemetryIntervalMillis);
+        }
+    }
+
+    private synchronized void stopTelemetryReporter() {
+        if (telemetryReporter != null) {
+            telemetryReporter.close();
+            telemetryReporter = null;
+        }
+    }
+
+    /**
+     * Serialize the contexts together and hand the events for each connection to its sender
+     * thread as a single batch, which is written to the agent with one write. A batch takes up a
+     * single slot of the connection's queue, and is retried, spilled or dropped as a whole.
+     */
+    @Override
+    public void acceptAll(Collection<MetricsContext> contexts) {
+        checkNotShutdown();
+        Map<Lane, List<String>> batches = new LinkedHashMap<>();
+        for (MetricsContext context : contexts) {
+            List<String> events = serialize(context);
+            if (events != null) {
+                batches.computeIfAbsent(selectLane(context), lane -> new ArrayList<>())
+                        .addAll(events);
+            }
+        }
+        for (Map.Entry<Lane, List<String>> batch : batches.entrySet()) {
+            enqueue(batch.getKey(), batch.getValue());
+        }
+    }
+
+    private boolean send(MetricsContext context, boolean rejectWhenFull) {
+        checkNotShutdown();
+        List<String> events = serialize(context);
+        if (events == null) {
+            return true;
+        }
+
+        Lane lane = selectLane(context);
+        if (rejectWhenFull && spillQueue == null) {
+            boolean circuitOpen = circuitBreaker != null && !circuitBreaker.allowRequest();
+            if (circuitOpen || lane.queue.remainingCapacity() < events.size()) {
+                return false;
+            }
+        }
+
+        for (String event : events) {
+            enqueue(lane, Collections.singletonList(event));
+        }
+        return true;
+    }
+
+    private void checkNotShutdown() {
+        if (lanes[0].executor.isShutdown()) {
+            throw new EMFClientException(
+                    "Attempted to write data to a sink that has been previously shutdown.");
+        }
+    }
+
+    /** @return the serialized events of the context, or null if it could not be serialized */
+    private List<String> serialize(MetricsContext context) {
+        if (!StringUtils.isNullOrEmpty(logGroupName)) {
+            context.putMetadata("LogGroupName", logGroupName);
+        }
+
+        if (!StringUtils.isNullOrEmpty(logStreamName)) {
+            context.putMetadata("LogStreamName", logStreamName);
+        }
+
+        try {
+            return context.serialize();
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize the metrics with the exception: ", e);
+            return null;
+        }
+    }
+
+    private void enqueue(Lane lane, List<String> events) {
+        if (shouldSpill(lane)) {
+            for (String event : events) {
+                spill(event);
+            }
+        } else {
+            lane.executor.execute(new Sender(events, lane));
+            telemetry.recordQueueDepth(lane.queue.size());
+        }
+    }
+
+    private Lane selectLane(MetricsContext context) {
+        if (lanes.length == 1) {
+            return lanes[0];
+        }
+        int index;
+        if (partitionStrategy == PartitionStrategy.LOG_STREAM) {
+            Object stream = context.getMetadata("LogStreamName");
+            index = stream != null ? stream.hashCode() : 0;
+        } else {
+            index = nextLane.getAndIncrement();
+        }
+        return lanes[Math.floorMod(index, lanes.length)];
+    }
+
+    /**
+     * Once anything has been spilled, later events are spilled as well until the replay catches
+     * up, so that events are not reordered around the spilled ones.
+     */
+    private boolean shouldSpill(Lane lane) {
+        return spillQueue != null
+                && (!spillQueue.isEmpty() || lane.queue.remainingCapacity() == 0);
+    }
+
+    private void spill(String event) {
+        if (!spillQueue.offer(event)) {
+            telemetry.recordDrops(1);
+            log.debug("Spill queue is full. Dropping EMF event.");
+        }
+        scheduleReplay();
+    }
+
+    private void scheduleReplay() {
+        if (replayExecutor == null
+                || replayExecutor.isShutdown()
+                || (circuitBreaker != null && !circuitBreaker.allowRequest())
+                || !replayScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            replayExecutor.execute(this::replaySpilledEvents);
+        } catch (RejectedExecutionException e) {
+            replayScheduled.set(false);
+        }
+    }
+
+    private void replaySpilledEvents() {
+        SocketClient client = lanes[0].client;
+        RetryStrategy backoff = null;
+        int attempts = 0;
+        boolean drained = false;
+        try {
+            String event;
+            while ((event = spillQueue.peek()) != null) {
+                if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+                    // the circuit breaker schedules another replay once it closes
+                    return;
+                }
+                try {
+                    client.sendMessage(event + "\n");
+                    spillQueue.remove();
+                    recordSent(client, 1);
+                    backoff = null;
+                    attempts = 0;
+                } catch (Exception e) {
+                    log.debug(
+                            "Failed to replay a spilled message. Backing off and trying again.",
+                            e);
+                    if (circuitBreaker != null) {
+                        circuitBreaker.recordFailure();
+                    }
+                    if (++attempts >= Constants.MAX_ATTEMPTS_PER_MESSAGE) {
+                        log.warn("Dropping a spilled EMF event after {} attempts.", attempts);
+                        spillQueue.remove();
+                        telemetry.recordDrops(1);
+                        backoff = null;
+                        attempts = 0;
+                    } else if (circuitBreaker == null || circuitBreaker.allowRequest()) {
+                        telemetry.recordRetry();
+                        backoff = backoff != null ? backoff : retryStrategyFactory.get();
+                        Thread.sleep(backoff.next());
+                    }
+                }
+            }
+            drained = true;
+        } catch (InterruptedException e) {
+            log.debug("Thread was interrupted while replaying spilled EMF events.");
+        } finally {
+            flushClient(client);
+            replayScheduled.set(false);
+        }
+        // an event may have been spilled after the last peek but before the flag was cleared
+        if (drained && !spillQueue.isEmpty()) {
+            scheduleReplay();
+        }
+    }
+
+    /**
+     * Send whatever the client has buffered. This is kept out of the retries of a send, since a
+     * client that failed to flush keeps its buffered events and would otherwise receive them again.
+     */
+    private void flushClient(SocketClient client) {
+        try {
+            client.flush();
+        } catch (Exception e) {
+            log.debug("Failed to flush buffered EMF events to the socket.", e);
+            if (circuitBreaker != null) {
+                circuitBreaker.recordFailure();
+            }
+        }
+    }
+
+    /**
+     * Record events that a client has accepted. A buffering client has only added them to its
+     * buffer, and reports them through {@link #recordWritten(int)} once they are written.
+     */
+    private void recordSent(SocketClient client, int events) {
+        if (!client.isBuffering()) {
+            recordWritten(events);
+        }
+    }
+
+    /** Record events written to the agent, which also resets the circuit breaker's failures. */
+    private void recordWritten(int events) {
+        telemetry.recordEvents(events);
+        if (circuitBreaker != null) {
+            circuitBreaker.recordSuccess();
+        }
+    }
+
+    private static int laneQueueDepth(int queueDepth, int laneCount) {
+        return Math.max(1, (queueDepth + laneCount - 1) / laneCount);
+    }
+
+    private int pendingTasks() {
+        int pending = 0;
+        for (Lane lane : lanes) {
+            // we add 1 because we assume that at least one task is running if the
+            // queue is blocked
+            pending += lane.executor.isTerminated() ? 0 : lane.queue.size() + 1;
+        }
+        return pending;
+    }
+
+    /** A connection to the agent together with the single sender thread that writes to it. */
+    private static class Lane {
         private final SocketClient client;
-        private final Supplier<RetryStrategy> retryStrategyFactory;
+        private final ResizableBlockingQueue<Runnable> queue;
+        private final ExecutorService executor;
+
+        Lane(
+                SocketClient client,
+                int queueDepth,
+                SinkTelemetry telemetry,
+                ThreadFactory threadFactory,
+                RejectedExecutionHandler overflowHandler) {
+            this.client = client;
+            this.client.setTelemetry(telemetry);
+            this.queue = new ResizableBlockingQueue<>(queueDepth);
+            this.executor =
+                    new ThreadPoolExecutor(
+                            1,
+                            1,
+                            0L,
+                            TimeUnit.MILLISECONDS,
+                            queue,
+                            threadFactory,
+                            overflowHandler);
+        }
+    }
+
+    private class Sender implements Runnable {
+        private final List<String> events;
+        private final Lane lane;
+        private final long enqueuedAtNanos = System.nanoTime();
+
+        Sender(List<String> events, Lane lane) {
+            this.events = events;
+            this.lane = lane;
+        }
 
         @Override
         public void run() {
-            if (!StringUtils.isNullOrEmpty(event)) {
+            if (!events.isEmpty()) {
                 try {
                     sendMessageForMaxAttempts();
                 } catch (InterruptedException e) {
@@ -130,17 +698,52 @@ public class AgentSink implements ISink {
             RetryStrategy backoff = null;
 
             for (int i = 0; i < Constants.MAX_ATTEMPTS_PER_MESSAGE; i++) {
+                if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+                    events.forEach(fallback);
+                    return;
+                }
                 try {
-                    client.sendMessage(event + "\n");
+                    if (events.size() == 1) {
+                        lane.client.sendMessage(events.get(0) + "\n");
+                    } else {
+                        lane.client.sendMessages(events);
+                    }
+                    long latency = System.nanoTime() - enqueuedAtNanos;
+                    for (int event = 0; event < events.size(); event++) {
+                        telemetry.recordLatency(latency);
+                    }
+                    recordSent(lane.client, events.size());
+                    // let clients that pack messages send once there is nothing left to add
+                    if (lane.queue.isEmpty()) {
+                        flushClient(lane.client);
+                    }
                     return;
                 } catch (Exception e) {
                     log.debug(
                             "Failed to write the message to the socket. Backing off and trying again.",
                             e);
+                    if (circuitBreaker != null) {
+                        circuitBreaker.recordFailure();
+                        if (!circuitBreaker.allowRequest()) {
+                            continue;
+                        }
+                    }
+                    telemetry.recordRetry();
                     backoff = backoff != null ? backoff : retryStrategyFactory.get();
                     Thread.sleep(backoff.next());
                 }
             }
+
+            if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+                // the last attempt opened the circuit
+                events.forEach(fallback);
+            } else {
+                telemetry.recordDrops(events.size());
+                log.debug(
+                        "Dropping {} EMF events after {} attempts.",
+                        events.size(),
+                        Constants.MAX_ATTEMPTS_PER_MESSAGE);
+            }
         }
     }
 }
@@ -0,0 +1,193 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.util.Threads;
+
+/**
+ * A circuit breaker guarding a connection to the agent. After a number of consecutive failures the
+ * circuit opens and callers should stop attempting to send. While open, a single background probe
+ * periodically checks the destination and closes the circuit once it is reachable again.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    /** The state of a circuit breaker. */
+    public enum State {
+        /** Requests flow normally. */
+        CLOSED,
+        /** Requests are short-circuited. */
+        OPEN,
+        /** A probe is currently checking whether the destination has recovered. */
+        HALF_OPEN
+    }
+
+    @Getter private final int failureThreshold;
+    @Getter private final long probeIntervalMillis;
+    private final BooleanSupplier probe;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong timesOpened = new AtomicLong();
+    private final AtomicBoolean probeScheduled = new AtomicBoolean();
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService prober;
+
+    /**
+     * @param failureThreshold the number of consecutive failures that opens the circuit
+     * @param probeIntervalMillis the delay between probes while the circuit is open
+     * @param probe a check that returns true when the destination is reachable again
+     */
+    public CircuitBreaker(int failureThreshold, long probeIntervalMillis, BooleanSupplier probe) {
+        this(failureThreshold, probeIntervalMillis, probe, null);
+    }
+
+    /**
+     * @param failureThreshold the number of consecutive failures that opens the circuit
+     * @param probeIntervalMillis the delay between probes while the circuit is open
+     * @param probe a check that returns true when the destination is reachable again
+     * @param threadFactory creates the thread that runs the probes, or null for a daemon thread
+     */
+    public CircuitBreaker(
+            int failureThreshold,
+            long probeIntervalMillis,
+            BooleanSupplier probe,
+            ThreadFactory threadFactory) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("The failure threshold must be at least 1.");
+        }
+        this.failureThreshold = failureThreshold;
+        this.probeIntervalMillis = probeIntervalMillis;
+        this.probe = probe;
+        this.prober =
+                Executors.newSingleThreadScheduledExecutor(
+                        threadFactory != null
+                                ? threadFactory
+                                : Threads.daemonThreadFactory("emf-circuit-breaker-probe"));
+    }
+
+    /** @return true if requests should be attempted, false if they should be short-circuited */
+    public boolean allowRequest() {
+        return state.get() == State.CLOSED;
+    }
+
+    /** @return the current state of the circuit */
+    public State getState() {
+        return state.get();
+    }
+
+    /** @return the number of failures recorded since the last success */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /** @return the number of times the circuit has opened since it was created */
+    public long getTimesOpened() {
+        return timesOpened.get();
+    }
+
+    /**
+     * Register a listener that is notified on every state transition.
+     *
+     * @param listener the listener to notify with the new state
+     */
+    public void addListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    /** Record a successful request. This resets the failure count and closes the circuit. */
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            notifyListeners(State.CLOSED);
+        }
+    }
+
+    /** Record a failed request. Opens the circuit once the failure threshold is reached. */
+    public void recordFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold
+                && state.compareAndSet(State.CLOSED, State.OPEN)) {
+            timesOpened.incrementAndGet();
+            notifyListeners(State.OPEN);
+            log.warn(
+                    "Circuit opened after {} consecutive failures. Probing every {} ms.",
+                    consecutiveFailures.get(),
+                    probeIntervalMillis);
+            scheduleProbe();
+        }
+    }
+
+    /** Stop the background probe. */
+    public void close() {
+        prober.shutdownNow();
+    }
+
+    private void scheduleProbe() {
+        if (prober.isShutdown() || !probeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        prober.schedule(this::runProbe, probeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runProbe() {
+        probeScheduled.set(false);
+        if (!state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return;
+        }
+        notifyListeners(State.HALF_OPEN);
+
+        boolean reachable;
+        try {
+            reachable = probe.getAsBoolean();
+        } catch (Exception e) {
+            log.debug("Circuit breaker probe failed: ", e);
+            reachable = false;
+        }
+
+        if (reachable) {
+            log.info("Circuit breaker probe succeeded. Closing the circuit.");
+            recordSuccess();
+        } else if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+            notifyListeners(State.OPEN);
+            scheduleProbe();
+        }
+    }
+
+    private void notifyListeners(State newState) {
+        for (Consumer<State> listener : listeners) {
+            try {
+                listener.accept(newState);
+            } catch (Exception e) {
+                log.debug("Circuit breaker listener threw an exception: ", e);
+            }
+        }
+    }
+}
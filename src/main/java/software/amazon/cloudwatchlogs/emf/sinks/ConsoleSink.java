@@ -17,34 +17,308 @@
 package software.amazon.cloudwatchlogs.emf.sinks;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import lombok.Builder;
-import lombok.NoArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.Constants;
+import software.amazon.cloudwatchlogs.emf.exception.EMFClientException;
 import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+import software.amazon.cloudwatchlogs.emf.util.Threads;
 
-/** Write log items to the console in JSON format. */
+/**
+ * Write log items to the console in JSON format.
+ *
+ * <p>By default every event is printed with {@link System#out}. In buffered mode, all events of a
+ * flush are encoded into a single UTF-8 buffer and written to file descriptor 1 with one channel
+ * write, bypassing the synchronized and auto-flushing {@link java.io.PrintStream}. Buffered writes
+ * can optionally be handed to a background writer thread with a bounded queue, in which case the
+ * oldest pending flush is dropped when the queue is full. Without a background writer, flushes are
+ * encoded into buffers that are reused by the next flush, so steady-state writes do not allocate.
+ */
 @Slf4j
-@Builder
-@NoArgsConstructor
 public class ConsoleSink implements ISink {
 
+    private final WritableByteChannel channel;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ExecutorService writer;
+
+    // reused by writes on the calling thread, guarded by writeLock
+    private final StringBuilder text = new StringBuilder();
+    private final CharsetEncoder encoder =
+            StandardCharsets.UTF_8
+                    .newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer bytes = ByteBuffer.allocate(0);
+
+    /** Throughput, latency, queue depth and drop counters for this sink. */
+    @Getter private final SinkTelemetry telemetry = new SinkTelemetry();
+
+    public ConsoleSink() {
+        this(false, 0, null);
+    }
+
+    /**
+     * @param buffered write each flush to stdout with a single write instead of printing every
+     *     event with {@link System#out}
+     * @param asyncQueueDepth the number of flushes a background writer may buffer. A value of 0
+     *     writes on the calling thread. Only used in buffered mode.
+     * @param threadFactory creates the background writer thread. Defaults to a daemon platform
+     *     thread.
+     */
+    @Builder
+    public ConsoleSink(boolean buffered, int asyncQueueDepth, ThreadFactory threadFactory) {
+        this(buffered ? stdoutChannel() : null, asyncQueueDepth, threadFactory);
+    }
+
+    ConsoleSink(WritableByteChannel channel, int asyncQueueDepth) {
+        this(channel, asyncQueueDepth, null);
+    }
+
+    ConsoleSink(WritableByteChannel channel, int asyncQueueDepth, ThreadFactory threadFactory) {
+        this.channel = channel;
+        if (channel != null && asyncQueueDepth > 0) {
+            this.writer =
+                    new ThreadPoolExecutor(
+                            1,
+                            1,
+                            0L,
+                            TimeUnit.MILLISECONDS,
+                            new LinkedBlockingQueue<>(asyncQueueDepth),
+                            threadFactory != null
+                                    ? threadFactory
+                                    : Threads.daemonThreadFactory("emf-console-writer"),
+                            (runnable, executor) -> {
+                                // discard the oldest flush to make room, like DiscardOldestPolicy
+                                if (!executor.isShutdown()) {
+                                    Runnable oldest = executor.getQueue().poll();
+                                    if (oldest instanceof PendingWrite) {
+                                        telemetry.recordDrops(((PendingWrite) oldest).events);
+                                    }
+                                    executor.execute(runnable);
+                                }
+                            });
+        } else {
+            this.writer = null;
+        }
+    }
+
     @Override
     public void accept(MetricsContext context) {
+        send(context, false);
+    }
+
+    /**
+     * Offer the context without displacing pending flushes. Only a background writer can be
+     * saturated, in which case the context is rejected while its queue is full.
+     */
+    @Override
+    public boolean offer(MetricsContext context) {
+        return send(context, true);
+    }
+
+    /** Start the background writer thread, if there is one. */
+    @Override
+    public void warmUp() {
+        if (writer != null) {
+            ((ThreadPoolExecutor) writer).prestartAllCoreThreads();
+        }
+    }
+
+    /** Wait for the background writer, if there is one, to write the pending flushes. */
+    @Override
+    public void beforeCheckpoint() {
+        if (writer != null
+                && !Threads.awaitIdle(
+                        (ThreadPoolExecutor) writer, Constants.CHECKPOINT_DRAIN_TIMEOUT_MILLIS)) {
+            log.warn("Pending console writes did not complete before the checkpoint.");
+        }
+    }
+
+    /** @return the occupancy of the background writer's queue, or 0 without a background writer */
+    @Override
+    public double getSaturation() {
+        if (writer == null) {
+            return 0;
+        }
+        BlockingQueue<Runnable> queue = ((ThreadPoolExecutor) writer).getQueue();
+        int queued = queue.size();
+        return (double) queued / (queued + queue.remainingCapacity());
+    }
+
+    /**
+     * Serialize the contexts together. In buffered mode, all of their events are encoded into one
+     * buffer and written to stdout with a single write.
+     */
+    @Override
+    public void acceptAll(Collection<MetricsContext> contexts) {
+        List<String> events = new ArrayList<>();
+        for (MetricsContext context : contexts) {
+            try {
+                events.addAll(context.serialize());
+            } catch (JsonProcessingException e) {
+                log.error("Failed to serialize a MetricsContext: ", e);
+            }
+        }
+        if (!events.isEmpty()) {
+            write(events, false);
+        }
+    }
 
+    private boolean send(MetricsContext context, boolean rejectWhenFull) {
+        List<String> events;
         try {
+            events = context.serialize();
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize a MetricsContext: ", e);
+            return true;
+        }
+        return write(events, rejectWhenFull);
+    }
+
+    private boolean write(List<String> events, boolean rejectWhenFull) {
+        if (channel == null) {
             // CHECKSTYLE OFF
-            for (String event : context.serialize()) {
+            for (String event : events) {
                 System.out.println(event);
             }
             // CHECKSTYLE ON
-        } catch (JsonProcessingException e) {
-            log.error("Failed to serialize a MetricsContext: ", e);
+            telemetry.recordEvents(events.size());
+            return true;
+        }
+
+        if (writer == null) {
+            long acceptedAtNanos = System.nanoTime();
+            writeLock.lock();
+            try {
+                writeToChannel(encodeReusingBuffers(events), events.size(), acceptedAtNanos);
+            } finally {
+                writeLock.unlock();
+            }
+            return true;
+        }
+        PendingWrite pending = new PendingWrite(encode(events), events.size());
+        if (writer.isShutdown()) {
+            throw new EMFClientException(
+                    "Attempted to write data to a sink that has been previously shutdown.");
         }
+        BlockingQueue<Runnable> queue = ((ThreadPoolExecutor) writer).getQueue();
+        if (rejectWhenFull && queue.remainingCapacity() == 0) {
+            return false;
+        }
+        writer.execute(pending);
+        telemetry.recordQueueDepth(queue.size());
+        return true;
     }
 
     @Override
     public CompletableFuture<Void> shutdown() {
-        return CompletableFuture.completedFuture(null);
+        if (writer == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        writer.shutdown();
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        while (!writer.awaitTermination(1000, TimeUnit.MILLISECONDS)) {
+                            log.debug("Waiting for pending console writes to complete.");
+                        }
+                    } catch (InterruptedException e) {
+                        log.warn("Thread terminated while awaiting shutdown.");
+                    }
+                    return null;
+                });
+    }
+
+    private static WritableByteChannel stdoutChannel() {
+        return new FileOutputStream(FileDescriptor.out).getChannel();
+    }
+
+    /** Encode the events as newline-delimited UTF-8. */
+    static ByteBuffer encode(List<String> events) {
+        StringBuilder builder = new StringBuilder();
+        for (String event : events) {
+            builder.append(event).append('\n');
+        }
+        return ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encode the events as newline-delimited UTF-8 into the reused buffer, which only grows when a
+     * flush is larger than all previous ones. Must be called with writeLock held.
+     */
+    private ByteBuffer encodeReusingBuffers(List<String> events) {
+        text.setLength(0);
+        for (String event : events) {
+            text.append(event).append('\n');
+        }
+        int maxLength = (int) Math.ceil(text.length() * (double) encoder.maxBytesPerChar());
+        if (bytes.capacity() < maxLength) {
+            bytes = ByteBuffer.allocate(maxLength);
+        }
+        bytes.clear();
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(text), bytes, true);
+        encoder.flush(bytes);
+        bytes.flip();
+        return bytes;
+    }
+
+    /** Write the buffer to the channel. Must be called with writeLock held. */
+    private void writeToChannel(ByteBuffer buffer, int events, long acceptedAtNanos) {
+        try {
+            int length = buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            telemetry.recordEvents(events);
+            telemetry.recordBytes(length);
+            telemetry.recordLatency(System.nanoTime() - acceptedAtNanos);
+        } catch (IOException e) {
+            telemetry.recordDrops(events);
+            log.error("Failed to write metrics to stdout: ", e);
+        }
+    }
+
+    /** The encoded events of a single flush. */
+    private class PendingWrite implements Runnable {
+        private final ByteBuffer buffer;
+        private final int events;
+        private final long acceptedAtNanos = System.nanoTime();
+
+        PendingWrite(ByteBuffer buffer, int events) {
+            this.buffer = buffer;
+            this.events = events;
+        }
+
+        @Override
+        public void run() {
+            writeLock.lock();
+            try {
+                writeToChannel(buffer, events, acceptedAtNanos);
+            } finally {
+                writeLock.unlock();
+            }
+        }
     }
 }
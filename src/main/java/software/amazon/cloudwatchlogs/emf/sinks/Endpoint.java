@@ -22,6 +22,7 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.util.StringUtils;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -30,6 +31,7 @@ public class Endpoint {
     public static final Endpoint DEFAULT_TCP_ENDPOINT =
             new Endpoint("127.0.0.1", 25888, Protocol.TCP);
 
+    /** The host to connect to, or the path of the socket file for Unix domain sockets. */
     @Getter @NonNull private final String host;
 
     @Getter private final int port;
@@ -46,6 +48,10 @@ public class Endpoint {
             return DEFAULT_TCP_ENDPOINT;
         }
 
+        if ("unix".equalsIgnoreCase(parsedURI.getScheme())) {
+            return fromUnixURI(parsedURI);
+        }
+
         if (parsedURI.getHost() == null
                 || parsedURI.getPort() < 0
                 || parsedURI.getScheme() == null) {
@@ -67,7 +73,24 @@ public class Endpoint {
         return new Endpoint(parsedURI.getHost(), parsedURI.getPort(), protocol);
     }
 
+    private static Endpoint fromUnixURI(URI parsedURI) {
+        if (StringUtils.isNullOrEmpty(parsedURI.getPath())) {
+            return DEFAULT_TCP_ENDPOINT;
+        }
+        if (!UnixSocketClient.isSupported()) {
+            log.warn(
+                    "Unix domain sockets are not supported by this Java runtime. "
+                            + "Would use default endpoint: {}",
+                    DEFAULT_TCP_ENDPOINT);
+            return DEFAULT_TCP_ENDPOINT;
+        }
+        return new Endpoint(parsedURI.getPath(), 0, Protocol.UNIX);
+    }
+
     public String toString() {
+        if (protocol == Protocol.UNIX) {
+            return "unix://" + host;
+        }
         return protocol.toString().toLowerCase() + "://" + host + ":" + port;
     }
 }
@@ -0,0 +1,295 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.Constants;
+
+/**
+ * A client that sends events to the forward input of Fluent Bit or Fluentd using the Fluent
+ * Forward protocol. Each JSON event is transcoded into a MessagePack record, and records are packed
+ * into a single PackedForward message that is sent once it reaches {@code maxChunkSize} bytes or
+ * when {@link #flush()} is called. The receiver gets framed, pre-parsed records instead of having
+ * to scan for newlines and parse JSON.
+ *
+ * <p>With acknowledgements enabled, every message carries a chunk id and only counts as delivered
+ * once the receiver echoes the id back. A message that could not be delivered is kept and sent
+ * again, with the same chunk id, on the next flush.
+ */
+@Slf4j
+public class FluentForwardClient implements SocketClient {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Endpoint endpoint;
+    private final String tag;
+    private final boolean requireAck;
+    private final int maxChunkSize;
+    private final int ackTimeoutMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    // the [time, record] entries of the message being packed
+    private final MessagePackWriter entries;
+    private final MessagePackWriter envelope = new MessagePackWriter(64);
+    private int entryCount;
+    // kept across failed attempts, so that a receiver can tell that a message is sent again
+    private String chunkId;
+    private Socket socket;
+    private boolean shouldConnect = true;
+    private volatile SinkTelemetry telemetry = new SinkTelemetry();
+    private volatile IntConsumer writeListener = messages -> {};
+
+    public FluentForwardClient(Endpoint endpoint) {
+        this(endpoint, Constants.DEFAULT_FLUENT_TAG, false);
+    }
+
+    /**
+     * @param endpoint the host and port of the forward input
+     * @param tag the tag of the records, which Fluent Bit matches outputs against
+     * @param requireAck whether to wait for the receiver to acknowledge every message
+     */
+    public FluentForwardClient(Endpoint endpoint, String tag, boolean requireAck) {
+        this(
+                endpoint,
+                tag,
+                requireAck,
+                Constants.DEFAULT_FLUENT_MAX_CHUNK_SIZE,
+                Constants.DEFAULT_FLUENT_ACK_TIMEOUT_MILLIS);
+    }
+
+    FluentForwardClient(
+            Endpoint endpoint,
+            String tag,
+            boolean requireAck,
+            int maxChunkSize,
+            int ackTimeoutMillis) {
+        this.endpoint = endpoint;
+        this.tag = tag;
+        this.requireAck = requireAck;
+        this.maxChunkSize = maxChunkSize;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+        this.entries = new MessagePackWriter(Math.min(maxChunkSize, 64 * 1024));
+    }
+
+    /**
+     * Add the event to the message being packed. If the message is already full, it is sent
+     * first, and a failure to send it is thrown without adding the event.
+     */
+    @Override
+    public void sendMessage(String message) {
+        lock.lock();
+        try {
+            if (entryCount > 0 && entries.size() >= maxChunkSize) {
+                sendPending();
+            }
+            append(message);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sendMessages(List<String> messages) {
+        for (String message : messages) {
+            sendMessage(message);
+        }
+    }
+
+    /** Send the message being packed. A failed message is kept and the failure is thrown. */
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            if (entryCount > 0) {
+                sendPending();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setTelemetry(SinkTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /** Events are packed into a message that is only sent once it is full or flushed. */
+    @Override
+    public boolean isBuffering() {
+        return true;
+    }
+
+    @Override
+    public void setWriteListener(IntConsumer listener) {
+        this.writeListener = listener;
+    }
+
+    @Override
+    public boolean probe() {
+        lock.lock();
+        try {
+            if (socket == null || socket.isClosed() || shouldConnect) {
+                try {
+                    connect();
+                } catch (RuntimeException e) {
+                    log.debug("Probe failed to connect to {}", endpoint, e);
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (entryCount > 0) {
+                try {
+                    sendPending();
+                } catch (RuntimeException e) {
+                    log.warn("Dropping {} EMF events that could not be sent on close.", entryCount);
+                    telemetry.recordDrops(entryCount);
+                }
+            }
+            if (socket != null) {
+                socket.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(String message) {
+        JsonNode record;
+        try {
+            record = objectMapper.readTree(message);
+        } catch (IOException e) {
+            log.warn("Dropping an EMF event that is not valid JSON.", e);
+            telemetry.recordDrops(1);
+            return;
+        }
+        if (record == null || !record.isObject()) {
+            log.warn("Dropping an EMF event that is not a JSON object.");
+            telemetry.recordDrops(1);
+            return;
+        }
+        entries.packArrayHeader(2).packEventTime(eventTimeMillis(record)).packJson(record);
+        entryCount++;
+    }
+
+    /** @return the timestamp of the EMF metadata, or the current time if the event has none */
+    private static long eventTimeMillis(JsonNode record) {
+        JsonNode timestamp = record.path("_aws").path("Timestamp");
+        return timestamp.isNumber() ? timestamp.asLong() : System.currentTimeMillis();
+    }
+
+    private void connect() {
+        try {
+            socket = createSocket();
+            socket.connect(
+                    new InetSocketAddress(endpoint.getHost(), endpoint.getPort()),
+                    Constants.DEFAULT_SOCKET_CONNECT_TIMEOUT_MILLIS);
+            socket.setSoTimeout(ackTimeoutMillis);
+            shouldConnect = false;
+            telemetry.recordReconnect();
+        } catch (Exception e) {
+            shouldConnect = true;
+            throw new RuntimeException("Failed to connect to the socket.", e);
+        }
+    }
+
+    protected Socket createSocket() {
+        return new Socket();
+    }
+
+    /** Write [tag, entries, option] with the entries as a PackedForward binary. */
+    private void sendPending() {
+        if (socket == null || socket.isClosed() || shouldConnect) {
+            connect();
+        }
+        if (requireAck && chunkId == null) {
+            chunkId = newChunkId();
+        }
+
+        envelope.reset();
+        envelope.packArrayHeader(3).packString(tag).packBinaryHeader(entries.size());
+        int headerSize = envelope.size();
+        envelope.packMapHeader(requireAck ? 2 : 1).packString("size").packLong(entryCount);
+        if (requireAck) {
+            envelope.packString("chunk").packString(chunkId);
+        }
+        byte[] framing = envelope.toByteArray();
+
+        try {
+            OutputStream os = socket.getOutputStream();
+            os.write(framing, 0, headerSize);
+            entries.writeTo(os);
+            os.write(framing, headerSize, framing.length - headerSize);
+            os.flush();
+            if (requireAck) {
+                awaitAck();
+            }
+        } catch (IOException e) {
+            shouldConnect = true;
+            closeQuietly();
+            throw new RuntimeException("Failed to send a Fluent Forward message.", e);
+        }
+
+        telemetry.recordBytes(framing.length + entries.size());
+        writeListener.accept(entryCount);
+        entries.reset();
+        entryCount = 0;
+        chunkId = null;
+    }
+
+    private void awaitAck() throws IOException {
+        Object response = new MessagePackReader(socket.getInputStream()).readValue();
+        if (!(response instanceof Map) || !chunkId.equals(((Map<?, ?>) response).get("ack"))) {
+            throw new IOException("Unexpected Fluent Forward acknowledgement: " + response);
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("Failed to close the socket to {}", endpoint, e);
+        }
+    }
+
+    private static String newChunkId() {
+        UUID uuid = UUID.randomUUID();
+        ByteBuffer bytes = ByteBuffer.allocate(16);
+        bytes.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        return Base64.getEncoder().encodeToString(bytes.array());
+    }
+}
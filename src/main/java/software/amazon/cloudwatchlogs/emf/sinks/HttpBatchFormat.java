@@ -0,0 +1,44 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import lombok.Getter;
+
+/** Determines how an {@link HttpSink} encodes a batch of events into a request body. */
+public enum HttpBatchFormat {
+    /** The events as the elements of a single JSON array. */
+    JSON_ARRAY("application/json"),
+
+    /** The events as newline-delimited JSON, one event per line. */
+    NDJSON("application/x-ndjson");
+
+    @Getter private final String contentType;
+
+    HttpBatchFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public static HttpBatchFormat getBatchFormat(String value) {
+        for (HttpBatchFormat format : values()) {
+            if (format.toString().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+}
@@ -0,0 +1,592 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.Constants;
+import software.amazon.cloudwatchlogs.emf.exception.EMFClientException;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+import software.amazon.cloudwatchlogs.emf.sinks.retry.FibonacciRetryStrategy;
+import software.amazon.cloudwatchlogs.emf.sinks.retry.RetryStrategy;
+import software.amazon.cloudwatchlogs.emf.util.StringUtils;
+import software.amazon.cloudwatchlogs.emf.util.Threads;
+
+/**
+ * A sink that POSTs batches of events to an HTTP input, such as the http input of Fluent Bit.
+ * Events are collected into a batch until it reaches {@code maxBatchBytes} or {@code
+ * maxBatchEvents}, or until {@code lingerMillis} have passed since its first event. Each batch is
+ * then sent as a single request, optionally gzip compressed.
+ *
+ * <p>Up to {@code maxInFlightRequests} batches are sent concurrently, each from its own sender
+ * thread. Responses are read to the end, so that the JDK keeps the connections alive and reuses
+ * them for the following requests. Requests that fail with an I/O error, a 429 or a 5xx status
+ * are retried with backoff, other rejected requests are dropped.
+ *
+ * <p>The batch limits, the linger, the queue depth and the overflow policy can be changed while the
+ * sink is running. Changes apply to the batches collected afterwards.
+ */
+@Slf4j
+public class HttpSink implements TunableSink {
+    private final String logGroupName;
+    private final String logStreamName;
+
+    @Getter private final URL url;
+    @Getter private final HttpBatchFormat format;
+    @Getter private final boolean gzip;
+    @Getter private volatile int maxBatchBytes;
+    @Getter private volatile int maxBatchEvents;
+    @Getter private volatile long lingerMillis;
+
+    /** Which batches are dropped when the queue of batches waiting to be sent is full. */
+    @Getter private volatile OverflowPolicy overflowPolicy;
+
+    private final int timeoutMillis;
+    private final Supplier<RetryStrategy> retryStrategyFactory;
+
+    private final ResizableBlockingQueue<Runnable> queue;
+    private final ThreadPoolExecutor senders;
+    // created once the linger is first set, guarded by the lock
+    private ScheduledExecutorService lingerTimer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // the batch currently being collected
+    private List<String> pending = new ArrayList<>();
+    private long pendingBytes;
+    private ScheduledFuture<?> lingerTask;
+
+    /** Throughput, latency, queue depth, retry and drop counters for this sink. */
+    @Getter private final SinkTelemetry telemetry = new SinkTelemetry();
+
+    private final long telemetryIntervalMillis;
+    // reports the telemetry through this sink, null while reporting is disabled or stopped
+    private SinkTelemetryReporter telemetryReporter;
+
+    /**
+     * @param url the URL the batches are POSTed to
+     * @param logGroupName the log group to write to, may be empty
+     * @param logStreamName the log stream to write to, may be empty
+     * @param format how a batch is encoded, defaults to {@link HttpBatchFormat#JSON_ARRAY}
+     * @param gzip whether to gzip compress the request bodies
+     * @param maxBatchBytes the approximate size in bytes after which a batch is sent
+     * @param maxBatchEvents the number of events after which a batch is sent
+     * @param lingerMillis how long a batch waits for more events after its first one. A value of 0
+     *     sends the events of every flush as their own batch.
+     * @param maxInFlightRequests the number of requests sent concurrently. Defaults to 1.
+     * @param asyncQueueDepth the number of batches to buffer while the destination is unavailable
+     * @param retryStrategy a factory for the backoff used between send attempts
+     * @param timeoutMillis the connect and read timeout of each request
+     * @param threadFactory creates the sender threads. Defaults to platform threads.
+     * @param overflowPolicy which batches are dropped when the queue is full, defaults to {@link
+     *     OverflowPolicy#DROP_OLDEST}
+     * @param telemetryIntervalMillis the interval at which the telemetry is reported as an EMF
+     *     event through this sink, until it is shut down. A value of 0 disables the reporting.
+     */
+    @Builder
+    public HttpSink(
+            @NonNull URL url,
+            String logGroupName,
+            String logStreamName,
+            HttpBatchFormat format,
+            boolean gzip,
+            int maxBatchBytes,
+            int maxBatchEvents,
+            long lingerMillis,
+            int maxInFlightRequests,
+            int asyncQueueDepth,
+            Supplier<RetryStrategy> retryStrategy,
+            int timeoutMillis,
+            ThreadFactory threadFactory,
+            OverflowPolicy overflowPolicy,
+            long telemetryIntervalMillis) {
+        this.url = url;
+        this.logGroupName = logGroupName;
+        this.logStreamName = logStreamName;
+        this.format = format != null ? format : HttpBatchFormat.JSON_ARRAY;
+        this.gzip = gzip;
+        this.maxBatchBytes =
+                maxBatchBytes > 0 ? maxBatchBytes : Constants.DEFAULT_HTTP_MAX_BATCH_BYTES;
+        this.maxBatchEvents =
+                maxBatchEvents > 0 ? maxBatchEvents : Constants.DEFAULT_HTTP_MAX_BATCH_EVENTS;
+        this.lingerMillis = Math.max(0, lingerMillis);
+        this.overflowPolicy =
+                overflowPolicy != null ? overflowPolicy : OverflowPolicy.DROP_OLDEST;
+        this.timeoutMillis =
+                timeoutMillis > 0 ? timeoutMillis : Constants.DEFAULT_HTTP_TIMEOUT_MILLIS;
+        this.retryStrategyFactory =
+                retryStrategy != null
+                        ? retryStrategy
+                        : () ->
+                                new FibonacciRetryStrategy(
+                                        Constants.MIN_BACKOFF_MILLIS,
+                                        Constants.MAX_BACKOFF_MILLIS,
+                                        Constants.MAX_BACKOFF_JITTER);
+
+        int inFlight = Math.max(1, maxInFlightRequests);
+        this.queue =
+                new ResizableBlockingQueue<>(
+                        asyncQueueDepth > 0
+                                ? asyncQueueDepth
+                                : Constants.DEFAULT_ASYNC_BUFFER_SIZE);
+        this.senders =
+                new ThreadPoolExecutor(
+                        inFlight,
+                        inFlight,
+                        0L,
+                        TimeUnit.MILLISECONDS,
+                        queue,
+                        threadFactory != null ? threadFactory : Executors.defaultThreadFactory(),
+                        new QueueOverflowHandler(
+                                this::getOverflowPolicy,
+                                runnable ->
+                                        runnable instanceof Batch
+                                                ? ((Batch) runnable).events.size()
+                                                : 0,
+                                telemetry));
+        if (this.lingerMillis > 0) {
+            this.lingerTimer = createLingerTimer();
+        }
+        this.telemetryIntervalMillis = telemetryIntervalMillis;
+        startTelemetryReporter();
+    }
+
+    /** @param maxBatchBytes the approximate size in bytes after which a batch is sent */
+    public void setMaxBatchBytes(int maxBatchBytes) {
+        if (maxBatchBytes < 1) {
+            throw new IllegalArgumentException("The batch size must be positive.");
+        }
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    /** @param maxBatchEvents the number of events after which a batch is sent */
+    public void setMaxBatchEvents(int maxBatchEvents) {
+        if (maxBatchEvents < 1) {
+            throw new IllegalArgumentException("The number of events must be positive.");
+        }
+        this.maxBatchEvents = maxBatchEvents;
+    }
+
+    /**
+     * Change how long a batch waits for more events after its first one, which bounds how long
+     * an event is held before it is sent. A batch that is already lingering is sent at the time
+     * it was scheduled for.
+     *
+     * @param lingerMillis the linger in milliseconds. A value of 0 sends the events of every
+     *     flush as their own batch, and sends the batch being collected right away.
+     */
+    public void setLingerMillis(long lingerMillis) {
+        if (lingerMillis < 0) {
+            throw new IllegalArgumentException("The linger must not be negative.");
+        }
+        lock.lock();
+        try {
+            checkNotShutdown();
+            this.lingerMillis = lingerMillis;
+            if (lingerMillis == 0) {
+                seal();
+            } else if (lingerTimer == null) {
+                lingerTimer = createLingerTimer();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Change the number of batches buffered while the destination is unavailable. Batches that
+     * are already queued are kept when the depth is reduced.
+     *
+     * @param asyncQueueDepth the number of batches to buffer, must be positive
+     */
+    @Override
+    public void setAsyncQueueDepth(int asyncQueueDepth) {
+        queue.setCapacity(asyncQueueDepth);
+    }
+
+    /** @param overflowPolicy which batches are dropped when the queue is full */
+    @Override
+    public void setOverflowPolicy(@NonNull OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public void accept(MetricsContext context) {
+        List<String> events = serialize(context);
+        if (events != null) {
+            add(events);
+        }
+    }
+
+    /** Add the events of all contexts to the current batch at once. */
+    @Override
+    public void acceptAll(Collection<MetricsContext> contexts) {
+        List<String> events = new ArrayList<>();
+        for (MetricsContext context : contexts) {
+            List<String> serialized = serialize(context);
+            if (serialized != null) {
+                events.addAll(serialized);
+            }
+        }
+        add(events);
+    }
+
+    /**
+     * Offer the context without displacing queued batches. The context is rejected while the
+     * queue of batches waiting to be sent is full.
+     */
+    @Override
+    public boolean offer(MetricsContext context) {
+        checkNotShutdown();
+        if (queue.remainingCapacity() == 0) {
+            return false;
+        }
+        accept(context);
+        return true;
+    }
+
+    /** @return the occupancy of the queue of batches waiting to be sent */
+    @Override
+    public double getSaturation() {
+        return Math.min(1, (double) queue.size() / queue.getCapacity());
+    }
+
+    /** Start the sender threads, so that the first flush does not pay for them. */
+    @Override
+    public void warmUp() {
+        senders.prestartAllCoreThreads();
+    }
+
+    /**
+     * Stop reporting telemetry, send the batch being collected and wait for the queued batches to
+     * be sent. Batches that are still queued after {@link
+     * Constants#CHECKPOINT_DRAIN_TIMEOUT_MILLIS} are sent after the restore.
+     */
+    @Override
+    public void beforeCheckpoint() {
+        stopTelemetryReporter();
+        lock.lock();
+        try {
+            if (!senders.isShutdown()) {
+                seal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!Threads.awaitIdle(senders, Constants.CHECKPOINT_DRAIN_TIMEOUT_MILLIS)) {
+            log.warn("Queued EMF batches were not sent before the checkpoint.");
+        }
+    }
+
+    /** Resume reporting telemetry. */
+    @Override
+    public void afterRestore() {
+        startTelemetryReporter();
+    }
+
+    /** Send the batch being collected and wait for all batches to be sent. */
+    @Override
+    public CompletableFuture<Void> shutdown() {
+        lock.lock();
+        try {
+            seal();
+            senders.shutdown();
+            if (lingerTimer != null) {
+                lingerTimer.shutdownNow();
+            }
+        } finally {
+            lock.unlock();
+        }
+        stopTelemetryReporter();
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        while (!senders.awaitTermination(1000, TimeUnit.MILLISECONDS)) {
+                            log.debug(
+                                    "Waiting for graceful shutdown to complete. {} batches queued.",
+                                    queue.size());
+                        }
+                    } catch (InterruptedException e) {
+                        log.warn("Thread terminated while awaiting shutdown.");
+                    }
+                    return null;
+                });
+    }
+
+    private synchronized void startTelemetryReporter() {
+        if (telemetryIntervalMillis > 0 && telemetryReporter == null && !senders.isShutdown()) {
+            telemetryReporter =
+                    new SinkTelemetryReporter(
+                            telemetry,
+                            this,
+                            Constants.TELEMETRY_NAMESPACE,
+                            telemetryIntervalMillis);
+        }
+    }
+
+    private synchronized void stopTelemetryReporter() {
+        if (telemetryReporter != null) {
+            telemetryReporter.close();
+            telemetryReporter = null;
+        }
+    }
+
+    private void checkNotShutdown() {
+        if (senders.isShutdown()) {
+            throw new EMFClientException(
+                    "Attempted to write data to a sink that has been previously shutdown.");
+        }
+    }
+
+    /** @return the serialized events of the context, or null if it could not be serialized */
+    private List<String> serialize(MetricsContext context) {
+        if (!StringUtils.isNullOrEmpty(logGroupName)) {
+            context.putMetadata("LogGroupName", logGroupName);
+        }
+
+        if (!StringUtils.isNullOrEmpty(logStreamName)) {
+            context.putMetadata("LogStreamName", logStreamName);
+        }
+
+        try {
+            return context.serialize();
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize the metrics with the exception: ", e);
+            return null;
+        }
+    }
+
+    private void add(List<String> events) {
+        lock.lock();
+        try {
+            checkNotShutdown();
+            for (String event : events) {
+                // the length in chars is close enough to the size of the mostly ASCII events
+                int size = event.length() + 1;
+                if (!pending.isEmpty()
+                        && (pendingBytes + size > maxBatchBytes
+                                || pending.size() >= maxBatchEvents)) {
+                    seal();
+                }
+                pending.add(event);
+                pendingBytes += size;
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (lingerMillis == 0 || pendingBytes >= maxBatchBytes) {
+                seal();
+            } else if (lingerTask == null) {
+                lingerTask =
+                        lingerTimer.schedule(
+                                this::sealAfterLinger, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ScheduledExecutorService createLingerTimer() {
+        return Executors.newSingleThreadScheduledExecutor(
+                Threads.daemonThreadFactory("emf-http-linger"));
+    }
+
+    private void sealAfterLinger() {
+        lock.lock();
+        try {
+            lingerTask = null;
+            if (!senders.isShutdown()) {
+                seal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Hand the batch being collected to the senders and start a new one. */
+    private void seal() {
+        if (lingerTask != null) {
+            lingerTask.cancel(false);
+            lingerTask = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        senders.execute(new Batch(pending));
+        telemetry.recordQueueDepth(queue.size());
+        pending = new ArrayList<>();
+        pendingBytes = 0;
+    }
+
+    private byte[] encode(List<String> events) throws IOException {
+        int length = 2;
+        for (String event : events) {
+            length += event.length() + 1;
+        }
+        StringBuilder builder = new StringBuilder(length);
+        if (format == HttpBatchFormat.JSON_ARRAY) {
+            builder.append('[');
+            for (int i = 0; i < events.size(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append(events.get(i));
+            }
+            builder.append(']');
+        } else {
+            for (String event : events) {
+                builder.append(event).append('\n');
+            }
+        }
+        byte[] body = builder.toString().getBytes(StandardCharsets.UTF_8);
+        if (!gzip) {
+            return body;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    /** @return the status code of the response */
+    private int post(byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setFixedLengthStreamingMode(body.length);
+        connection.setRequestProperty("Content-Type", format.getContentType());
+        if (gzip) {
+            connection.setRequestProperty("Content-Encoding", "gzip");
+        }
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int status = connection.getResponseCode();
+        // read the response to the end, otherwise the connection cannot be reused
+        drain(status >= 400 ? connection.getErrorStream() : connection.getInputStream());
+        return status;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[1024];
+            while (stream.read(buffer) >= 0) {
+                // discard
+            }
+        }
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    /** The events of a single request. */
+    private class Batch implements Runnable {
+        private final List<String> events;
+        private final long enqueuedAtNanos = System.nanoTime();
+
+        Batch(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void run() {
+            try {
+                sendForMaxAttempts();
+            } catch (InterruptedException e) {
+                log.warn("Thread was interrupted while sending EMF events.");
+            }
+        }
+
+        private void sendForMaxAttempts() throws InterruptedException {
+            byte[] body;
+            try {
+                body = encode(events);
+            } catch (IOException e) {
+                log.error("Failed to encode a batch of EMF events: ", e);
+                telemetry.recordDrops(events.size());
+                return;
+            }
+
+            RetryStrategy backoff = null;
+            for (int i = 0; i < Constants.MAX_ATTEMPTS_PER_MESSAGE; i++) {
+                try {
+                    int status = post(body);
+                    if (status >= 200 && status < 300) {
+                        long latency = System.nanoTime() - enqueuedAtNanos;
+                        telemetry.recordEvents(events.size());
+                        telemetry.recordBytes(body.length);
+                        for (int event = 0; event < events.size(); event++) {
+                            telemetry.recordLatency(latency);
+                        }
+                        return;
+                    }
+                    if (!isRetryable(status)) {
+                        telemetry.recordDrops(events.size());
+                        log.warn(
+                                "Dropping {} EMF events rejected by {} with status {}.",
+                                events.size(),
+                                url,
+                                status);
+                        return;
+                    }
+                    log.debug("Request to {} failed with status {}. Backing off.", url, status);
+                } catch (IOException e) {
+                    log.debug("Failed to send EMF events to {}. Backing off.", url, e);
+                }
+                telemetry.recordRetry();
+                backoff = backoff != null ? backoff : retryStrategyFactory.get();
+                Thread.sleep(backoff.next());
+            }
+
+            telemetry.recordDrops(events.size());
+            log.debug(
+                    "Dropping {} EMF events after {} attempts.",
+                    events.size(),
+                    Constants.MAX_ATTEMPTS_PER_MESSAGE);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package software.amazon.cloudwatchlogs.emf.sinks;
 
+import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
 import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
 
@@ -29,6 +30,69 @@ public interface ISink {
      */
     void accept(MetricsContext context);
 
+    /**
+     * Accept several MetricsContexts at once, for example from independent loggers flushed
+     * together. Sinks that write in batches serialize the contexts together and hand them off in
+     * one write; others accept them one by one.
+     *
+     * @param contexts the MetricsContexts
+     */
+    default void acceptAll(Collection<MetricsContext> contexts) {
+        for (MetricsContext context : contexts) {
+            accept(context);
+        }
+    }
+
+    /**
+     * Offer MetricsContext to the sink without displacing events that were accepted earlier. Sinks
+     * that do not buffer accept every context. A rejected context has not been delivered anywhere,
+     * so the caller may offer it again later without duplicating it.
+     *
+     * @param context MetricsContext
+     * @return true if the context was accepted, false if it was rejected because the sink is
+     *     saturated
+     */
+    default boolean offer(MetricsContext context) {
+        accept(context);
+        return true;
+    }
+
+    /**
+     * Get how much of the sink's buffering capacity is in use. Sinks that do not buffer are never
+     * saturated.
+     *
+     * @return a value between 0, when the sink is idle, and 1, when new events would be dropped or
+     *     rejected
+     */
+    default double getSaturation() {
+        return 0;
+    }
+
+    /** @return true if new events would currently be dropped or rejected by the sink */
+    default boolean isSaturated() {
+        return getSaturation() >= 1;
+    }
+
+    /**
+     * Do the expensive one-time setup of the sink ahead of the first flush, such as starting
+     * writer threads and connecting to the destination. This may block, so it should not be
+     * called on a latency sensitive thread. Sinks without such setup do nothing.
+     */
+    default void warmUp() {}
+
+    /**
+     * Write out the events the sink has buffered and release its connections and open files, ahead
+     * of a checkpoint of the process such as a Lambda SnapStart snapshot. The sink stays usable
+     * and reconnects when it is next written to. Sinks without buffers or connections do nothing.
+     */
+    default void beforeCheckpoint() {}
+
+    /**
+     * Re-establish the connections released by {@link #beforeCheckpoint()} once the process has
+     * been restored from a checkpoint, so that the first flush does not pay for them.
+     */
+    default void afterRestore() {}
+
     /**
      * Shutdown the sink. The returned {@link CompletableFuture} will be completed when all queued
      * events have been flushed. After this is called, no more metrics can be sent through this sink
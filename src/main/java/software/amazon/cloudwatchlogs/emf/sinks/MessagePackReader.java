@@ -0,0 +1,153 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal MessagePack decoder for the values written by {@link MessagePackWriter} and the
+ * acknowledgements sent by Fluent Forward servers. Maps are decoded as {@link Map}, arrays as
+ * {@link List}, integers as {@link Long}, binaries as byte arrays and Fluent EventTimes as {@link
+ * Instant}.
+ */
+class MessagePackReader {
+    private final DataInputStream in;
+
+    MessagePackReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    /**
+     * @return the next value in the stream
+     * @throws IOException if the stream ends or holds a type that is not supported
+     */
+    Object readValue() throws IOException {
+        int type = in.readUnsignedByte();
+        if (type <= 0x7f) {
+            return (long) type;
+        } else if (type >= 0xe0) {
+            return (long) (byte) type;
+        } else if ((type & 0xf0) == 0x80) {
+            return readMap(type & 0x0f);
+        } else if ((type & 0xf0) == 0x90) {
+            return readArray(type & 0x0f);
+        } else if ((type & 0xe0) == 0xa0) {
+            return readString(type & 0x1f);
+        }
+
+        switch (type) {
+            case 0xc0:
+                return null;
+            case 0xc2:
+                return false;
+            case 0xc3:
+                return true;
+            case 0xc4:
+                return readBytes(in.readUnsignedByte());
+            case 0xc5:
+                return readBytes(in.readUnsignedShort());
+            case 0xc6:
+                return readBytes(in.readInt());
+            case 0xca:
+                return (double) in.readFloat();
+            case 0xcb:
+                return in.readDouble();
+            case 0xcc:
+                return (long) in.readUnsignedByte();
+            case 0xcd:
+                return (long) in.readUnsignedShort();
+            case 0xce:
+                return in.readInt() & 0xffffffffL;
+            case 0xcf:
+            case 0xd3:
+                return in.readLong();
+            case 0xd0:
+                return (long) in.readByte();
+            case 0xd1:
+                return (long) in.readShort();
+            case 0xd2:
+                return (long) in.readInt();
+            case 0xd7:
+                return readEventTime();
+            case 0xd9:
+                return readString(in.readUnsignedByte());
+            case 0xda:
+                return readString(in.readUnsignedShort());
+            case 0xdb:
+                return readString(in.readInt());
+            case 0xdc:
+                return readArray(in.readUnsignedShort());
+            case 0xdd:
+                return readArray(in.readInt());
+            case 0xde:
+                return readMap(in.readUnsignedShort());
+            case 0xdf:
+                return readMap(in.readInt());
+            default:
+                throw new IOException(
+                        "Unsupported MessagePack type: 0x" + Integer.toHexString(type));
+        }
+    }
+
+    private Instant readEventTime() throws IOException {
+        int extensionType = in.readByte();
+        if (extensionType != 0) {
+            throw new IOException("Unsupported MessagePack extension type: " + extensionType);
+        }
+        long seconds = in.readInt() & 0xffffffffL;
+        long nanos = in.readInt() & 0xffffffffL;
+        return Instant.ofEpochSecond(seconds, nanos);
+    }
+
+    private Map<Object, Object> readMap(int length) throws IOException {
+        Map<Object, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < length; i++) {
+            map.put(readValue(), readValue());
+        }
+        return map;
+    }
+
+    private List<Object> readArray(int length) throws IOException {
+        List<Object> list = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            list.add(readValue());
+        }
+        return list;
+    }
+
+    private String readString(int length) throws IOException {
+        return new String(readBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("Invalid MessagePack length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
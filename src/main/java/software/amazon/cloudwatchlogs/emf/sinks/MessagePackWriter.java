@@ -0,0 +1,227 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A minimal MessagePack encoder that appends values to a growable byte buffer. It only supports
+ * the types needed to write Fluent Forward messages and to transcode JSON documents.
+ */
+class MessagePackWriter {
+    private static final int EVENT_TIME_TYPE = 0;
+
+    private byte[] buffer;
+    private int size;
+
+    MessagePackWriter(int initialCapacity) {
+        buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /** @return the number of bytes written so far */
+    int size() {
+        return size;
+    }
+
+    /** Discard everything written so far, keeping the allocated buffer. */
+    void reset() {
+        size = 0;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    MessagePackWriter packNil() {
+        return put(0xc0);
+    }
+
+    MessagePackWriter packBoolean(boolean value) {
+        return put(value ? 0xc3 : 0xc2);
+    }
+
+    MessagePackWriter packLong(long value) {
+        if (value >= 0) {
+            if (value < 128) {
+                return put((int) value);
+            } else if (value < (1 << 8)) {
+                return put(0xcc).put((int) value);
+            } else if (value < (1 << 16)) {
+                return put(0xcd).putShort((int) value);
+            } else if (value < (1L << 32)) {
+                return put(0xce).putInt((int) value);
+            }
+            return put(0xcf).putLong(value);
+        }
+        if (value >= -32) {
+            return put((int) value & 0xff);
+        } else if (value >= Byte.MIN_VALUE) {
+            return put(0xd0).put((int) value);
+        } else if (value >= Short.MIN_VALUE) {
+            return put(0xd1).putShort((int) value);
+        } else if (value >= Integer.MIN_VALUE) {
+            return put(0xd2).putInt((int) value);
+        }
+        return put(0xd3).putLong(value);
+    }
+
+    MessagePackWriter packDouble(double value) {
+        return put(0xcb).putLong(Double.doubleToLongBits(value));
+    }
+
+    MessagePackWriter packString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        if (length < 32) {
+            put(0xa0 | length);
+        } else if (length < (1 << 8)) {
+            put(0xd9).put(length);
+        } else if (length < (1 << 16)) {
+            put(0xda).putShort(length);
+        } else {
+            put(0xdb).putInt(length);
+        }
+        return putBytes(bytes, 0, length);
+    }
+
+    MessagePackWriter packBinary(byte[] bytes, int offset, int length) {
+        return packBinaryHeader(length).putBytes(bytes, offset, length);
+    }
+
+    /** Write the header of a binary whose bytes are written separately. */
+    MessagePackWriter packBinaryHeader(int length) {
+        if (length < (1 << 8)) {
+            return put(0xc4).put(length);
+        } else if (length < (1 << 16)) {
+            return put(0xc5).putShort(length);
+        }
+        return put(0xc6).putInt(length);
+    }
+
+    MessagePackWriter packArrayHeader(int length) {
+        if (length < 16) {
+            return put(0x90 | length);
+        } else if (length < (1 << 16)) {
+            return put(0xdc).putShort(length);
+        }
+        return put(0xdd).putInt(length);
+    }
+
+    MessagePackWriter packMapHeader(int length) {
+        if (length < 16) {
+            return put(0x80 | length);
+        } else if (length < (1 << 16)) {
+            return put(0xde).putShort(length);
+        }
+        return put(0xdf).putInt(length);
+    }
+
+    /**
+     * Write a Fluent EventTime, the extension type 0 holding seconds and nanoseconds since the
+     * epoch.
+     */
+    MessagePackWriter packEventTime(long epochMillis) {
+        long seconds = Math.floorDiv(epochMillis, 1000L);
+        long nanos = Math.floorMod(epochMillis, 1000L) * 1_000_000L;
+        return put(0xd7).put(EVENT_TIME_TYPE).putInt((int) seconds).putInt((int) nanos);
+    }
+
+    /** Write a JSON document with its objects as maps and its arrays as arrays. */
+    MessagePackWriter packJson(JsonNode node) {
+        switch (node.getNodeType()) {
+            case OBJECT:
+                packMapHeader(node.size());
+                Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    packString(field.getKey());
+                    packJson(field.getValue());
+                }
+                return this;
+            case ARRAY:
+                packArrayHeader(node.size());
+                for (JsonNode element : node) {
+                    packJson(element);
+                }
+                return this;
+            case STRING:
+                return packString(node.textValue());
+            case NUMBER:
+                if (node.canConvertToLong() && node.isIntegralNumber()) {
+                    return packLong(node.longValue());
+                }
+                return packDouble(node.doubleValue());
+            case BOOLEAN:
+                return packBoolean(node.booleanValue());
+            default:
+                return packNil();
+        }
+    }
+
+    private MessagePackWriter put(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    private MessagePackWriter putShort(int value) {
+        ensureCapacity(2);
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    private MessagePackWriter putInt(int value) {
+        ensureCapacity(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    private MessagePackWriter putLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    private MessagePackWriter putBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+        return this;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (size + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package software.amazon.cloudwatchlogs.emf.sinks;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import lombok.Builder;
@@ -39,6 +40,70 @@ public class MultiSink implements ISink {
         }
     }
 
+    @Override
+    public void acceptAll(Collection<MetricsContext> contexts) {
+        for (ISink sink : sinks) {
+            sink.acceptAll(contexts);
+        }
+    }
+
+    /**
+     * Offer the context to every sink. The context is rejected without being delivered anywhere if
+     * any of the sinks is saturated, so that a retry does not deliver it twice. Should a sink still
+     * reject it once others have accepted it, that sink accepts it anyway and drops events as its
+     * overflow policy dictates.
+     */
+    @Override
+    public boolean offer(MetricsContext context) {
+        for (ISink sink : sinks) {
+            if (sink.isSaturated()) {
+                return false;
+            }
+        }
+        boolean delivered = false;
+        for (ISink sink : sinks) {
+            if (sink.offer(context)) {
+                delivered = true;
+            } else if (delivered) {
+                sink.accept(context);
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return the saturation of the most saturated sink */
+    @Override
+    public double getSaturation() {
+        double saturation = 0;
+        for (ISink sink : sinks) {
+            saturation = Math.max(saturation, sink.getSaturation());
+        }
+        return saturation;
+    }
+
+    @Override
+    public void warmUp() {
+        for (ISink sink : sinks) {
+            sink.warmUp();
+        }
+    }
+
+    @Override
+    public void beforeCheckpoint() {
+        for (ISink sink : sinks) {
+            sink.beforeCheckpoint();
+        }
+    }
+
+    @Override
+    public void afterRestore() {
+        for (ISink sink : sinks) {
+            sink.afterRestore();
+        }
+    }
+
     @Override
     public CompletableFuture<Void> shutdown() {
         @SuppressWarnings("rawtypes")
@@ -0,0 +1,36 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+/** Determines which events an asynchronous sink drops when its queue is full. */
+public enum OverflowPolicy {
+    /** The oldest queued events are dropped to make room for new ones. */
+    DROP_OLDEST,
+
+    /** New events are dropped, and the queued events are sent. */
+    DROP_NEWEST;
+
+    public static OverflowPolicy getOverflowPolicy(String value) {
+        for (OverflowPolicy policy : values()) {
+            if (policy.toString().equalsIgnoreCase(value)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+/**
+ * Determines how an {@link AgentSink} with multiple connections distributes flushed contexts
+ * across its connections. All events serialized from a single context are always sent over the
+ * same connection.
+ */
+public enum PartitionStrategy {
+    /**
+     * Contexts are spread evenly across connections. Events from different flushes may reach the
+     * agent out of order.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Contexts are assigned to a connection by the hash of their log stream, so events for the
+     * same log stream are always written in order over the same connection.
+     */
+    LOG_STREAM;
+
+    public static PartitionStrategy getPartitionStrategy(String value) {
+        for (PartitionStrategy strategy : values()) {
+            if (strategy.toString().equalsIgnoreCase(value)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+}
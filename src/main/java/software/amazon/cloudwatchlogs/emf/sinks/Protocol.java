@@ -18,7 +18,9 @@ package software.amazon.cloudwatchlogs.emf.sinks;
 
 public enum Protocol {
     TCP,
-    UDP;
+    UDP,
+    UNIX,
+    FORWARD;
 
     public static Protocol getProtocol(String value) {
         for (Protocol protocol : values()) {
@@ -0,0 +1,69 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Handles tasks rejected by the sender executor of a sink whose queue is full, according to the
+ * current {@link OverflowPolicy} of the sink. Dropped tasks are counted as dropped events.
+ */
+class QueueOverflowHandler implements RejectedExecutionHandler {
+    private final Supplier<OverflowPolicy> overflowPolicy;
+    private final ToIntFunction<Runnable> eventCount;
+    private final SinkTelemetry telemetry;
+
+    /**
+     * @param overflowPolicy supplies the policy in effect when a task is rejected
+     * @param eventCount the number of events held by a queued task
+     * @param telemetry receives the dropped events
+     */
+    QueueOverflowHandler(
+            Supplier<OverflowPolicy> overflowPolicy,
+            ToIntFunction<Runnable> eventCount,
+            SinkTelemetry telemetry) {
+        this.overflowPolicy = overflowPolicy;
+        this.eventCount = eventCount;
+        this.telemetry = telemetry;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        if (overflowPolicy.get() == OverflowPolicy.DROP_NEWEST) {
+            telemetry.recordDrops(eventCount.applyAsInt(runnable));
+            return;
+        }
+        // discard the oldest tasks to make room, like DiscardOldestPolicy. The queue may hold
+        // more than one task too many if its capacity was reduced.
+        BlockingQueue<Runnable> queue = executor.getQueue();
+        while (queue.remainingCapacity() == 0) {
+            Runnable oldest = queue.poll();
+            if (oldest == null) {
+                break;
+            }
+            telemetry.recordDrops(eventCount.applyAsInt(oldest));
+        }
+        executor.execute(runnable);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A queue for the tasks of a {@link java.util.concurrent.ThreadPoolExecutor} whose capacity can
+ * be changed while it is in use. The executor only adds tasks with {@link #offer(Object)}, which
+ * refuses them once the capacity is reached, so that the executor's rejection handler applies
+ * the overflow policy. Shrinking the capacity does not remove queued tasks; new tasks are refused
+ * until the queue has drained below the new capacity. Concurrent producers may exceed the
+ * capacity by a few tasks.
+ */
+class ResizableBlockingQueue<E> extends LinkedBlockingQueue<E> {
+    private volatile int capacity;
+
+    ResizableBlockingQueue(int capacity) {
+        setCapacity(capacity);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    void setCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (size() >= capacity) {
+            return false;
+        }
+        return super.offer(e);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.Constants;
+import software.amazon.cloudwatchlogs.emf.exception.EMFClientException;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+
+/**
+ * Append log items as newline-delimited JSON to rotating files, for hosts where a log shipper
+ * tails the files. Each flush is written with a single {@link FileChannel} write. A new file is
+ * started once the current one would exceed the maximum size or the rotation interval has passed.
+ *
+ * <p>Files are named {@code <prefix>-<yyyyMMddHHmmssSSS>-<sequence>.log} in UTC, so they sort in
+ * the order they were written and are never renamed once created. Rather than syncing every
+ * write, dirty files are forced to disk at most once per sync interval, on rotation and on
+ * shutdown.
+ */
+@Slf4j
+public class RotatingFileSink implements ISink {
+    private static final String FILE_SUFFIX = ".log";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS").withZone(ZoneOffset.UTC);
+
+    @Getter private final Path directory;
+    @Getter private final String filePrefix;
+    @Getter private final long maxFileSize;
+    @Getter private final long rotationIntervalMillis;
+    @Getter private final int maxFiles;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService syncer;
+    private FileChannel channel;
+    private Path currentFile;
+    private long currentSize;
+    private long openedAtMillis;
+    private int sequence;
+    private boolean dirty;
+    private boolean shutdown;
+
+    /**
+     * @param directory the directory to write the files to. It is created if necessary.
+     * @param filePrefix the prefix of the file names, defaults to "emf"
+     * @param maxFileSize the size in bytes after which a new file is started
+     * @param rotationIntervalMillis the age after which a new file is started. A value of 0
+     *     disables time based rotation.
+     * @param maxFiles the number of files to keep. Older files are deleted on rotation. A value of
+     *     0 keeps all files.
+     * @param syncIntervalMillis the interval at which written data is forced to disk. A value of 0
+     *     leaves syncing to the operating system.
+     */
+    @Builder
+    public RotatingFileSink(
+            @NonNull Path directory,
+            String filePrefix,
+            long maxFileSize,
+            long rotationIntervalMillis,
+            int maxFiles,
+            long syncIntervalMillis) {
+        this.directory = directory;
+        this.filePrefix = filePrefix != null ? filePrefix : Constants.DEFAULT_FILE_SINK_PREFIX;
+        this.maxFileSize =
+                maxFileSize > 0 ? maxFileSize : Constants.DEFAULT_FILE_SINK_MAX_FILE_SIZE;
+        this.rotationIntervalMillis = rotationIntervalMillis;
+        this.maxFiles = maxFiles;
+
+        if (syncIntervalMillis > 0) {
+            this.syncer =
+                    Executors.newSingleThreadScheduledExecutor(
+                            runnable -> {
+                                Thread thread = new Thread(runnable, "emf-file-sync");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+            syncer.scheduleWithFixedDelay(
+                    this::sync, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncer = null;
+        }
+    }
+
+    @Override
+    public void accept(MetricsContext context) {
+        ByteBuffer buffer;
+        try {
+            buffer = ConsoleSink.encode(context.serialize());
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize a MetricsContext: ", e);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new EMFClientException(
+                        "Attempted to write data to a sink that has been previously shutdown.");
+            }
+            if (shouldRotate(buffer.remaining())) {
+                rotate();
+            }
+            while (buffer.hasRemaining()) {
+                currentSize += channel.write(buffer);
+            }
+            dirty = true;
+        } catch (IOException e) {
+            log.error("Failed to write metrics to {}: ", currentFile, e);
+            closeQuietly();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            if (syncer != null) {
+                syncer.shutdownNow();
+            }
+            if (channel != null) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to sync {}: ", currentFile, e);
+        } finally {
+            closeQuietly();
+            lock.unlock();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /** Sync and close the current file. The next write starts a new file. */
+    @Override
+    public void beforeCheckpoint() {
+        lock.lock();
+        try {
+            if (channel != null) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to sync {}: ", currentFile, e);
+        } finally {
+            closeQuietly();
+            lock.unlock();
+        }
+    }
+
+    /** @return the file currently being written to, or null if none is open */
+    public Path getCurrentFile() {
+        lock.lock();
+        try {
+            return currentFile;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean shouldRotate(int length) {
+        if (channel == null) {
+            return true;
+        }
+        if (currentSize > 0 && currentSize + length > maxFileSize) {
+            return true;
+        }
+        return rotationIntervalMillis > 0
+                && System.currentTimeMillis() - openedAtMillis >= rotationIntervalMillis;
+    }
+
+    private void rotate() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            closeQuietly();
+        }
+
+        Files.createDirectories(directory);
+        long now = System.currentTimeMillis();
+        Path file =
+                directory.resolve(
+                        String.format(
+                                "%s-%s-%06d%s",
+                                filePrefix,
+                                TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(now)),
+                                sequence++,
+                                FILE_SUFFIX));
+        channel =
+                FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        currentFile = file;
+        currentSize = 0;
+        openedAtMillis = now;
+        deleteExpiredFiles();
+    }
+
+    private void deleteExpiredFiles() {
+        if (maxFiles <= 0) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream =
+                Files.newDirectoryStream(directory, filePrefix + "-*" + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to list the files in {}: ", directory, e);
+            return;
+        }
+
+        Collections.sort(files);
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            try {
+                Files.deleteIfExists(files.get(i));
+            } catch (IOException e) {
+                log.warn("Failed to delete {}: ", files.get(i), e);
+            }
+        }
+    }
+
+    private void sync() {
+        FileChannel toSync;
+        lock.lock();
+        try {
+            toSync = dirty ? channel : null;
+            dirty = false;
+        } finally {
+            lock.unlock();
+        }
+        if (toSync == null) {
+            return;
+        }
+        // force outside of the lock so that writers are not blocked while the disk catches up
+        try {
+            toSync.force(false);
+        } catch (ClosedChannelException e) {
+            // the file was rotated or the sink shut down, both of which sync the file themselves
+        } catch (IOException e) {
+            log.warn("Failed to sync the current file: ", e);
+        }
+    }
+
+    private void closeQuietly() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close {}: ", currentFile, e);
+        }
+        channel = null;
+        dirty = false;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Counters describing the health of a sink's write pipeline. All recording methods are lock free
+ * and safe to call from any thread. Use {@link #snapshot()} to read the current values.
+ *
+ * <p>Enqueue-to-write latencies are kept in a histogram with power-of-two microsecond buckets, so
+ * percentiles are accurate to within a factor of two.
+ */
+public class SinkTelemetry {
+    private static final int LATENCY_BUCKETS = 40;
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final AtomicLong queueHighWaterMark = new AtomicLong();
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKETS);
+    private final AtomicLong maxLatencyMicros = new AtomicLong();
+
+    /** @param count the number of events written to the destination */
+    public void recordEvents(long count) {
+        events.add(count);
+    }
+
+    /** @param count the number of bytes written to the destination */
+    public void recordBytes(long count) {
+        bytes.add(count);
+    }
+
+    /** @param count the number of events that were dropped */
+    public void recordDrops(long count) {
+        dropped.add(count);
+    }
+
+    /** Record a failed write attempt that will be retried. */
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    /** Record a new connection to the destination. */
+    public void recordReconnect() {
+        reconnects.increment();
+    }
+
+    /** @param depth the current number of events waiting to be written */
+    public void recordQueueDepth(long depth) {
+        queueHighWaterMark.accumulateAndGet(depth, Math::max);
+    }
+
+    /** @param nanos the time between an event being accepted and written to the destination */
+    public void recordLatency(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        int bucket = Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        latencyBuckets.incrementAndGet(bucket);
+        maxLatencyMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /** @return the current values of all counters */
+    public Snapshot snapshot() {
+        long[] buckets = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            buckets[i] = latencyBuckets.get(i);
+        }
+        return new Snapshot(
+                System.currentTimeMillis(),
+                events.sum(),
+                bytes.sum(),
+                dropped.sum(),
+                retries.sum(),
+                reconnects.sum(),
+                queueHighWaterMark.get(),
+                maxLatencyMicros.get(),
+                buckets);
+    }
+
+    /**
+     * A point in time view of the telemetry. Counters are cumulative since the sink was created,
+     * use {@link #since(Snapshot)} to get the values for an interval.
+     */
+    @AllArgsConstructor
+    public static class Snapshot {
+        @Getter private final long timestampMillis;
+        @Getter private final long events;
+        @Getter private final long bytes;
+        @Getter private final long dropped;
+        @Getter private final long retries;
+        @Getter private final long reconnects;
+        @Getter private final long queueHighWaterMark;
+        @Getter private final long latencyMaxMicros;
+        private final long[] latencyBuckets;
+
+        /**
+         * @param earlier a snapshot taken before this one
+         * @return the counters and latencies recorded between the two snapshots. The queue high
+         *     water mark and the maximum latency are not reset between snapshots.
+         */
+        public Snapshot since(Snapshot earlier) {
+            long[] buckets = new long[latencyBuckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = latencyBuckets[i] - earlier.latencyBuckets[i];
+            }
+            return new Snapshot(
+                    timestampMillis,
+                    events - earlier.events,
+                    bytes - earlier.bytes,
+                    dropped - earlier.dropped,
+                    retries - earlier.retries,
+                    reconnects - earlier.reconnects,
+                    queueHighWaterMark,
+                    latencyMaxMicros,
+                    buckets);
+        }
+
+        /** @return the number of recorded latencies */
+        public long getLatencyCount() {
+            long count = 0;
+            for (long bucket : latencyBuckets) {
+                count += bucket;
+            }
+            return count;
+        }
+
+        public long getLatencyP50Micros() {
+            return getLatencyPercentileMicros(0.5);
+        }
+
+        public long getLatencyP99Micros() {
+            return getLatencyPercentileMicros(0.99);
+        }
+
+        /**
+         * @param percentile the percentile between 0 and 1
+         * @return the upper bound in microseconds of the bucket holding the percentile, or 0 if no
+         *     latencies were recorded
+         */
+        public long getLatencyPercentileMicros(double percentile) {
+            long count = getLatencyCount();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percentile));
+            long seen = 0;
+            for (int i = 0; i < latencyBuckets.length; i++) {
+                seen += latencyBuckets[i];
+                if (seen >= rank) {
+                    return i == 0 ? 0 : 1L << i;
+                }
+            }
+            return 1L << (latencyBuckets.length - 1);
+        }
+    }
+}
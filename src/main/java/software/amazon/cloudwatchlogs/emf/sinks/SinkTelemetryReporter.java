@@ -0,0 +1,104 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.exception.EMFClientException;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+import software.amazon.cloudwatchlogs.emf.model.Unit;
+
+/**
+ * Periodically emits the telemetry of a sink as an EMF event through the sink itself, so that
+ * backpressure in the metrics pipeline can be alarmed on. Rates, drops and latency percentiles
+ * cover the reporting interval. The reporter stops on its own once the sink has been shut down.
+ */
+@Slf4j
+public class SinkTelemetryReporter implements Closeable {
+    private final SinkTelemetry telemetry;
+    private final ISink sink;
+    private final String namespace;
+    private final String sinkName;
+    private final ScheduledExecutorService scheduler;
+    private SinkTelemetry.Snapshot previous;
+
+    /**
+     * @param telemetry the telemetry to report
+     * @param sink the sink to report through
+     * @param namespace the CloudWatch namespace of the reported metrics
+     * @param intervalMillis the reporting interval
+     */
+    public SinkTelemetryReporter(
+            SinkTelemetry telemetry, ISink sink, String namespace, long intervalMillis) {
+        this.telemetry = telemetry;
+        this.sink = sink;
+        this.namespace = namespace;
+        this.sinkName = sink.getClass().getSimpleName();
+        this.previous = telemetry.snapshot();
+        this.scheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "emf-telemetry-reporter");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        scheduler.scheduleAtFixedRate(
+                this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stop reporting. */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    void report() {
+        SinkTelemetry.Snapshot current = telemetry.snapshot();
+        try {
+            sink.accept(createContext(previous, current));
+        } catch (EMFClientException e) {
+            log.debug("The sink has been shut down. Stopping the telemetry reporter.");
+            close();
+        } catch (Exception e) {
+            log.warn("Failed to report sink telemetry: ", e);
+        }
+        previous = current;
+    }
+
+    MetricsContext createContext(SinkTelemetry.Snapshot from, SinkTelemetry.Snapshot to)
+            throws Exception {
+        SinkTelemetry.Snapshot interval = to.since(from);
+        double seconds = Math.max(1, to.getTimestampMillis() - from.getTimestampMillis()) / 1000.0;
+        MetricsContext context = new MetricsContext();
+        context.setNamespace(namespace);
+        context.putDimension("Sink", sinkName);
+        context.putMetric("EventsPerSecond", interval.getEvents() / seconds, Unit.COUNT_SECOND);
+        context.putMetric("BytesPerSecond", interval.getBytes() / seconds, Unit.BYTES_SECOND);
+        context.putMetric("DroppedEvents", interval.getDropped(), Unit.COUNT);
+        context.putMetric("Retries", interval.getRetries(), Unit.COUNT);
+        context.putMetric("Reconnects", interval.getReconnects(), Unit.COUNT);
+        context.putMetric("QueueHighWaterMark", interval.getQueueHighWaterMark(), Unit.COUNT);
+        if (interval.getLatencyCount() > 0) {
+            context.putMetric("LatencyP50", interval.getLatencyP50Micros(), Unit.MICROSECONDS);
+            context.putMetric("LatencyP99", interval.getLatencyP99Micros(), Unit.MICROSECONDS);
+        }
+        return context;
+    }
+}
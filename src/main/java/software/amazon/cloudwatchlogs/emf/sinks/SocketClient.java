@@ -17,6 +17,8 @@
 package software.amazon.cloudwatchlogs.emf.sinks;
 
 import java.io.Closeable;
+import java.util.List;
+import java.util.function.IntConsumer;
 
 /** An interface for clients that connect to a socket. */
 public interface SocketClient extends Closeable {
@@ -27,4 +29,56 @@ public interface SocketClient extends Closeable {
      * @param message The message to be sent
      */
     void sendMessage(String message);
+
+    /**
+     * Send several messages, each terminated by a newline. Clients that can write them together
+     * should override this to do so with a single write.
+     *
+     * @param messages The messages to be sent
+     */
+    default void sendMessages(List<String> messages) {
+        for (String message : messages) {
+            sendMessage(message + "\n");
+        }
+    }
+
+    /**
+     * Send any messages the client has buffered. Clients that write every message immediately do
+     * not need to implement this.
+     */
+    default void flush() {}
+
+    /**
+     * @return true if {@link #sendMessage(String)} only adds the message to a buffer that is
+     *     written later. Buffering clients report written messages to their write listener, so
+     *     a normal return from a send does not mean the message was delivered.
+     */
+    default boolean isBuffering() {
+        return false;
+    }
+
+    /**
+     * Set the listener a buffering client calls with the number of messages each time it writes
+     * its buffer. Failed writes are thrown from the send or flush that attempted them.
+     *
+     * @param listener receives the number of messages written
+     */
+    default void setWriteListener(IntConsumer listener) {}
+
+    /**
+     * Set the telemetry the client records written bytes, reconnects and drops to.
+     *
+     * @param telemetry the telemetry of the sink that owns the client
+     */
+    default void setTelemetry(SinkTelemetry telemetry) {}
+
+    /**
+     * Check whether the destination can currently be reached, (re-)establishing the connection if
+     * the client is connection oriented. This must not send any data.
+     *
+     * @return true if the destination is reachable, otherwise, false
+     */
+    default boolean probe() {
+        return true;
+    }
 }
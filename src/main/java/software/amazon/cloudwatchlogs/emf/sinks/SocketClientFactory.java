@@ -16,11 +16,54 @@
 
 package software.amazon.cloudwatchlogs.emf.sinks;
 
+import software.amazon.cloudwatchlogs.emf.Constants;
+import software.amazon.cloudwatchlogs.emf.util.StringUtils;
+
 public class SocketClientFactory {
 
+    private final int udpMaxPayloadSize;
+    private final String fluentTag;
+    private final boolean fluentRequireAck;
+
+    public SocketClientFactory() {
+        this(Constants.DEFAULT_UDP_MAX_PAYLOAD_SIZE);
+    }
+
+    /**
+     * @param udpMaxPayloadSize the maximum size of the datagrams sent by UDP clients. Values
+     *     outside of 1 to {@link Constants#MAX_UDP_PAYLOAD_SIZE} fall back to the default.
+     */
+    public SocketClientFactory(int udpMaxPayloadSize) {
+        this(udpMaxPayloadSize, Constants.DEFAULT_FLUENT_TAG, false);
+    }
+
+    /**
+     * @param udpMaxPayloadSize the maximum size of the datagrams sent by UDP clients. Values
+     *     outside of 1 to {@link Constants#MAX_UDP_PAYLOAD_SIZE} fall back to the default.
+     * @param fluentTag the tag of the records sent by Fluent Forward clients. Empty values fall
+     *     back to {@link Constants#DEFAULT_FLUENT_TAG}.
+     * @param fluentRequireAck whether Fluent Forward clients wait for every message to be
+     *     acknowledged
+     */
+    public SocketClientFactory(int udpMaxPayloadSize, String fluentTag, boolean fluentRequireAck) {
+        this.fluentTag =
+                StringUtils.isNullOrEmpty(fluentTag) ? Constants.DEFAULT_FLUENT_TAG : fluentTag;
+        this.fluentRequireAck = fluentRequireAck;
+        this.udpMaxPayloadSize =
+                udpMaxPayloadSize > 0 && udpMaxPayloadSize <= Constants.MAX_UDP_PAYLOAD_SIZE
+                        ? udpMaxPayloadSize
+                        : Constants.DEFAULT_UDP_MAX_PAYLOAD_SIZE;
+    }
+
     public SocketClient getClient(Endpoint endpoint) {
         if (endpoint.getProtocol() == Protocol.UDP) {
-            return new UDPClient(endpoint);
+            return new UDPClient(endpoint, udpMaxPayloadSize);
+        }
+        if (endpoint.getProtocol() == Protocol.UNIX) {
+            return new UnixSocketClient(endpoint);
+        }
+        if (endpoint.getProtocol() == Protocol.FORWARD) {
+            return new FluentForwardClient(endpoint, fluentTag, fluentRequireAck);
         }
         return new TCPClient(endpoint);
     }
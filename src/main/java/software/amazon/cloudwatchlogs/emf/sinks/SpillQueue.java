@@ -0,0 +1,425 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A bounded, disk-backed FIFO queue of serialized EMF events. Events are appended to a fixed
+ * number of memory-mapped segment files and consumed in order. Fully consumed segments are
+ * recycled rather than deleted, so the queue never uses more than {@code segmentSize * maxSegments}
+ * bytes of disk. Once all segments are full, new events are rejected and counted as dropped.
+ *
+ * <p>The read position is persisted in each segment, so events that were not consumed before the
+ * process exited are replayed by the next queue opened on the same directory. An event may be
+ * delivered more than once if the process exits between sending it and removing it.
+ *
+ * <p>A queue holds an exclusive lock on its directory while it is open, so a directory cannot be
+ * shared by two queues, whether they are in the same process or not.
+ */
+@Slf4j
+public class SpillQueue implements Closeable {
+    private static final String SEGMENT_PREFIX = "emf-spill-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String LOCK_FILE = "emf-spill.lock";
+
+    // segment header: 8 byte sequence number followed by a 4 byte read position
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int READ_POSITION_OFFSET = 8;
+    private static final int HEADER_SIZE = 12;
+    private static final int LENGTH_PREFIX_SIZE = 4;
+    private static final long UNUSED_SEQUENCE = -1;
+
+    @Getter private final Path directory;
+    @Getter private final int segmentSize;
+    @Getter private final int maxSegments;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FileChannel lockChannel;
+    private final FileLock directoryLock;
+    // segments holding events, ordered from oldest to newest; the last one is appended to
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Deque<Segment> freeSegments = new ArrayDeque<>();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private int createdSegments;
+    private long nextSequence;
+    private long size;
+    private boolean closed;
+
+    /**
+     * Open a spill queue in the given directory, recovering any events left by a previous queue.
+     *
+     * @param directory the directory holding the segment files. It is created if necessary.
+     * @param segmentSize the size of each segment file in bytes
+     * @param maxSegments the maximum number of segment files
+     * @throws IOException if the directory or the segment files cannot be opened, or if another
+     *     queue is using the directory
+     */
+    public SpillQueue(Path directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize <= HEADER_SIZE + LENGTH_PREFIX_SIZE) {
+            throw new IllegalArgumentException("The segment size is too small.");
+        }
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("At least one segment is required.");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        lockChannel =
+                FileChannel.open(
+                        directory.resolve(LOCK_FILE),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE);
+        try {
+            directoryLock = lockDirectory();
+            recover();
+        } catch (IOException | RuntimeException e) {
+            // closing the channel also releases the lock, if it was taken
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Append an event to the end of the queue.
+     *
+     * @param event the serialized event
+     * @return true if the event was stored, false if it was dropped because the queue is full or
+     *     the event does not fit into a segment
+     */
+    public boolean offer(String event) {
+        byte[] bytes = event.getBytes(StandardCharsets.UTF_8);
+        int recordSize = LENGTH_PREFIX_SIZE + bytes.length;
+        if (recordSize > segmentSize - HEADER_SIZE) {
+            log.warn(
+                    "Dropping an event of {} bytes that does not fit into a spill segment.",
+                    bytes.length);
+            droppedEvents.incrementAndGet();
+            return false;
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                droppedEvents.incrementAndGet();
+                return false;
+            }
+            Segment tail = segments.peekLast();
+            if (tail == null || tail.remaining() < recordSize) {
+                tail = nextWritableSegment();
+                if (tail == null) {
+                    droppedEvents.incrementAndGet();
+                    return false;
+                }
+            }
+            tail.append(bytes);
+            size++;
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to open a new spill segment in {}", directory, e);
+            droppedEvents.incrementAndGet();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return the oldest event in the queue without removing it, or null if it is empty */
+    public String peek() {
+        lock.lock();
+        try {
+            Segment head = readableHead();
+            return head != null ? head.peek() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Remove the oldest event from the queue. Does nothing if the queue is empty. */
+    public void remove() {
+        lock.lock();
+        try {
+            Segment head = readableHead();
+            if (head != null) {
+                head.skip();
+                size--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return true if there are no events in the queue */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** @return the number of events in the queue */
+    public long size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return the number of events that were rejected because the queue was full */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /** Flush all segments to disk and release them. The queue cannot be used afterwards. */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            IOException failure = null;
+            List<Segment> all = new ArrayList<>(segments);
+            all.addAll(freeSegments);
+            for (Segment segment : all) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            segments.clear();
+            freeSegments.clear();
+            try {
+                directoryLock.release();
+                lockChannel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private FileLock lockDirectory() throws IOException {
+        FileLock fileLock;
+        try {
+            fileLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // another queue in this process holds the lock
+            fileLock = null;
+        }
+        if (fileLock == null) {
+            throw new IOException("The spill directory " + directory + " is already in use.");
+        }
+        return fileLock;
+    }
+
+    /**
+     * Return the oldest segment that still has unread events, recycling fully consumed segments
+     * along the way.
+     */
+    private Segment readableHead() {
+        Segment head = segments.peekFirst();
+        while (head != null && !head.hasUnread()) {
+            if (head == segments.peekLast()) {
+                // the only segment is fully consumed, so start writing it from the beginning again
+                head.reset(head.sequence);
+                return null;
+            }
+            segments.pollFirst();
+            head.reset(UNUSED_SEQUENCE);
+            freeSegments.addLast(head);
+            head = segments.peekFirst();
+        }
+        return head;
+    }
+
+    private Segment nextWritableSegment() throws IOException {
+        Segment segment = freeSegments.pollFirst();
+        if (segment == null) {
+            if (createdSegments >= maxSegments) {
+                return null;
+            }
+            segment = Segment.open(segmentPath(createdSegments), segmentSize);
+            createdSegments++;
+        }
+        segment.reset(nextSequence++);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private Path segmentPath(int slot) {
+        return directory.resolve(SEGMENT_PREFIX + slot + SEGMENT_SUFFIX);
+    }
+
+    private void recover() throws IOException {
+        List<Segment> recovered = new ArrayList<>();
+        for (int slot = 0; slot < maxSegments; slot++) {
+            Path path = segmentPath(slot);
+            if (!Files.exists(path)) {
+                break;
+            }
+            Segment segment = Segment.open(path, segmentSize);
+            createdSegments++;
+            if (segment.sequence == UNUSED_SEQUENCE) {
+                freeSegments.addLast(segment);
+            } else {
+                recovered.add(segment);
+            }
+        }
+
+        recovered.sort(Comparator.comparingLong(segment -> segment.sequence));
+        for (Segment segment : recovered) {
+            segments.addLast(segment);
+            size += segment.countUnread();
+            nextSequence = Math.max(nextSequence, segment.sequence + 1);
+        }
+        if (size > 0) {
+            log.info("Recovered {} spilled events from {}", size, directory);
+        }
+    }
+
+    /** A single memory-mapped segment file. */
+    private static class Segment {
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private long sequence;
+        private int readPosition;
+        private int writePosition;
+
+        private Segment(FileChannel channel, MappedByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.sequence = buffer.getLong(SEQUENCE_OFFSET);
+            this.readPosition = Math.max(HEADER_SIZE, buffer.getInt(READ_POSITION_OFFSET));
+            this.writePosition = scanWritePosition();
+        }
+
+        static Segment open(Path path, int size) throws IOException {
+            boolean isNew = !Files.exists(path);
+            FileChannel channel =
+                    FileChannel.open(
+                            path,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.READ,
+                            StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (isNew) {
+                buffer.putLong(SEQUENCE_OFFSET, UNUSED_SEQUENCE);
+            }
+            return new Segment(channel, buffer);
+        }
+
+        int remaining() {
+            return buffer.capacity() - writePosition;
+        }
+
+        boolean hasUnread() {
+            return readPosition < writePosition;
+        }
+
+        void append(byte[] bytes) {
+            buffer.putInt(writePosition, bytes.length);
+            ByteBuffer view = buffer.duplicate();
+            view.position(writePosition + LENGTH_PREFIX_SIZE);
+            view.put(bytes);
+            writePosition += LENGTH_PREFIX_SIZE + bytes.length;
+            markEnd();
+        }
+
+        String peek() {
+            int length = buffer.getInt(readPosition);
+            byte[] bytes = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(readPosition + LENGTH_PREFIX_SIZE);
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void skip() {
+            readPosition += LENGTH_PREFIX_SIZE + buffer.getInt(readPosition);
+            buffer.putInt(READ_POSITION_OFFSET, readPosition);
+        }
+
+        void reset(long newSequence) {
+            sequence = newSequence;
+            readPosition = HEADER_SIZE;
+            writePosition = HEADER_SIZE;
+            buffer.putLong(SEQUENCE_OFFSET, newSequence);
+            buffer.putInt(READ_POSITION_OFFSET, readPosition);
+            markEnd();
+        }
+
+        long countUnread() {
+            long count = 0;
+            int position = readPosition;
+            while (position < writePosition) {
+                position += LENGTH_PREFIX_SIZE + buffer.getInt(position);
+                count++;
+            }
+            return count;
+        }
+
+        void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+
+        /** A zero length marks the end of the written records, since a segment may be reused. */
+        private void markEnd() {
+            if (remaining() >= LENGTH_PREFIX_SIZE) {
+                buffer.putInt(writePosition, 0);
+            }
+        }
+
+        private int scanWritePosition() {
+            int position = HEADER_SIZE;
+            while (buffer.capacity() - position >= LENGTH_PREFIX_SIZE) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || length > buffer.capacity() - position - LENGTH_PREFIX_SIZE) {
+                    break;
+                }
+                position += LENGTH_PREFIX_SIZE + length;
+            }
+            return position;
+        }
+    }
+}
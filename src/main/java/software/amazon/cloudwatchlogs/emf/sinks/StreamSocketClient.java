@@ -0,0 +1,131 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The connection handling shared by the clients that write to a stream socket. The connection is
+ * opened on first use and reopened after a failed write, and writes, probes and close are
+ * serialized by a lock.
+ */
+@Slf4j
+abstract class StreamSocketClient implements SocketClient {
+
+    protected final Endpoint endpoint;
+    // a lock rather than synchronized, so virtual sender threads do not pin their carrier while
+    // blocked on socket I/O
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean shouldConnect = true;
+    private volatile SinkTelemetry telemetry = new SinkTelemetry();
+
+    StreamSocketClient(Endpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /** Open a new connection to the endpoint. Called with the lock held. */
+    protected abstract void open() throws IOException;
+
+    /** @return true if a connection was opened and has not been closed since */
+    protected abstract boolean isOpen();
+
+    /** Write all bytes to the open connection. Called with the lock held. */
+    protected abstract void write(byte[] bytes) throws IOException;
+
+    /** Close the connection if one was opened. Called with the lock held. */
+    protected abstract void closeConnection() throws IOException;
+
+    private void connect() {
+        try {
+            open();
+            shouldConnect = false;
+            telemetry.recordReconnect();
+        } catch (Exception e) {
+            shouldConnect = true;
+            throw new RuntimeException("Failed to connect to the socket.", e);
+        }
+    }
+
+    @Override
+    public void sendMessage(String message) {
+        lock.lock();
+        try {
+            if (!isOpen() || shouldConnect) {
+                connect();
+            }
+
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            try {
+                write(bytes);
+                telemetry.recordBytes(bytes.length);
+            } catch (Exception e) {
+                shouldConnect = true;
+                throw new RuntimeException("Failed to write message to the socket.", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Write all messages to the socket with a single write. */
+    @Override
+    public void sendMessages(List<String> messages) {
+        StringBuilder builder = new StringBuilder();
+        for (String message : messages) {
+            builder.append(message).append('\n');
+        }
+        sendMessage(builder.toString());
+    }
+
+    @Override
+    public void setTelemetry(SinkTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    @Override
+    public boolean probe() {
+        lock.lock();
+        try {
+            if (!isOpen() || shouldConnect) {
+                try {
+                    connect();
+                } catch (RuntimeException e) {
+                    log.debug("Probe failed to connect to {}", endpoint, e);
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Close the connection once the write or probe in progress has finished. */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closeConnection();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -17,32 +17,25 @@
 package software.amazon.cloudwatchlogs.emf.sinks;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.Constants;
 
 /** A client that would connect to a TCP socket. */
-@Slf4j
-public class TCPClient implements SocketClient {
+public class TCPClient extends StreamSocketClient {
 
-    private final Endpoint endpoint;
     private Socket socket;
-    private boolean shouldConnect = true;
 
     public TCPClient(Endpoint endpoint) {
-        this.endpoint = endpoint;
+        super(endpoint);
     }
 
-    private void connect() {
-        try {
-            socket = createSocket();
-            socket.connect(new InetSocketAddress(endpoint.getHost(), endpoint.getPort()));
-            shouldConnect = false;
-        } catch (Exception e) {
-            shouldConnect = true;
-            throw new RuntimeException("Failed to connect to the socket.", e);
-        }
+    @Override
+    protected void open() throws IOException {
+        socket = createSocket();
+        socket.connect(
+                new InetSocketAddress(endpoint.getHost(), endpoint.getPort()),
+                Constants.DEFAULT_SOCKET_CONNECT_TIMEOUT_MILLIS);
     }
 
     protected Socket createSocket() {
@@ -50,30 +43,17 @@ public class TCPClient implements SocketClient {
     }
 
     @Override
-    public synchronized void sendMessage(String message) {
-        if (socket == null || socket.isClosed() || shouldConnect) {
-            connect();
-        }
-
-        OutputStream os;
-        try {
-            os = socket.getOutputStream();
-        } catch (IOException e) {
-            shouldConnect = true;
-            throw new RuntimeException(
-                    "Failed to write message to the socket. Failed to open output stream.", e);
-        }
+    protected boolean isOpen() {
+        return socket != null && !socket.isClosed();
+    }
 
-        try {
-            os.write(message.getBytes());
-        } catch (Exception e) {
-            shouldConnect = true;
-            throw new RuntimeException("Failed to write message to the socket.", e);
-        }
+    @Override
+    protected void write(byte[] bytes) throws IOException {
+        socket.getOutputStream().write(bytes);
     }
 
     @Override
-    public void close() throws IOException {
+    protected void closeConnection() throws IOException {
         if (socket != null) {
             socket.close();
         }
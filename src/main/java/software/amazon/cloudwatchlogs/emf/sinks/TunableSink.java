@@ -0,0 +1,31 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+/**
+ * A sink that sends events from a queue, whose buffering can be adjusted while it is in use.
+ * Changes take effect for the next event, without recreating the sink or its connections.
+ */
+public interface TunableSink extends ISink {
+
+    /** @param asyncQueueDepth the number of events or batches the sink may queue */
+    void setAsyncQueueDepth(int asyncQueueDepth);
+
+    /** @param overflowPolicy which events to drop when the queue is full */
+    void setOverflowPolicy(OverflowPolicy overflowPolicy);
+}
@@ -17,62 +17,180 @@
 package software.amazon.cloudwatchlogs.emf.sinks;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
-import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
 import lombok.extern.slf4j.Slf4j;
+import software.amazon.cloudwatchlogs.emf.Constants;
 
-/** A client that would connect to a UDP socket. */
+/**
+ * A client that would connect to a UDP socket. Messages are packed, newline-delimited, into
+ * datagrams of up to {@code maxPayloadSize} bytes. A datagram is sent once the next message does
+ * not fit into it or when {@link #flush()} is called. Messages that do not fit into a single
+ * datagram are dropped and counted, as are the messages of a datagram that could not be sent.
+ */
 @Slf4j
 class UDPClient implements SocketClient {
 
-    private InetSocketAddress inetAddress;
-    private DatagramSocket datagramSocket;
-    private Endpoint endpoint;
+    private final InetSocketAddress inetAddress;
+    private final Endpoint endpoint;
+    private final int maxPayloadSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    // the datagram currently being packed, reused for every send
+    private final ByteBuffer pending;
+    private int pendingMessages;
+    private final CharsetEncoder encoder =
+            StandardCharsets.UTF_8
+                    .newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final AtomicLong oversizedMessages = new AtomicLong();
+    private DatagramChannel channel;
+    private volatile SinkTelemetry telemetry = new SinkTelemetry();
+    private volatile IntConsumer writeListener = messages -> {};
 
     UDPClient(Endpoint endpoint) {
-        inetAddress = new InetSocketAddress(endpoint.getHost(), endpoint.getPort());
+        this(endpoint, Constants.DEFAULT_UDP_MAX_PAYLOAD_SIZE);
+    }
+
+    UDPClient(Endpoint endpoint, int maxPayloadSize) {
+        if (maxPayloadSize < 1 || maxPayloadSize > Constants.MAX_UDP_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException(
+                    "The UDP payload size must be between 1 and "
+                            + Constants.MAX_UDP_PAYLOAD_SIZE
+                            + " bytes.");
+        }
+        this.inetAddress = new InetSocketAddress(endpoint.getHost(), endpoint.getPort());
         this.endpoint = endpoint;
+        this.maxPayloadSize = maxPayloadSize;
+        this.pending = ByteBuffer.allocateDirect(maxPayloadSize);
     }
 
     @Override
     public void sendMessage(String message) {
-        byte[] data = message.getBytes(StandardCharsets.UTF_8);
-        final DatagramPacket packet = new DatagramPacket(data, data.length, inetAddress);
-        flush(packet);
-    }
-
-    private synchronized void flush(DatagramPacket packet) {
+        lock.lock();
         try {
-            if (datagramSocket == null) {
-                createSocket();
+            if (append(message)) {
+                return;
             }
-            if (datagramSocket != null) {
-                datagramSocket.send(packet);
-            } else {
-                log.warn("No DatagramSocket available. Message would be dropped");
+            flushPending();
+            if (!append(message)) {
+                oversizedMessages.incrementAndGet();
+                telemetry.recordDrops(1);
+                log.warn(
+                        "Dropping a message that exceeds the maximum datagram payload of {} bytes.",
+                        maxPayloadSize);
             }
-        } catch (IOException ex) {
-            final String msg = "Failed to send DatagramPacket to " + inetAddress;
-            log.error(msg, ex);
+        } finally {
+            lock.unlock();
         }
     }
 
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            flushPending();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setTelemetry(SinkTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /** Messages are packed into a datagram that is only sent once it is full or flushed. */
+    @Override
+    public boolean isBuffering() {
+        return true;
+    }
+
+    @Override
+    public void setWriteListener(IntConsumer listener) {
+        this.writeListener = listener;
+    }
+
+    /** @return the number of messages dropped because they did not fit into a datagram */
+    long getOversizedMessages() {
+        return oversizedMessages.get();
+    }
+
     @Override
     public void close() throws IOException {
-        if (datagramSocket != null) {
-            datagramSocket.close();
+        lock.lock();
+        try {
+            try {
+                flushPending();
+            } catch (RuntimeException e) {
+                // the failed datagram was already logged and counted as dropped
+            }
+            if (channel != null) {
+                channel.close();
+                // a new channel is opened by the next send
+                channel = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encode the message into the pending datagram, separating it from the previous message with
+     * a newline if necessary.
+     *
+     * @return true if the message fit, otherwise the pending datagram is left unchanged
+     */
+    private boolean append(String message) {
+        int start = pending.position();
+        if (start > 0 && pending.get(start - 1) != '\n') {
+            if (!pending.hasRemaining()) {
+                return false;
+            }
+            pending.put((byte) '\n');
+        }
+
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(message), pending, true);
+        if (!result.isOverflow()) {
+            result = encoder.flush(pending);
         }
+        if (result.isOverflow()) {
+            pending.position(start);
+            return false;
+        }
+        pendingMessages++;
+        return true;
     }
 
-    private void createSocket() {
+    private void flushPending() {
+        if (pending.position() == 0) {
+            return;
+        }
+        pending.flip();
         try {
-            datagramSocket = new DatagramSocket();
-        } catch (SocketException ex) {
-            final String msg = "Could not instantiate DatagramSocket to " + endpoint.getHost();
+            if (channel == null) {
+                channel = DatagramChannel.open();
+            }
+            telemetry.recordBytes(channel.send(pending, inetAddress));
+            writeListener.accept(pendingMessages);
+        } catch (IOException ex) {
+            final String msg = "Failed to send datagram to " + endpoint;
             log.error(msg, ex);
+            telemetry.recordDrops(pendingMessages);
+            throw new RuntimeException(msg, ex);
+        } finally {
+            pending.clear();
+            pendingMessages = 0;
         }
     }
 }
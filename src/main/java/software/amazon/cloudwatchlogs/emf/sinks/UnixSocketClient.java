@@ -0,0 +1,123 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A client that would connect to a Unix domain socket. Unix domain socket channels are only
+ * available on Java 16 and later, so they are looked up reflectively to keep the library
+ * compatible with older runtimes. Use {@link #isSupported()} before creating a client.
+ */
+public class UnixSocketClient extends StreamSocketClient {
+
+    private static final ProtocolFamily UNIX_FAMILY;
+    private static final Method OPEN_CHANNEL;
+    private static final Method CREATE_ADDRESS;
+
+    static {
+        ProtocolFamily family = null;
+        Method open = null;
+        Method address = null;
+        try {
+            family = StandardProtocolFamily.valueOf("UNIX");
+            open = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+            address =
+                    Class.forName("java.net.UnixDomainSocketAddress")
+                            .getMethod("of", String.class);
+        } catch (IllegalArgumentException | ReflectiveOperationException e) {
+            family = null;
+        }
+        UNIX_FAMILY = family;
+        OPEN_CHANNEL = open;
+        CREATE_ADDRESS = address;
+    }
+
+    private SocketChannel channel;
+
+    /** @param endpoint the endpoint whose host is the path of the socket file */
+    public UnixSocketClient(Endpoint endpoint) {
+        super(endpoint);
+    }
+
+    /** @return true if the current Java runtime supports Unix domain socket channels */
+    public static boolean isSupported() {
+        return UNIX_FAMILY != null;
+    }
+
+    @Override
+    protected void open() throws IOException {
+        channel = createChannel();
+        channel.connect(createAddress(endpoint.getHost()));
+    }
+
+    protected SocketChannel createChannel() throws IOException {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException(
+                    "Unix domain sockets require Java 16 or later.");
+        }
+        try {
+            return (SocketChannel) OPEN_CHANNEL.invoke(null, UNIX_FAMILY);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static SocketAddress createAddress(String path) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException(
+                    "Unix domain sockets require Java 16 or later.");
+        }
+        try {
+            return (SocketAddress) CREATE_ADDRESS.invoke(null, path);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Invalid socket path: " + path, e);
+        }
+    }
+
+    @Override
+    protected boolean isOpen() {
+        return channel != null && channel.isOpen();
+    }
+
+    @Override
+    protected void write(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    protected void closeConnection() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories for the background work done by sinks and environment detection. Virtual
+ * threads are only available on Java 21 and later, so they are created reflectively to keep the
+ * library compatible with older runtimes.
+ */
+public class Threads {
+    private Threads() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            // preview builds of older runtimes throw here unless previews are enabled
+            ofVirtual.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_FACTORY = factory;
+    }
+
+    /** @return true if the current Java runtime supports virtual threads */
+    public static boolean isVirtualThreadSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Create a factory for daemon platform threads named with the given prefix and a sequence
+     * number.
+     *
+     * @param prefix the thread name prefix
+     * @return the thread factory
+     */
+    public static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Create a factory for virtual threads named with the given prefix and a sequence number.
+     * Falls back to daemon platform threads if the runtime does not support virtual threads.
+     *
+     * @param prefix the thread name prefix
+     * @return the thread factory
+     */
+    public static ThreadFactory virtualThreadFactory(String prefix) {
+        if (isVirtualThreadSupported()) {
+            try {
+                Object builder = OF_VIRTUAL.invoke(null);
+                builder = BUILDER_NAME.invoke(builder, prefix + "-", 0L);
+                return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                // fall through to platform threads
+            }
+        }
+        return daemonThreadFactory(prefix);
+    }
+
+    /**
+     * @param prefix the thread name prefix
+     * @param virtual whether virtual threads should be used where the runtime supports them
+     * @return a virtual thread factory if requested, otherwise a daemon platform thread factory
+     */
+    public static ThreadFactory threadFactory(String prefix, boolean virtual) {
+        return virtual ? virtualThreadFactory(prefix) : daemonThreadFactory(prefix);
+    }
+
+    /**
+     * Create an executor that runs each task on a new thread from the given factory. This suits
+     * a handful of short-lived blocking tasks, such as environment probes, that should not occupy
+     * a shared pool.
+     *
+     * @param threadFactory the factory for the task threads
+     * @return the executor
+     */
+    public static Executor threadPerTaskExecutor(ThreadFactory threadFactory) {
+        return runnable -> threadFactory.newThread(runnable).start();
+    }
+
+    /**
+     * Wait until the executor has no queued or running tasks, without shutting it down.
+     *
+     * @param executor the executor to wait for
+     * @param timeoutMillis the maximum time to wait
+     * @return true if the executor became idle, false if the timeout elapsed or the thread was
+     *     interrupted
+     */
+    public static boolean awaitIdle(ThreadPoolExecutor executor, long timeoutMillis) {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        while (!executor.getQueue().isEmpty() || executor.getActiveCount() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+}
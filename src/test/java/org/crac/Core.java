@@ -0,0 +1,67 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.crac;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A minimal stand-in for the CRaC API, so that the checkpoint hooks can be tested locally. {@link
+ * #checkpointRestore()} notifies the registered resources without taking a checkpoint.
+ */
+public class Core {
+    private static final GlobalContext GLOBAL_CONTEXT = new GlobalContext();
+
+    public static Context<Resource> getGlobalContext() {
+        return GLOBAL_CONTEXT;
+    }
+
+    public static void checkpointRestore() throws Exception {
+        GLOBAL_CONTEXT.beforeCheckpoint(null);
+        GLOBAL_CONTEXT.afterRestore(null);
+    }
+
+    /** @return the number of resources registered with the global context */
+    public static int getRegisteredResources() {
+        return GLOBAL_CONTEXT.resources.size();
+    }
+
+    private static class GlobalContext extends Context<Resource> {
+        private final List<Resource> resources = new ArrayList<>();
+
+        @Override
+        public synchronized void register(Resource resource) {
+            resources.add(resource);
+        }
+
+        @Override
+        public synchronized void beforeCheckpoint(Context<? extends Resource> context)
+                throws Exception {
+            for (int i = resources.size() - 1; i >= 0; i--) {
+                resources.get(i).beforeCheckpoint(this);
+            }
+        }
+
+        @Override
+        public synchronized void afterRestore(Context<? extends Resource> context)
+                throws Exception {
+            for (Resource resource : resources) {
+                resource.afterRestore(this);
+            }
+        }
+    }
+}
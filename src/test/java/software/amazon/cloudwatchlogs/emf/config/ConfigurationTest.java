@@ -18,10 +18,12 @@ package software.amazon.cloudwatchlogs.emf.config;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import com.github.javafaker.Faker;
 import org.junit.Before;
 import org.junit.Test;
+import software.amazon.cloudwatchlogs.emf.Constants;
 import software.amazon.cloudwatchlogs.emf.environment.Environments;
 
 public class ConfigurationTest {
@@ -89,4 +91,27 @@ public class ConfigurationTest {
         assertEquals(expectedEnvironment, config.getEnvironmentOverride());
         assertEquals(expectedAsyncBufferSize, config.getAsyncBufferSize());
     }
+
+    @Test
+    public void testBasicConstructorUsesDefaultsForOtherSettings() {
+        Configuration basic =
+                new Configuration(
+                        "service",
+                        "type",
+                        "group",
+                        "stream",
+                        "tcp://127.0.0.1:25888",
+                        Environments.Agent,
+                        50,
+                        true);
+
+        assertEquals("service", basic.getServiceName().get());
+        assertEquals("tcp://127.0.0.1:25888", basic.getAgentEndpoint().get());
+        assertEquals(Environments.Agent, basic.getEnvironmentOverride());
+        assertEquals(50, basic.getAsyncBufferSize());
+        assertTrue(basic.shouldWriteToStdout());
+        assertEquals(Constants.DEFAULT_SPILL_SEGMENT_SIZE, basic.getSpillSegmentSize());
+        assertEquals(Constants.DEFAULT_FILE_SINK_MAX_FILES, basic.getFileSinkMaxFiles());
+        assertEquals(Constants.DEFAULT_FLUENT_TAG, basic.getFluentTag());
+    }
 }
@@ -18,17 +18,29 @@ package software.amazon.cloudwatchlogs.emf.config;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import software.amazon.cloudwatchlogs.emf.environment.Environments;
+import software.amazon.cloudwatchlogs.emf.sinks.HttpBatchFormat;
+import software.amazon.cloudwatchlogs.emf.sinks.OverflowPolicy;
+import software.amazon.cloudwatchlogs.emf.sinks.PartitionStrategy;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({SystemWrapper.class})
 public class EnvironmentConfigurationProviderTest {
 
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void getGetConfig() {
         PowerMockito.mockStatic(SystemWrapper.class);
@@ -41,6 +53,32 @@ public class EnvironmentConfigurationProviderTest {
         putEnv("AWS_EMF_ENVIRONMENT", "Agent");
         putEnv("AWS_EMF_ASYNC_BUFFER_SIZE", "9999");
         putEnv("AWS_EMF_WRITE_TO_STDOUT", "true");
+        putEnv("AWS_EMF_CIRCUIT_BREAKER_THRESHOLD", "5");
+        putEnv("AWS_EMF_AGENT_CONNECTION_COUNT", "4");
+        putEnv("AWS_EMF_AGENT_PARTITION_STRATEGY", "log_stream");
+        putEnv("AWS_EMF_SPILL_DIRECTORY", "/tmp/emf-spill");
+        putEnv("AWS_EMF_SPILL_MAX_SEGMENTS", "8");
+        putEnv("AWS_EMF_UDP_MAX_PAYLOAD_SIZE", "1472");
+        putEnv("AWS_EMF_BUFFERED_STDOUT", "true");
+        putEnv("AWS_EMF_STDOUT_ASYNC_QUEUE_DEPTH", "100");
+        putEnv("AWS_EMF_FILE_SINK_DIRECTORY", "/var/log/emf");
+        putEnv("AWS_EMF_FILE_SINK_ROTATION_SECONDS", "60");
+        putEnv("AWS_EMF_TELEMETRY_INTERVAL_SECONDS", "30");
+        putEnv("AWS_EMF_AGGREGATION_SATURATION_PERCENT", "80");
+        putEnv("AWS_EMF_USE_VIRTUAL_THREADS", "true");
+        putEnv("AWS_EMF_WARM_UP", "true");
+        putEnv("AWS_EMF_FLUENT_FORWARD", "true");
+        putEnv("AWS_EMF_FLUENT_TAG", "app.emf");
+        putEnv("AWS_EMF_FLUENT_REQUIRE_ACK", "true");
+        putEnv("AWS_EMF_HTTP_ENDPOINT", "http://127.0.0.1:8888/emf");
+        putEnv("AWS_EMF_HTTP_BATCH_FORMAT", "ndjson");
+        putEnv("AWS_EMF_HTTP_GZIP", "true");
+        putEnv("AWS_EMF_ENVIRONMENT_DETECTION_TIMEOUT_MILLIS", "500");
+        putEnv("AWS_EMF_ENVIRONMENT_CACHE_FILE", "/tmp/emf-environment.json");
+        putEnv("AWS_EMF_ENVIRONMENT_CACHE_TTL_SECONDS", "60");
+        putEnv("AWS_EMF_EC2_METADATA_TIMEOUT_MILLIS", "250");
+        putEnv("AWS_EMF_ECS_METADATA_TIMEOUT_MILLIS", "300");
+        putEnv("AWS_EMF_OVERFLOW_POLICY", "drop_newest");
 
         Configuration config = EnvironmentConfigurationProvider.createConfig();
 
@@ -52,6 +90,78 @@ public class EnvironmentConfigurationProviderTest {
         assertEquals(Environments.Agent, config.getEnvironmentOverride());
         assertEquals(9999, config.getAsyncBufferSize());
         assertTrue(config.shouldWriteToStdout());
+        assertEquals(5, config.getCircuitBreakerThreshold());
+        assertEquals(4, config.getAgentConnectionCount());
+        assertEquals(PartitionStrategy.LOG_STREAM, config.getAgentPartitionStrategy());
+        assertEquals("/tmp/emf-spill", config.getSpillDirectory().get());
+        assertEquals(8, config.getSpillMaxSegments());
+        assertEquals(1472, config.getUdpMaxPayloadSize());
+        assertTrue(config.shouldBufferStdout());
+        assertEquals(100, config.getStdoutAsyncQueueDepth());
+        assertEquals("/var/log/emf", config.getFileSinkDirectory().get());
+        assertEquals(60, config.getFileSinkRotationSeconds());
+        assertEquals(30, config.getTelemetryIntervalSeconds());
+        assertEquals(80, config.getAggregationSaturationPercent());
+        assertTrue(config.shouldUseVirtualThreads());
+        assertTrue(config.shouldWarmUp());
+        assertTrue(config.shouldUseFluentForward());
+        assertEquals("app.emf", config.getFluentTag());
+        assertTrue(config.shouldRequireFluentAck());
+        assertEquals("http://127.0.0.1:8888/emf", config.getHttpEndpoint().get());
+        assertEquals(HttpBatchFormat.NDJSON, config.getHttpBatchFormat());
+        assertTrue(config.shouldGzipHttp());
+        assertEquals(500, config.getEnvironmentDetectionTimeoutMillis());
+        assertEquals("/tmp/emf-environment.json", config.getEnvironmentCacheFile().get());
+        assertEquals(60, config.getEnvironmentCacheTtlSeconds());
+        assertEquals(250, config.getEc2MetadataTimeoutMillis());
+        assertEquals(300, config.getEcsMetadataTimeoutMillis());
+        assertEquals(OverflowPolicy.DROP_NEWEST, config.getOverflowPolicy());
+    }
+
+    @Test
+    public void systemPropertiesTakePrecedenceOverEnvironmentVariables() {
+        PowerMockito.mockStatic(SystemWrapper.class);
+
+        putEnv("AWS_EMF_ASYNC_BUFFER_SIZE", "9999");
+        putEnv("AWS_EMF_LOG_GROUP_NAME", "EnvLogGroup");
+        putProperty("aws.emf.async.buffer.size", "500");
+
+        Configuration config = EnvironmentConfigurationProvider.createConfig();
+
+        assertEquals(500, config.getAsyncBufferSize());
+        assertEquals("EnvLogGroup", config.getLogGroupName().get());
+    }
+
+    @Test
+    public void valuesAreReadFromTheConfigFile() throws IOException {
+        PowerMockito.mockStatic(SystemWrapper.class);
+        File file = folder.newFile("emf.properties");
+        Files.write(
+                file.toPath(),
+                Arrays.asList(
+                        "aws.emf.service.name=FileServiceName",
+                        "aws.emf.async.buffer.size=250",
+                        "aws.emf.overflow.policy=DROP_NEWEST"),
+                StandardCharsets.UTF_8);
+
+        putEnv("AWS_EMF_CONFIG_FILE", file.getPath());
+        putEnv("AWS_EMF_ASYNC_BUFFER_SIZE", "9999");
+
+        Configuration config = EnvironmentConfigurationProvider.createConfig();
+
+        assertEquals("FileServiceName", config.getServiceName().get());
+        assertEquals(9999, config.getAsyncBufferSize());
+        assertEquals(OverflowPolicy.DROP_NEWEST, config.getOverflowPolicy());
+    }
+
+    @Test
+    public void missingConfigFileIsIgnored() {
+        PowerMockito.mockStatic(SystemWrapper.class);
+
+        putProperty("aws.emf.config.file", "/does/not/exist/emf.properties");
+
+        Configuration config = EnvironmentConfigurationProvider.createConfig();
+        assertEquals(100, config.getAsyncBufferSize());
     }
 
     @Test
@@ -80,4 +190,8 @@ public class EnvironmentConfigurationProviderTest {
     private void putEnv(String key, String value) {
         PowerMockito.when(SystemWrapper.getenv(key)).thenReturn(value);
     }
+
+    private void putProperty(String key, String value) {
+        PowerMockito.when(SystemWrapper.getProperty(key)).thenReturn(value);
+    }
 }
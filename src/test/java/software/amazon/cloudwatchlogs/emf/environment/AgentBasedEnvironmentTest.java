@@ -1,8 +1,11 @@
 package software.amazon.cloudwatchlogs.emf.environment;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.powermock.api.mockito.PowerMockito.mock;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -11,11 +14,14 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import software.amazon.cloudwatchlogs.emf.config.Configuration;
 import software.amazon.cloudwatchlogs.emf.config.SystemWrapper;
+import software.amazon.cloudwatchlogs.emf.logger.MetricsLogger;
 import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
 import software.amazon.cloudwatchlogs.emf.sinks.AgentSink;
 import software.amazon.cloudwatchlogs.emf.sinks.ConsoleSink;
 import software.amazon.cloudwatchlogs.emf.sinks.Endpoint;
+import software.amazon.cloudwatchlogs.emf.sinks.HttpSink;
 import software.amazon.cloudwatchlogs.emf.sinks.ISink;
+import software.amazon.cloudwatchlogs.emf.sinks.RotatingFileSink;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({SystemWrapper.class, AgentBasedEnvironment.class})
@@ -94,6 +100,52 @@ public class AgentBasedEnvironmentTest {
         assertEquals(ConsoleSink.class, sink.getClass());
     }
 
+    @Test
+    public void testGetSinkWithFileSinkDirectory() {
+        configuration.setFileSinkDirectory(System.getProperty("java.io.tmpdir"));
+
+        AgentBasedEnvironment env = new AgentBasedEnvironmentTestImplementation(configuration);
+        ISink sink = env.getSink();
+
+        assertEquals(RotatingFileSink.class, sink.getClass());
+        sink.shutdown().join();
+    }
+
+    @Test
+    public void testGetSinkWithHttpEndpoint() {
+        configuration.setHttpEndpoint("http://127.0.0.1:8888/emf");
+
+        AgentBasedEnvironment env = new AgentBasedEnvironmentTestImplementation(configuration);
+        ISink sink = env.getSink();
+
+        assertEquals(HttpSink.class, sink.getClass());
+        sink.shutdown().join();
+    }
+
+    @Test
+    public void warmUpAndFlushShareASingleSink() throws Exception {
+        AgentSink mockedSink = mock(AgentSink.class);
+        AtomicInteger created = new AtomicInteger();
+        PowerMockito.whenNew(AgentSink.class)
+                .withAnyArguments()
+                .then(
+                        invocation -> {
+                            created.incrementAndGet();
+                            // widen the window in which a second caller could build a sink
+                            Thread.sleep(100);
+                            return mockedSink;
+                        });
+
+        AgentBasedEnvironment env = new AgentBasedEnvironmentTestImplementation(configuration);
+        MetricsLogger logger = new MetricsLogger(env);
+        CompletableFuture<Void> warmUp = logger.warmUp();
+        logger.flush();
+        warmUp.join();
+
+        assertEquals(1, created.get());
+        assertSame(mockedSink, env.getSink());
+    }
+
     @Test
     public void testGetSinkOverrideToStdOutFailFastOnImproperOverride() throws Exception {
         configuration.setShouldWriteToStdout(false);
@@ -0,0 +1,145 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.environment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.util.Optional;
+import org.crac.Core;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import software.amazon.cloudwatchlogs.emf.config.Configuration;
+import software.amazon.cloudwatchlogs.emf.config.EnvironmentConfigurationProvider;
+import software.amazon.cloudwatchlogs.emf.config.SystemWrapper;
+import software.amazon.cloudwatchlogs.emf.sinks.AgentSink;
+import software.amazon.cloudwatchlogs.emf.sinks.SpillQueue;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({SystemWrapper.class, EnvironmentConfigurationProvider.class})
+public class CheckpointHooksTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private EnvironmentProvider environmentProvider;
+    private Configuration config;
+
+    @Before
+    public void setUp() {
+        environmentProvider = new EnvironmentProvider();
+        environmentProvider.cleanResolvedEnvironment();
+        config = mock(Configuration.class);
+        PowerMockito.mockStatic(EnvironmentConfigurationProvider.class);
+        when(EnvironmentConfigurationProvider.getConfig()).thenReturn(config);
+    }
+
+    @After
+    public void cleanCache() {
+        environmentProvider.cleanResolvedEnvironment();
+    }
+
+    @Test
+    public void hooksAreRegisteredWithTheCracApi() throws Exception {
+        int registered = Core.getRegisteredResources();
+
+        assertTrue(CheckpointHooks.register(Core.class.getClassLoader()));
+        assertEquals(registered + 1, Core.getRegisteredResources());
+
+        long restores = CheckpointHooks.getRestoreCount();
+        Core.checkpointRestore();
+        assertTrue(CheckpointHooks.getRestoreCount() > restores);
+    }
+
+    @Test
+    public void defaultEnvironmentIsResolvedAgainAfterRestore() {
+        when(config.getEnvironmentOverride()).thenReturn(Environments.Agent);
+        Environment environment = environmentProvider.resolveEnvironment().join();
+        assertSame(environment, EnvironmentProvider.getResolvedEnvironment());
+
+        CheckpointHooks.beforeCheckpoint();
+        CheckpointHooks.afterRestore();
+
+        // the default environment captures its properties once, and may differ on the new host
+        assertNull(EnvironmentProvider.getResolvedEnvironment());
+    }
+
+    @Test
+    public void lambdaEnvironmentIsKeptAfterRestore() {
+        PowerMockito.mockStatic(SystemWrapper.class);
+        when(SystemWrapper.getenv("AWS_LAMBDA_FUNCTION_NAME")).thenReturn("function");
+        when(config.getEnvironmentOverride()).thenReturn(Environments.Unknown);
+        Environment environment = environmentProvider.resolveEnvironment().join();
+
+        CheckpointHooks.beforeCheckpoint();
+        CheckpointHooks.afterRestore();
+
+        assertSame(environment, EnvironmentProvider.getResolvedEnvironment());
+        assertSame(environment, environmentProvider.resolveEnvironment().join());
+    }
+
+    @Test
+    public void environmentIsResolvedAgainWhenItNoLongerMatches() {
+        PowerMockito.mockStatic(SystemWrapper.class);
+        when(SystemWrapper.getenv("AWS_LAMBDA_FUNCTION_NAME")).thenReturn("function");
+        when(config.getEnvironmentOverride()).thenReturn(Environments.Unknown);
+        assertTrue(environmentProvider.resolveEnvironment().join() instanceof LambdaEnvironment);
+
+        when(SystemWrapper.getenv("AWS_LAMBDA_FUNCTION_NAME")).thenReturn(null);
+        CheckpointHooks.afterRestore();
+
+        assertNull(EnvironmentProvider.getResolvedEnvironment());
+    }
+
+    @Test
+    public void spillingStillWorksAfterRepeatedRestores() throws Exception {
+        when(config.getEnvironmentOverride()).thenReturn(Environments.Agent);
+        when(config.getSpillDirectory())
+                .thenReturn(Optional.of(folder.getRoot().getAbsolutePath()));
+        when(config.getSpillSegmentSize()).thenReturn(64 * 1024);
+        when(config.getSpillMaxSegments()).thenReturn(4);
+
+        Environment environment = environmentProvider.resolveEnvironment().join();
+        for (int restore = 0; restore < 2; restore++) {
+            AgentSink sink = (AgentSink) environment.getSink();
+            SpillQueue spillQueue = sink.getSpillQueue();
+            assertNotNull(spillQueue);
+            assertTrue(spillQueue.offer("{\"restore\":" + restore + "}"));
+
+            CheckpointHooks.beforeCheckpoint();
+            CheckpointHooks.afterRestore();
+
+            environment = environmentProvider.resolveEnvironment().join();
+            assertNotSame(sink, environment.getSink());
+        }
+
+        // the sink of each discarded environment released the directory to the next one
+        assertNotNull(((AgentSink) environment.getSink()).getSpillQueue());
+        environment.shutdown().join();
+    }
+}
@@ -18,10 +18,15 @@ package software.amazon.cloudwatchlogs.emf.environment;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.github.javafaker.Faker;
+import java.util.Collections;
 import java.util.Optional;
 import org.junit.Before;
 import org.junit.Test;
@@ -108,6 +113,39 @@ public class EC2EnvironmentTest {
         assertEquals(metadata.getAvailabilityZone(), context.getProperty("availabilityZone"));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTokenIsReusedAcrossProbes() {
+        when(fetcher.fetch(any(), eq("PUT"), anyMap())).thenReturn("token");
+        when(fetcher.fetch(any(), any(), (Class<Object>) any(), any()))
+                .thenReturn(new EC2Environment.EC2Metadata());
+
+        assertTrue(environment.probe());
+        assertTrue(environment.probe());
+
+        verify(fetcher, times(1)).fetch(any(), eq("PUT"), anyMap());
+        verify(fetcher, times(2))
+                .fetch(
+                        any(),
+                        eq("GET"),
+                        (Class<Object>) any(),
+                        eq(Collections.singletonMap("X-aws-ec2-metadata-token", "token")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTokenIsRefreshedAfterFailedRequest() {
+        when(fetcher.fetch(any(), eq("PUT"), anyMap())).thenReturn("token");
+        when(fetcher.fetch(any(), any(), (Class<Object>) any(), any()))
+                .thenThrow(new EMFClientException("Unauthorized"))
+                .thenReturn(new EC2Environment.EC2Metadata());
+
+        assertFalse(environment.probe());
+        assertTrue(environment.probe());
+
+        verify(fetcher, times(2)).fetch(any(), eq("PUT"), anyMap());
+    }
+
     private void getRandomMetadata(EC2Environment.EC2Metadata metadata) {
         metadata.setImageId(faker.letterify("?????"));
         metadata.setInstanceId(faker.letterify("?????"));
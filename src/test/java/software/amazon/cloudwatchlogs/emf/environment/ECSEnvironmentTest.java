@@ -131,6 +131,23 @@ public class ECSEnvironmentTest {
                 "tcp://" + fluentHost + ":" + Constants.DEFAULT_AGENT_PORT, argument.getValue());
     }
 
+    @Test
+    public void testSetFluentBitWithFluentForward() {
+        PowerMockito.mockStatic(SystemWrapper.class);
+        String uri = "http://ecs-metata.com";
+        PowerMockito.when(SystemWrapper.getenv("ECS_CONTAINER_METADATA_URI")).thenReturn(uri);
+        String fluentHost = "localhost";
+        PowerMockito.when(SystemWrapper.getenv("FLUENT_HOST")).thenReturn(fluentHost);
+        when(config.shouldUseFluentForward()).thenReturn(true);
+
+        environment.probe();
+        ArgumentCaptor<String> argument = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(config, times(1)).setAgentEndpoint(argument.capture());
+        assertEquals(
+                "forward://" + fluentHost + ":" + Constants.DEFAULT_FLUENT_FORWARD_PORT,
+                argument.getValue());
+    }
+
     @Test
     public void testGetLogGroupNameReturnEmpty() {
         PowerMockito.mockStatic(SystemWrapper.class);
@@ -0,0 +1,134 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.environment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.cloudwatchlogs.emf.config.Configuration;
+
+public class EnvironmentCacheTest {
+    private static final String INSTANCE_ID = "i-0123456789abcdef0";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path cacheFile;
+    private Path instanceIdFile;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheFile = folder.getRoot().toPath().resolve("cache").resolve("environment.json");
+        instanceIdFile = folder.newFile("instance-id").toPath();
+        writeInstanceId(INSTANCE_ID);
+    }
+
+    @Test
+    public void testRestoreSavedEnvironment() {
+        EnvironmentCache cache = new EnvironmentCache(cacheFile, 60_000);
+        cache.save(ec2Environment(metadata(INSTANCE_ID)));
+
+        EC2Environment restored = ec2Environment(null);
+        Optional<Environment> environment = cache.restore(candidates(restored));
+
+        assertTrue(environment.isPresent());
+        assertSame(restored, environment.get());
+        assertEquals("ami-12345678", restored.getMetadata().getImageId());
+        assertEquals("AWS::EC2::Instance", restored.getType());
+    }
+
+    @Test
+    public void testNotRestoredWhenIdentityChanged() throws IOException {
+        EnvironmentCache cache = new EnvironmentCache(cacheFile, 60_000);
+        cache.save(ec2Environment(metadata(INSTANCE_ID)));
+
+        writeInstanceId("i-0fedcba9876543210");
+
+        assertFalse(cache.restore(candidates(ec2Environment(null))).isPresent());
+    }
+
+    @Test
+    public void testNotRestoredWhenExpired() {
+        EnvironmentCache cache = new EnvironmentCache(cacheFile, -1);
+        cache.save(ec2Environment(metadata(INSTANCE_ID)));
+
+        assertTrue(Files.exists(cacheFile));
+        assertFalse(cache.restore(candidates(ec2Environment(null))).isPresent());
+    }
+
+    @Test
+    public void testNotRestoredWhenFileIsMissingOrInvalid() throws IOException {
+        EnvironmentCache cache = new EnvironmentCache(cacheFile, 60_000);
+        assertFalse(cache.restore(candidates(ec2Environment(null))).isPresent());
+
+        Files.createDirectories(cacheFile.getParent());
+        Files.write(cacheFile, "{not json".getBytes(StandardCharsets.UTF_8));
+        assertFalse(cache.restore(candidates(ec2Environment(null))).isPresent());
+    }
+
+    @Test
+    public void testNotSavedWithoutMetadata() {
+        EnvironmentCache cache = new EnvironmentCache(cacheFile, 60_000);
+        cache.save(ec2Environment(null));
+        cache.save(new DefaultEnvironment(new Configuration()));
+
+        assertFalse(Files.exists(cacheFile));
+    }
+
+    private EC2Environment ec2Environment(EC2Environment.EC2Metadata metadata) {
+        EC2Environment environment =
+                new EC2Environment(
+                        mock(Configuration.class),
+                        mock(ResourceFetcher.class),
+                        Collections.singletonList(instanceIdFile));
+        if (metadata != null) {
+            assertTrue(environment.restoreMetadata(metadata));
+        }
+        return environment;
+    }
+
+    private static List<CacheableEnvironment<?>> candidates(CacheableEnvironment<?>... candidates) {
+        return Arrays.asList(candidates);
+    }
+
+    private static EC2Environment.EC2Metadata metadata(String instanceId) {
+        EC2Environment.EC2Metadata metadata = new EC2Environment.EC2Metadata();
+        metadata.setInstanceId(instanceId);
+        metadata.setImageId("ami-12345678");
+        metadata.setInstanceType("m5.large");
+        return metadata;
+    }
+
+    private void writeInstanceId(String instanceId) throws IOException {
+        Files.write(instanceIdFile, (instanceId + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -16,13 +16,25 @@
 
 package software.amazon.cloudwatchlogs.emf.environment;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 import static org.powermock.api.mockito.PowerMockito.when;
 
 import com.github.javafaker.Faker;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -33,6 +45,7 @@ import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
 import software.amazon.cloudwatchlogs.emf.config.Configuration;
 import software.amazon.cloudwatchlogs.emf.config.EnvironmentConfigurationProvider;
 import software.amazon.cloudwatchlogs.emf.config.SystemWrapper;
@@ -152,6 +165,18 @@ public class EnvironmentProviderTest {
         assertTrue(resolvedEnvironment.join() instanceof ECSEnvironment);
     }
 
+    @Test
+    public void testResolveEnvironmentReturnsKubernetesEnvironment() {
+        PowerMockito.mockStatic(EnvironmentConfigurationProvider.class);
+        when(EnvironmentConfigurationProvider.getConfig()).thenReturn(config);
+        when(config.getEnvironmentOverride()).thenReturn(Environments.Kubernetes);
+
+        CompletableFuture<Environment> resolvedEnvironment =
+                environmentProvider.resolveEnvironment();
+
+        assertTrue(resolvedEnvironment.join() instanceof KubernetesEnvironment);
+    }
+
     @Test
     public void testResolveEnvironmentReturnsLocalEnvironment() {
         PowerMockito.mockStatic(EnvironmentConfigurationProvider.class);
@@ -173,20 +198,20 @@ public class EnvironmentProviderTest {
         DefaultEnvironment mockedDefaultEnv = mock(DefaultEnvironment.class);
         when(mockedDefaultEnv.probe()).thenReturn(true);
 
-        Environment[] envs = new Environment[] {mockedECSEnv, mockedEC2Env, mockedDefaultEnv};
+        List<Supplier<Environment>> envs = candidates(mockedECSEnv, mockedEC2Env, mockedDefaultEnv);
         FieldSetter.setField(
                 environmentProvider,
-                EnvironmentProvider.class.getDeclaredField("environments"),
+                EnvironmentProvider.class.getDeclaredField("candidates"),
                 envs);
         Environment env = environmentProvider.resolveEnvironment().join();
         assertSame(env, mockedECSEnv);
         environmentProvider.cleanResolvedEnvironment();
 
-        Environment[] EC2FirstEnvs =
-                new Environment[] {mockedEC2Env, mockedECSEnv, mockedDefaultEnv};
+        List<Supplier<Environment>> EC2FirstEnvs =
+                candidates(mockedEC2Env, mockedECSEnv, mockedDefaultEnv);
         FieldSetter.setField(
                 environmentProvider,
-                EnvironmentProvider.class.getDeclaredField("environments"),
+                EnvironmentProvider.class.getDeclaredField("candidates"),
                 EC2FirstEnvs);
         Environment expectedEnv = environmentProvider.resolveEnvironment().join();
         assertSame(expectedEnv, mockedEC2Env);
@@ -211,14 +236,218 @@ public class EnvironmentProviderTest {
                                 return true;
                             }
                         });
-        Environment[] envs = new Environment[] {mockedLambdaEnv, mockedDefaultEnv, mockedEC2Env};
+        List<Supplier<Environment>> envs =
+                candidates(mockedLambdaEnv, mockedDefaultEnv, mockedEC2Env);
 
         FieldSetter.setField(
                 environmentProvider,
-                EnvironmentProvider.class.getDeclaredField("environments"),
+                EnvironmentProvider.class.getDeclaredField("candidates"),
                 envs);
         Environment env = environmentProvider.resolveEnvironment().join();
         assertSame(env, mockedLambdaEnv);
         assertTrue(System.currentTimeMillis() - startTime < 3_000);
     }
+
+    @Test
+    public void testProbesRunOnTheGivenExecutor() throws Exception {
+        AtomicInteger tasks = new AtomicInteger();
+        EnvironmentProvider provider =
+                new EnvironmentProvider(
+                        runnable -> {
+                            tasks.incrementAndGet();
+                            new Thread(runnable).start();
+                        });
+        EC2Environment mockedEC2Env = mock(EC2Environment.class);
+        when(mockedEC2Env.hasNetworkProbe()).thenReturn(true);
+        when(mockedEC2Env.probe()).thenReturn(true);
+        DefaultEnvironment mockedDefaultEnv = mock(DefaultEnvironment.class);
+        when(mockedDefaultEnv.probe()).thenReturn(true);
+        List<Supplier<Environment>> envs = candidates(mockedEC2Env, mockedDefaultEnv);
+
+        FieldSetter.setField(
+                provider, EnvironmentProvider.class.getDeclaredField("candidates"), envs);
+        provider.cleanResolvedEnvironment();
+        Environment env = provider.resolveEnvironment().join();
+
+        assertSame(env, mockedEC2Env);
+        // one task for the network probe and one that enforces the deadline, while the local
+        // probe runs on the calling thread
+        assertEquals(2, tasks.get());
+    }
+
+    @Test
+    public void testConcurrentResolutionsProbeOnce() throws Exception {
+        AtomicInteger probes = new AtomicInteger();
+        EC2Environment mockedEC2Env = mock(EC2Environment.class);
+        when(mockedEC2Env.hasNetworkProbe()).thenReturn(true);
+        when(mockedEC2Env.probe())
+                .thenAnswer(
+                        invocation -> {
+                            probes.incrementAndGet();
+                            Thread.sleep(200);
+                            return true;
+                        });
+        DefaultEnvironment mockedDefaultEnv = mock(DefaultEnvironment.class);
+        List<Supplier<Environment>> envs = candidates(mockedEC2Env, mockedDefaultEnv);
+
+        int callers = 50;
+        List<EnvironmentProvider> providers = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            EnvironmentProvider provider = new EnvironmentProvider();
+            FieldSetter.setField(
+                    provider, EnvironmentProvider.class.getDeclaredField("candidates"), envs);
+            providers.add(provider);
+        }
+        environmentProvider.cleanResolvedEnvironment();
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Environment>> resolutions = new ArrayList<>();
+        for (EnvironmentProvider provider : providers) {
+            resolutions.add(
+                    CompletableFuture.supplyAsync(
+                                    () -> {
+                                        try {
+                                            start.await();
+                                        } catch (InterruptedException e) {
+                                            Thread.currentThread().interrupt();
+                                        }
+                                        return provider.resolveEnvironment();
+                                    },
+                                    executor)
+                            .thenCompose(future -> future));
+        }
+        start.countDown();
+
+        for (CompletableFuture<Environment> resolution : resolutions) {
+            assertSame(mockedEC2Env, resolution.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, probes.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testDefaultDetectionTimeoutCoversTheSlowestProbe() {
+        when(config.getEc2MetadataTimeoutMillis()).thenReturn(1000);
+        when(config.getEcsMetadataTimeoutMillis()).thenReturn(1000);
+        // the EC2 probe requests a token and then the identity document
+        assertEquals(2500, EnvironmentProvider.defaultDetectionTimeoutMillis(config));
+
+        when(config.getEc2MetadataTimeoutMillis()).thenReturn(0);
+        when(config.getEcsMetadataTimeoutMillis()).thenReturn(3000);
+        assertEquals(3500, EnvironmentProvider.defaultDetectionTimeoutMillis(config));
+    }
+
+    @Test
+    public void testEnvironmentsAreCreatedOnFirstUse() {
+        EnvironmentProvider provider = new EnvironmentProvider();
+        assertNull(Whitebox.getInternalState(provider, "defaultEnvironment"));
+        assertNull(Whitebox.getInternalState(provider, "candidates"));
+
+        Environment defaultEnv = provider.getDefaultEnvironment();
+
+        assertTrue(defaultEnv instanceof DefaultEnvironment);
+        assertSame(defaultEnv, provider.getDefaultEnvironment());
+        assertNull(Whitebox.getInternalState(provider, "lambdaEnvironment"));
+        assertNull(Whitebox.getInternalState(provider, "ec2Environment"));
+        assertNull(Whitebox.getInternalState(provider, "candidates"));
+    }
+
+    @Test
+    public void testOnlyProbedEnvironmentsAreCreated() {
+        PowerMockito.mockStatic(SystemWrapper.class);
+        when(SystemWrapper.getenv("AWS_LAMBDA_FUNCTION_NAME")).thenReturn("test-function");
+        EnvironmentProvider provider = new EnvironmentProvider();
+
+        Environment env = provider.resolveEnvironment().join();
+
+        assertTrue(env instanceof LambdaEnvironment);
+        assertNull(Whitebox.getInternalState(provider, "ecsEnvironment"));
+        assertNull(Whitebox.getInternalState(provider, "ec2Environment"));
+        assertNull(Whitebox.getInternalState(provider, "defaultEnvironment"));
+    }
+
+    @Test
+    public void testDefaultEnvironmentIsCreatedOnceEveryProbeFailed() throws Exception {
+        EC2Environment mockedEC2Env = mock(EC2Environment.class);
+        when(mockedEC2Env.hasNetworkProbe()).thenReturn(true);
+        when(mockedEC2Env.probe()).thenReturn(false);
+        FieldSetter.setField(
+                environmentProvider,
+                EnvironmentProvider.class.getDeclaredField("candidates"),
+                candidates(mockedEC2Env));
+
+        Environment env = environmentProvider.resolveEnvironment().join();
+
+        assertTrue(env instanceof DefaultEnvironment);
+        assertSame(env, Whitebox.getInternalState(environmentProvider, "defaultEnvironment"));
+    }
+
+    @Test
+    public void testEnvironmentsAreCreatedOnceByConcurrentCallers() throws Exception {
+        EnvironmentProvider provider = new EnvironmentProvider();
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<Environment> defaults = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            calls.add(
+                    CompletableFuture.runAsync(
+                            () -> {
+                                try {
+                                    start.await();
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                                defaults.add(provider.getDefaultEnvironment());
+                            },
+                            executor));
+        }
+        start.countDown();
+
+        for (CompletableFuture<Void> call : calls) {
+            call.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(1, defaults.size());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testEnvironmentsAreNotCreatedOnceTheEnvironmentIsResolved() {
+        PowerMockito.mockStatic(EnvironmentConfigurationProvider.class);
+        when(EnvironmentConfigurationProvider.getConfig()).thenReturn(config);
+        when(config.getEnvironmentOverride()).thenReturn(Environments.Lambda);
+        Environment resolved = new EnvironmentProvider().resolveEnvironment().join();
+
+        EnvironmentProvider provider = new EnvironmentProvider();
+
+        assertSame(resolved, provider.resolveEnvironment().join());
+        assertNull(Whitebox.getInternalState(provider, "defaultEnvironment"));
+        assertNull(Whitebox.getInternalState(provider, "candidates"));
+    }
+
+    @Test
+    public void testInjectedEnvironmentsAreNotReplaced() throws Exception {
+        EC2Environment mockedEC2Env = mock(EC2Environment.class);
+        when(mockedEC2Env.probe()).thenReturn(true);
+        DefaultEnvironment mockedDefaultEnv = mock(DefaultEnvironment.class);
+        List<Supplier<Environment>> envs = candidates(mockedEC2Env, mockedDefaultEnv);
+        FieldSetter.setField(
+                environmentProvider,
+                EnvironmentProvider.class.getDeclaredField("candidates"),
+                envs);
+
+        assertSame(mockedEC2Env, environmentProvider.resolveEnvironment().join());
+        assertTrue(environmentProvider.getDefaultEnvironment() instanceof DefaultEnvironment);
+        assertSame(envs, Whitebox.getInternalState(environmentProvider, "candidates"));
+    }
+
+    private static List<Supplier<Environment>> candidates(Environment... environments) {
+        List<Supplier<Environment>> candidates = new ArrayList<>();
+        for (Environment environment : environments) {
+            candidates.add(() -> environment);
+        }
+        return candidates;
+    }
 }
@@ -0,0 +1,223 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.environment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+public class EnvironmentResolverTest {
+    private final AtomicInteger tasks = new AtomicInteger();
+    private final Executor executor =
+            runnable -> {
+                tasks.incrementAndGet();
+                new Thread(runnable).start();
+            };
+
+    @Test
+    public void localCandidateResolvesWithoutStartingNetworkProbes() {
+        Environment lambda = localEnvironment(true);
+        Environment ec2 = networkEnvironment(true);
+
+        Optional<Environment> env =
+                new EnvironmentResolver(candidates(lambda, ec2), executor, 60_000)
+                        .resolve()
+                        .join();
+
+        assertSame(lambda, env.get());
+        verify(ec2, never()).probe();
+        assertEquals(0, tasks.get());
+    }
+
+    @Test
+    public void candidatesAfterAPositiveLocalProbeAreNotCreated() {
+        Environment lambda = localEnvironment(true);
+        AtomicInteger created = new AtomicInteger();
+        List<Supplier<Environment>> candidates = candidates(lambda);
+        candidates.add(
+                () -> {
+                    created.incrementAndGet();
+                    return networkEnvironment(true);
+                });
+
+        Optional<Environment> env =
+                new EnvironmentResolver(candidates, executor, 60_000).resolve().join();
+
+        assertSame(lambda, env.get());
+        assertEquals(0, created.get());
+    }
+
+    @Test
+    public void resolvesOnceTheHighestPriorityCandidateIsKnown() throws InterruptedException {
+        Environment ecs = networkEnvironment(true);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Environment ec2 = mock(EC2Environment.class);
+        when(ec2.hasNetworkProbe()).thenReturn(true);
+        when(ec2.probe())
+                .thenAnswer(
+                        invocation -> {
+                            try {
+                                Thread.sleep(60_000);
+                            } catch (InterruptedException e) {
+                                interrupted.countDown();
+                            }
+                            return true;
+                        });
+        Environment fallback = localEnvironment(true);
+
+        long start = System.currentTimeMillis();
+        Optional<Environment> env =
+                new EnvironmentResolver(candidates(ecs, ec2, fallback), executor, 60_000)
+                        .resolve()
+                        .join();
+
+        assertSame(ecs, env.get());
+        assertTrue(System.currentTimeMillis() - start < 5_000);
+        // the outstanding lower priority probe is cancelled
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void waitsForHigherPriorityProbes() {
+        Environment ecs = mock(ECSEnvironment.class);
+        when(ecs.hasNetworkProbe()).thenReturn(true);
+        when(ecs.probe())
+                .thenAnswer(
+                        invocation -> {
+                            Thread.sleep(200);
+                            return true;
+                        });
+        Environment ec2 = networkEnvironment(true);
+
+        Optional<Environment> env =
+                new EnvironmentResolver(candidates(ecs, ec2), executor, 60_000)
+                        .resolve()
+                        .join();
+
+        assertSame(ecs, env.get());
+    }
+
+    @Test
+    public void deadlineCompletesWithTheBestKnownCandidate() {
+        Environment ecs = mock(ECSEnvironment.class);
+        when(ecs.hasNetworkProbe()).thenReturn(true);
+        when(ecs.probe())
+                .thenAnswer(
+                        invocation -> {
+                            Thread.sleep(60_000);
+                            return true;
+                        });
+        Environment ec2 = networkEnvironment(true);
+        Environment fallback = localEnvironment(true);
+
+        long start = System.currentTimeMillis();
+        Optional<Environment> env =
+                new EnvironmentResolver(candidates(ecs, ec2, fallback), executor, 100)
+                        .resolve()
+                        .join();
+
+        assertSame(ec2, env.get());
+        assertTrue(System.currentTimeMillis() - start < 5_000);
+    }
+
+    @Test
+    public void deadlineFiresWhileASingleThreadExecutorIsBusy() {
+        Environment ecs = mock(ECSEnvironment.class);
+        when(ecs.hasNetworkProbe()).thenReturn(true);
+        when(ecs.probe())
+                .thenAnswer(
+                        invocation -> {
+                            Thread.sleep(60_000);
+                            return true;
+                        });
+        Environment ec2 = networkEnvironment(true);
+        Environment fallback = localEnvironment(true);
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+
+        try {
+            long start = System.currentTimeMillis();
+            Optional<Environment> env =
+                    new EnvironmentResolver(candidates(ecs, ec2, fallback), singleThread, 100)
+                            .resolve()
+                            .join();
+
+            // the EC2 probe is still queued behind the blocked ECS probe
+            assertSame(fallback, env.get());
+            assertTrue(System.currentTimeMillis() - start < 5_000);
+            // the running probe is asked to abort its connections
+            verify(ecs, timeout(5_000)).cancelProbe();
+            verify(ec2, never()).cancelProbe();
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failingProbesAreNotCandidates() {
+        Environment ec2 = mock(EC2Environment.class);
+        when(ec2.hasNetworkProbe()).thenReturn(true);
+        when(ec2.probe()).thenThrow(new IllegalStateException());
+        Environment lambda = localEnvironment(false);
+
+        Optional<Environment> env =
+                new EnvironmentResolver(candidates(lambda, ec2), executor, 60_000)
+                        .resolve()
+                        .join();
+
+        assertFalse(env.isPresent());
+    }
+
+    private static Environment localEnvironment(boolean candidate) {
+        Environment environment = mock(LambdaEnvironment.class);
+        when(environment.probe()).thenReturn(candidate);
+        return environment;
+    }
+
+    private static Environment networkEnvironment(boolean candidate) {
+        Environment environment = mock(EC2Environment.class);
+        when(environment.hasNetworkProbe()).thenReturn(true);
+        when(environment.probe()).thenReturn(candidate);
+        return environment;
+    }
+
+    private static List<Supplier<Environment>> candidates(Environment... environments) {
+        List<Supplier<Environment>> candidates = new ArrayList<>();
+        for (Environment environment : environments) {
+            candidates.add(() -> environment);
+        }
+        return candidates;
+    }
+}
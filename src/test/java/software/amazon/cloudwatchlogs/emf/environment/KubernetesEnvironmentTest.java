@@ -0,0 +1,134 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.environment;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import software.amazon.cloudwatchlogs.emf.config.Configuration;
+import software.amazon.cloudwatchlogs.emf.config.SystemWrapper;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({SystemWrapper.class})
+public class KubernetesEnvironmentTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private Configuration config;
+    private Path serviceAccountDirectory;
+    private Path downwardApiDirectory;
+    private KubernetesEnvironment environment;
+
+    @Before
+    public void setUp() throws IOException {
+        config = mock(Configuration.class);
+        serviceAccountDirectory = folder.newFolder("serviceaccount").toPath();
+        downwardApiDirectory = folder.newFolder("podinfo").toPath();
+        environment =
+                new KubernetesEnvironment(config, serviceAccountDirectory, downwardApiDirectory);
+        PowerMockito.mockStatic(SystemWrapper.class);
+    }
+
+    @Test
+    public void testProbeReturnFalseOutsideKubernetes() {
+        assertFalse(environment.probe());
+        assertFalse(environment.hasNetworkProbe());
+    }
+
+    @Test
+    public void testProbeReturnTrueWithServiceHost() {
+        PowerMockito.when(SystemWrapper.getenv("KUBERNETES_SERVICE_HOST")).thenReturn("10.0.0.1");
+
+        assertTrue(environment.probe());
+    }
+
+    @Test
+    public void testProbeReadsServiceAccountAndDownwardApiFiles() throws IOException {
+        write(serviceAccountDirectory, "namespace", "payments\n");
+        write(downwardApiDirectory, "podname", "checkout-7d9f8b6c5-x2x4q");
+        write(downwardApiDirectory, "nodename", "ip-10-0-1-23.ec2.internal");
+
+        assertTrue(environment.probe());
+
+        MetricsContext context = new MetricsContext();
+        environment.configureContext(context);
+        assertEquals("checkout-7d9f8b6c5-x2x4q", context.getProperty("podName"));
+        assertEquals("payments", context.getProperty("namespace"));
+        assertEquals("ip-10-0-1-23.ec2.internal", context.getProperty("nodeName"));
+        assertNull(context.getProperty("cluster"));
+    }
+
+    @Test
+    public void testEnvironmentVariablesTakePrecedenceOverFiles() throws IOException {
+        write(serviceAccountDirectory, "namespace", "payments");
+        PowerMockito.when(SystemWrapper.getenv("POD_NAMESPACE")).thenReturn("orders");
+        PowerMockito.when(SystemWrapper.getenv("NODE_NAME")).thenReturn("node-1");
+        PowerMockito.when(SystemWrapper.getenv("HOSTNAME")).thenReturn("orders-abc12");
+        PowerMockito.when(SystemWrapper.getenv("CLUSTER_NAME")).thenReturn("prod");
+
+        assertTrue(environment.probe());
+
+        MetricsContext context = new MetricsContext();
+        environment.configureContext(context);
+        assertEquals("orders-abc12", context.getProperty("podName"));
+        assertEquals("orders", context.getProperty("namespace"));
+        assertEquals("node-1", context.getProperty("nodeName"));
+        assertEquals("prod", context.getProperty("cluster"));
+    }
+
+    @Test
+    public void testGetType() {
+        PowerMockito.when(SystemWrapper.getenv("KUBERNETES_SERVICE_HOST")).thenReturn("10.0.0.1");
+        assertTrue(environment.probe());
+
+        when(config.getServiceType()).thenReturn(Optional.empty());
+        assertEquals("Kubernetes::Pod", environment.getType());
+
+        when(config.getServiceType()).thenReturn(Optional.of("MyService"));
+        assertEquals("MyService", environment.getType());
+    }
+
+    @Test
+    public void testGetTypeReportsEksWithClusterName() {
+        PowerMockito.when(SystemWrapper.getenv("KUBERNETES_SERVICE_HOST")).thenReturn("10.0.0.1");
+        PowerMockito.when(SystemWrapper.getenv("CLUSTER_NAME")).thenReturn("prod");
+        when(config.getServiceType()).thenReturn(Optional.empty());
+
+        assertTrue(environment.probe());
+
+        assertEquals("AWS::EKS::Pod", environment.getType());
+    }
+
+    private static void write(Path directory, String name, String value) throws IOException {
+        Files.write(directory.resolve(name), value.getBytes(StandardCharsets.UTF_8));
+    }
+}
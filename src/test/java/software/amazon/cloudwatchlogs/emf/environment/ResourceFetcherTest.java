@@ -28,6 +28,8 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import lombok.Data;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -65,6 +67,33 @@ public class ResourceFetcherTest {
         }
     }
 
+    @Test
+    public void disconnectAbortsARequestInProgress() throws Exception {
+        URI slowEndpoint = new URI("http://localhost:" + mockServer.port() + "/slow/endpoint");
+        stubFor(
+                get(urlPathEqualTo("/slow/endpoint"))
+                        .willReturn(aResponse().withStatus(200).withFixedDelay(30_000)));
+        ResourceFetcher slowFetcher = new ResourceFetcher(60_000);
+        long start = System.currentTimeMillis();
+
+        CompletableFuture<String> response =
+                CompletableFuture.supplyAsync(
+                        () -> slowFetcher.fetch(slowEndpoint, "GET", Collections.emptyMap()));
+        // the request may not have opened its connection yet
+        while (!response.isDone() && System.currentTimeMillis() - start < 5_000) {
+            slowFetcher.disconnect();
+            Thread.sleep(50);
+        }
+
+        try {
+            response.join();
+            fail("Expected EMFClientException");
+        } catch (CompletionException ex) {
+            assertTrue(ex.getCause() instanceof EMFClientException);
+        }
+        assertTrue(System.currentTimeMillis() - start < 5_000);
+    }
+
     @Test
     public void testFetchThrowsExceptionFor404Response() throws Exception {
         generateStub(404, "NotFound");
@@ -146,6 +175,27 @@ public class ResourceFetcherTest {
         }
     }
 
+    @Test
+    public void testFetchTimesOutAfterConfiguredTimeout() {
+        stubFor(
+                get(urlPathEqualTo(endpoint_path))
+                        .willReturn(
+                                aResponse()
+                                        .withStatus(200)
+                                        .withBody("{\"name\":\"test\",\"size\":10}")
+                                        .withFixedDelay(2_000)));
+        ResourceFetcher fastFetcher = new ResourceFetcher(100);
+
+        long start = System.currentTimeMillis();
+        try {
+            fastFetcher.fetch(endpoint, TestData.class);
+            fail("Expected EMFClientException");
+        } catch (EMFClientException ex) {
+            assertTrue(ex.getMessage().contains("Failed to connect"));
+        }
+        assertTrue(System.currentTimeMillis() - start < 1_000);
+    }
+
     static int getUnusedPort() throws IOException {
         ServerSocket socket = new ServerSocket(0);
         socket.setReuseAddress(true);
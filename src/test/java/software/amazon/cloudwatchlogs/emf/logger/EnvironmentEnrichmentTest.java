@@ -0,0 +1,125 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudwatchlogs.emf.config.Configuration;
+import software.amazon.cloudwatchlogs.emf.config.EnvironmentConfigurationProvider;
+import software.amazon.cloudwatchlogs.emf.environment.Environment;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+
+class EnvironmentEnrichmentTest {
+    private Environment environment;
+
+    @BeforeEach
+    public void setUp() {
+        environment = mock(Environment.class);
+        when(environment.getLogGroupName()).thenReturn("test-log-group");
+        when(environment.getName()).thenReturn("test-env-name");
+        when(environment.getType()).thenReturn("test-env-type");
+        doAnswer(
+                        invocation -> {
+                            MetricsContext context = invocation.getArgument(0);
+                            context.putProperty("instanceId", "i-12345");
+                            return null;
+                        })
+                .when(environment)
+                .configureContext(any());
+    }
+
+    @Test
+    void staticContextIsCollectedOnce() {
+        when(environment.hasStaticContext()).thenReturn(true);
+
+        MetricsContext first = new MetricsContext();
+        MetricsContext second = new MetricsContext();
+        EnvironmentEnrichment.of(environment, null).applyTo(first, environment);
+        EnvironmentEnrichment.of(environment, null).applyTo(second, environment);
+
+        assertSame(
+                EnvironmentEnrichment.of(environment, null),
+                EnvironmentEnrichment.of(environment, null));
+        assertEquals("i-12345", first.getProperty("instanceId"));
+        assertEquals("i-12345", second.getProperty("instanceId"));
+        assertEquals(
+                "test-env-name", second.getDefaultDimensions().getDimensionValue("ServiceName"));
+        assertNotSame(first.getDefaultDimensions(), second.getDefaultDimensions());
+        verify(environment, times(1)).configureContext(any());
+        verify(environment, times(1)).getName();
+    }
+
+    @Test
+    void dynamicContextIsConfiguredOnEachApply() {
+        when(environment.hasStaticContext()).thenReturn(false);
+
+        EnvironmentEnrichment.of(environment, null).applyTo(new MetricsContext(), environment);
+        EnvironmentEnrichment.of(environment, null).applyTo(new MetricsContext(), environment);
+
+        verify(environment, times(2)).configureContext(any());
+        verify(environment, times(1)).getName();
+    }
+
+    @Test
+    void invalidDimensionsAreSkipped() {
+        when(environment.getLogGroupName()).thenReturn(" ");
+
+        MetricsContext context = new MetricsContext();
+        EnvironmentEnrichment.of(environment, null).applyTo(context, environment);
+
+        assertNull(context.getDefaultDimensions().getDimensionValue("LogGroup"));
+        assertEquals(2, context.getDefaultDimensions().getDimensionKeys().size());
+    }
+
+    @Test
+    void cachedEnrichmentIsKeptForTheSameEnvironment() {
+        EnvironmentEnrichment cached = EnvironmentEnrichment.of(environment, null);
+        Environment other = mock(Environment.class);
+
+        assertSame(cached, EnvironmentEnrichment.of(environment, cached));
+        assertNotSame(cached, EnvironmentEnrichment.of(other, cached));
+        verify(environment, times(1)).getName();
+    }
+
+    @Test
+    void enrichmentIsRecomputedWhenTheConfigurationIsReplaced() {
+        when(environment.hasStaticContext()).thenReturn(true);
+        Configuration original = EnvironmentConfigurationProvider.getConfig();
+        EnvironmentEnrichment before = EnvironmentEnrichment.of(environment, null);
+        when(environment.getName()).thenReturn("renamed-service");
+
+        try {
+            EnvironmentConfigurationProvider.setConfig(original.toBuilder().build());
+            MetricsContext context = new MetricsContext();
+            EnvironmentEnrichment after = EnvironmentEnrichment.of(environment, null);
+            after.applyTo(context, environment);
+
+            assertNotSame(before, after);
+            assertSame(after, EnvironmentEnrichment.of(environment, null));
+            assertEquals(
+                    "renamed-service",
+                    context.getDefaultDimensions().getDimensionValue("ServiceName"));
+        } finally {
+            EnvironmentConfigurationProvider.setConfig(original);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudwatchlogs.emf.environment.Environment;
+import software.amazon.cloudwatchlogs.emf.environment.EnvironmentProvider;
+import software.amazon.cloudwatchlogs.emf.exception.DimensionSetExceededException;
+import software.amazon.cloudwatchlogs.emf.exception.InvalidMetricException;
+import software.amazon.cloudwatchlogs.emf.exception.InvalidNamespaceException;
+import software.amazon.cloudwatchlogs.emf.model.DimensionSet;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+import software.amazon.cloudwatchlogs.emf.sinks.SinkShunt;
+
+class LambdaMetricsLoggerTest {
+    private EnvironmentProvider envProvider;
+    private Environment environment;
+    private SinkShunt sink;
+    private LambdaMetricsLogger logger;
+
+    @BeforeEach
+    void setUp() throws InvalidNamespaceException {
+        envProvider = mock(EnvironmentProvider.class);
+        environment = mock(Environment.class);
+        sink = new SinkShunt();
+
+        when(envProvider.resolveEnvironment())
+                .thenReturn(CompletableFuture.completedFuture(environment));
+        when(environment.getLogGroupName()).thenReturn("test-log-group");
+        when(environment.getName()).thenReturn("test-env-name");
+        when(environment.getType()).thenReturn("test-env-type");
+        when(environment.getSink()).thenReturn(sink);
+
+        MetricsContext template =
+                new MetricsContext(
+                        "Aggregator",
+                        Collections.singletonMap("Version", "1"),
+                        Collections.singletonList(DimensionSet.of("Service", "Aggregator")),
+                        new DimensionSet());
+        logger = new LambdaMetricsLogger(envProvider, template);
+    }
+
+    @Test
+    void eachInvocationStartsFromTheTemplate()
+            throws InvalidMetricException, DimensionSetExceededException {
+        logger.putMetric("Latency", 100);
+        logger.putProperty("RequestId", "first");
+        logger.putDimensions(DimensionSet.of("Operation", "Aggregate"));
+        logger.flush();
+
+        logger.putMetric("Count", 1);
+        logger.flush();
+
+        MetricsContext flushed = sink.getContext();
+        assertEquals("Aggregator", flushed.getNamespace());
+        assertEquals("1", flushed.getProperty("Version"));
+        assertNull(flushed.getProperty("RequestId"));
+        assertEquals(1, flushed.getDimensions().size());
+        assertEquals("Aggregator", flushed.getDimensions().get(0).getDimensionValue("Service"));
+        assertTrue(sink.getLogEvents().get(0).contains("\"Count\""));
+        assertFalse(sink.getLogEvents().get(0).contains("\"Latency\""));
+    }
+
+    @Test
+    void environmentIsResolvedOnceAndAddsDefaultDimensions()
+            throws InvalidMetricException, DimensionSetExceededException {
+        logger.putMetric("Count", 1);
+        logger.flush();
+        logger.putMetric("Count", 2);
+        logger.flush();
+
+        verify(envProvider, times(1)).resolveEnvironment();
+        DimensionSet dimensions = sink.getContext().getDimensions().get(0);
+        assertEquals("test-env-name", dimensions.getDimensionValue("ServiceName"));
+        assertEquals("Aggregator", dimensions.getDimensionValue("Service"));
+    }
+
+    @Test
+    void startInvocationDiscardsUnflushedValues() throws InvalidMetricException {
+        logger.putMetric("Leftover", 1);
+        logger.startInvocation();
+        logger.putMetric("Count", 1);
+        logger.flush();
+
+        assertFalse(sink.getLogEvents().get(0).contains("\"Leftover\""));
+    }
+
+    @Test
+    void flushWithoutValuesWritesNothing() {
+        logger.flush();
+
+        assertNull(sink.getContext());
+    }
+}
@@ -29,8 +29,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import software.amazon.cloudwatchlogs.emf.Constants;
+import software.amazon.cloudwatchlogs.emf.config.Configuration;
+import software.amazon.cloudwatchlogs.emf.config.EnvironmentConfigurationProvider;
 import software.amazon.cloudwatchlogs.emf.environment.Environment;
 import software.amazon.cloudwatchlogs.emf.environment.EnvironmentProvider;
+import software.amazon.cloudwatchlogs.emf.environment.Environments;
 import software.amazon.cloudwatchlogs.emf.exception.DimensionSetExceededException;
 import software.amazon.cloudwatchlogs.emf.exception.InvalidDimensionException;
 import software.amazon.cloudwatchlogs.emf.exception.InvalidMetricException;
@@ -40,6 +43,7 @@ import software.amazon.cloudwatchlogs.emf.model.DimensionSet;
 import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
 import software.amazon.cloudwatchlogs.emf.model.StorageResolution;
 import software.amazon.cloudwatchlogs.emf.model.Unit;
+import software.amazon.cloudwatchlogs.emf.sinks.ISink;
 import software.amazon.cloudwatchlogs.emf.sinks.SinkShunt;
 
 class MetricsLoggerTest {
@@ -74,6 +78,54 @@ class MetricsLoggerTest {
         assertEquals(propertyValue, sink.getContext().getProperty(propertyName));
     }
 
+    @Test
+    void tryFlush_keepsMetricsWhenSinkIsSaturated() throws InvalidMetricException {
+        sink.setSaturation(1);
+        logger.putMetric("Count", 1);
+
+        assertTrue(logger.isSinkSaturated());
+        assertFalse(logger.tryFlush());
+        assertNull(sink.getContext());
+
+        sink.setSaturation(0.5);
+        logger.putMetric("Count", 2);
+
+        assertEquals(0.5, logger.getSinkSaturation());
+        assertTrue(logger.tryFlush());
+        assertTrue(sink.getLogEvents().get(0).contains("\"Count\":[1.0,2.0]"));
+    }
+
+    @Test
+    void flush_aggregatesMetricsWhenSinkIsUnderPressure() throws InvalidMetricException {
+        logger.setAggregationSaturationPercent(80);
+        sink.setSaturation(0.9);
+        logger.putMetric("Latency", 10);
+        logger.putMetric("Latency", 20);
+        logger.putMetric("Latency", 10);
+        logger.flush();
+
+        String aggregated = "{\"Values\":[10.0,20.0],\"Counts\":[2,1]}";
+        assertTrue(sink.getLogEvents().get(0).contains("\"Latency\":" + aggregated));
+
+        sink.setSaturation(0.5);
+        logger.putMetric("Latency", 10);
+        logger.putMetric("Latency", 20);
+        logger.flush();
+
+        assertTrue(sink.getLogEvents().get(0).contains("\"Latency\":[10.0,20.0]"));
+    }
+
+    @Test
+    void warmUp_warmsUpTheSinkWithoutSendingMetrics() {
+        ISink mockedSink = mock(ISink.class);
+        when(environment.getSink()).thenReturn(mockedSink);
+
+        logger.warmUp().join();
+
+        verify(mockedSink).warmUp();
+        verify(mockedSink, never()).accept(any());
+    }
+
     @Test
     void putDimensions_setsDimension()
             throws InvalidDimensionException, DimensionSetExceededException {
@@ -531,6 +583,39 @@ class MetricsLoggerTest {
         assertFalse(sink.getLogEvents().get(0).contains("Count"));
     }
 
+    @Test
+    void setConfig_appliesToLoggersAfterTheirNextFlush() throws InvalidMetricException {
+        Configuration original = EnvironmentConfigurationProvider.getConfig();
+        try {
+            EnvironmentConfigurationProvider.setConfig(localConfig(original, "first-service"));
+            MetricsLogger first = new MetricsLogger();
+            first.putMetric("Count", 1);
+            first.flush();
+            Environment before = new EnvironmentProvider().resolveEnvironment().join();
+            assertEquals("first-service", before.getName());
+
+            EnvironmentConfigurationProvider.setConfig(localConfig(original, "second-service"));
+            MetricsLogger second = new MetricsLogger();
+            second.putMetric("Count", 1);
+            second.flush();
+            first.putMetric("Count", 1);
+            first.flush();
+
+            Environment after = new EnvironmentProvider().resolveEnvironment().join();
+            assertNotSame(before, after);
+            assertEquals("second-service", after.getName());
+        } finally {
+            EnvironmentConfigurationProvider.setConfig(original);
+        }
+    }
+
+    private static Configuration localConfig(Configuration original, String serviceName) {
+        return original.toBuilder()
+                .environmentOverride(Environments.Local)
+                .serviceName(serviceName)
+                .build();
+    }
+
     private void expectDimension(String dimension, String value)
             throws DimensionSetExceededException {
         List<DimensionSet> dimensions = sink.getContext().getDimensions();
@@ -17,6 +17,8 @@
 package software.amazon.cloudwatchlogs.emf.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -92,4 +94,60 @@ public class MetricDefinitionTest {
         md.addValue(20);
         assertEquals(Arrays.asList(10d, 20d), md.getValues());
     }
+
+    @Test
+    public void testAggregate() throws JsonProcessingException {
+        MetricDefinition md = new MetricDefinition("Time", Unit.MICROSECONDS, 10);
+        md.addValue(20);
+        md.addValue(10);
+
+        md.aggregate();
+        md.addValue(5);
+        md.addValue(20);
+
+        assertTrue(md.isAggregated());
+        assertEquals(Collections.emptyList(), md.getValues());
+        assertEquals(3, md.getDataPointCount());
+        assertEquals(
+                "{\"Values\":[10.0,20.0,5.0],\"Counts\":[2,2,1]}",
+                new ObjectMapper().writeValueAsString(md.getValueCounts()));
+    }
+
+    @Test
+    public void testAggregateKeepsDistinctValues() {
+        MetricDefinition md = new MetricDefinition("Time", Unit.MICROSECONDS, 10);
+        md.addValue(20);
+
+        md.aggregate();
+
+        assertFalse(md.isAggregated());
+        assertEquals(Arrays.asList(10d, 20d), md.getValues());
+    }
+
+    @Test
+    public void testSliceAggregated() throws JsonProcessingException {
+        MetricDefinition md = new MetricDefinition("Time", Unit.MICROSECONDS, 10);
+        md.addValue(10);
+        md.addValue(20);
+        md.addValue(30);
+        md.aggregate();
+
+        MetricDefinition slice = md.slice(1, 3);
+
+        assertEquals("Time", slice.getName());
+        assertEquals(Unit.MICROSECONDS, slice.getUnit());
+        assertEquals(
+                "{\"Values\":[20.0,30.0],\"Counts\":[1,1]}",
+                new ObjectMapper().writeValueAsString(slice.getValueCounts()));
+    }
+
+    @Test
+    public void testAggregateKeepsSingleValues() {
+        MetricDefinition md = new MetricDefinition("Time", Unit.MICROSECONDS, 10);
+
+        md.aggregate();
+
+        assertFalse(md.isAggregated());
+        assertEquals(Collections.singletonList(10d), md.getValues());
+    }
 }
@@ -176,6 +176,54 @@ class MetricsContextTest {
         Assertions.assertEquals(now.toEpochMilli(), metadata.get("Timestamp"));
     }
 
+    @Test
+    void testSerializeAggregatedMetrics() throws JsonProcessingException, InvalidMetricException {
+        MetricsContext mc = new MetricsContext();
+        for (int i = 0; i < 150; i++) {
+            mc.putMetric("Latency", i % 3);
+        }
+        mc.putMetric("Count", 1);
+
+        mc.aggregateMetrics();
+        mc.putMetric("Latency", 1);
+
+        List<String> events = mc.serialize();
+
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertTrue(
+                events.get(0)
+                        .contains("\"Latency\":{\"Values\":[0.0,1.0,2.0],\"Counts\":[50,51,50]}"));
+        Assertions.assertTrue(events.get(0).contains("\"Count\":1.0"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSerializeAggregatedMetricWithMoreThan100DistinctValues()
+            throws JsonProcessingException, InvalidMetricException {
+        MetricsContext mc = new MetricsContext();
+        int distinctValues = Constants.MAX_DATAPOINTS_PER_METRIC + 20;
+        for (int i = 0; i < distinctValues * 2; i++) {
+            mc.putMetric("Latency", i % distinctValues);
+        }
+
+        mc.aggregateMetrics();
+        List<String> events = mc.serialize();
+
+        Assertions.assertEquals(2, events.size());
+        int counted = 0;
+        for (String event : events) {
+            Map<String, Object> latency =
+                    (Map<String, Object>) parseRootNode(event).get("Latency");
+            List<Integer> counts = (List<Integer>) latency.get("Counts");
+            Assertions.assertEquals(((List<Double>) latency.get("Values")).size(), counts.size());
+            Assertions.assertTrue(counts.size() <= Constants.MAX_DATAPOINTS_PER_METRIC);
+            for (int count : counts) {
+                counted += count;
+            }
+        }
+        Assertions.assertEquals(distinctValues * 2, counted);
+    }
+
     @Test
     void testPutMetadata() {
         MetricsContext mc = new MetricsContext();
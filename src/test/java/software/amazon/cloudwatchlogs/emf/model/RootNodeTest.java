@@ -19,6 +19,7 @@ package software.amazon.cloudwatchlogs.emf.model;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +28,7 @@ import org.junit.jupiter.api.Test;
 import software.amazon.cloudwatchlogs.emf.exception.DimensionSetExceededException;
 import software.amazon.cloudwatchlogs.emf.exception.InvalidDimensionException;
 import software.amazon.cloudwatchlogs.emf.exception.InvalidMetricException;
+import software.amazon.cloudwatchlogs.emf.exception.InvalidNamespaceException;
 
 class RootNodeTest {
 
@@ -118,4 +120,29 @@ class RootNodeTest {
 
         Assertions.assertEquals("{\"foo\":\"bar\"}", root.serialize());
     }
+
+    @Test
+    void testSharedWriterMatchesMapperWithFilterProvider()
+            throws JsonProcessingException, InvalidMetricException, InvalidDimensionException,
+                    DimensionSetExceededException, InvalidNamespaceException {
+        // the configuration RootNode used before the writer was shared
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setFilterProvider(
+                new SimpleFilterProvider()
+                        .addFilter("emptyMetricFilter", new EmptyMetricsFilter()));
+
+        RootNode rootNode = new RootNode();
+        MetricsContext mc = new MetricsContext(rootNode);
+        mc.setNamespace("Namespace");
+        mc.putDimension(DimensionSet.of("Region", "us-east-1"));
+        mc.putMetric("Count", 10);
+        mc.putMetric("Latency", 100, Unit.MILLISECONDS);
+        mc.putProperty("Property", "PropertyValue");
+        RootNode withoutMetrics = new RootNode();
+        withoutMetrics.putProperty("foo", "bar");
+
+        Assertions.assertEquals(mapper.writeValueAsString(rootNode), rootNode.serialize());
+        Assertions.assertEquals(
+                mapper.writeValueAsString(withoutMetrics), withoutMetrics.serialize());
+    }
 }
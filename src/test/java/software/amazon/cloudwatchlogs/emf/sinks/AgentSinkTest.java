@@ -25,10 +25,15 @@ import static org.mockito.Mockito.when;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import software.amazon.cloudwatchlogs.emf.Constants;
 import software.amazon.cloudwatchlogs.emf.exception.EMFClientException;
 import software.amazon.cloudwatchlogs.emf.exception.InvalidMetricException;
@@ -38,6 +43,9 @@ import software.amazon.cloudwatchlogs.emf.sinks.retry.RetryStrategy;
 @SuppressWarnings("unchecked")
 public class AgentSinkTest {
 
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+
     @Test
     public void testAccept() throws JsonProcessingException, InvalidMetricException {
         // arrange
@@ -163,6 +171,36 @@ public class AgentSinkTest {
         assertEquals(0, fixture.client.messagesSent);
     }
 
+    @Test
+    public void telemetryRecordsWritesRetriesAndDrops() throws InvalidMetricException {
+        // arrange
+        Fixture fixture = new Fixture();
+        fixture.client.messagesToFail = Constants.MAX_ATTEMPTS_PER_MESSAGE + 1;
+        AgentSink sink =
+                new AgentSink(
+                        "",
+                        null,
+                        Endpoint.DEFAULT_TCP_ENDPOINT,
+                        fixture.factory,
+                        10,
+                        InstantRetryStrategy::new);
+
+        MetricsContext mc = new MetricsContext();
+        mc.putMetric("Time", 10);
+
+        // act
+        sink.accept(mc);
+        sink.accept(mc);
+        sink.shutdown().join();
+
+        // assert
+        SinkTelemetry.Snapshot snapshot = sink.getTelemetry().snapshot();
+        assertEquals(1, snapshot.getEvents());
+        assertEquals(1, snapshot.getDropped());
+        assertEquals(Constants.MAX_ATTEMPTS_PER_MESSAGE + 1, snapshot.getRetries());
+        assertEquals(1, snapshot.getLatencyCount());
+    }
+
     @Test
     public void failedMessagesAreQueued() throws InvalidMetricException {
         // arrange
@@ -258,6 +296,307 @@ public class AgentSinkTest {
         fixture.client.messages.forEach(message -> assertFalse(message.contains("DONT_SEND")));
     }
 
+    @Test
+    public void offerRejectsContextsWhenTheQueueIsFull()
+            throws InvalidMetricException, InterruptedException {
+        // arrange
+        Fixture fixture = new Fixture();
+        AgentSink sink =
+                new AgentSink(
+                        "",
+                        null,
+                        Endpoint.DEFAULT_TCP_ENDPOINT,
+                        fixture.factory,
+                        1,
+                        InstantRetryStrategy::new);
+
+        MetricsContext mc = new MetricsContext();
+        mc.putMetric("Time", 10);
+
+        // prevent any message from being sent by the client yet
+        fixture.client.lock.lock();
+
+        // act
+        assertTrue(sink.offer(mc));
+        // wait for the first message to be pulled off the queue and block in the client
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sink.getSaturation() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(sink.offer(mc));
+        boolean acceptedWhenFull = sink.offer(mc);
+        double saturation = sink.getSaturation();
+
+        fixture.client.lock.unlock();
+        sink.shutdown().join();
+
+        // assert
+        assertFalse(acceptedWhenFull);
+        assertEquals(1.0, saturation);
+        assertEquals(2, fixture.client.messagesSent);
+    }
+
+    @Test
+    public void warmUpConnectsEveryConnection() {
+        // arrange
+        Fixture fixture = new Fixture();
+        AgentSink sink =
+                AgentSink.builder()
+                        .endpoint(Endpoint.DEFAULT_TCP_ENDPOINT)
+                        .clientFactory(fixture.factory)
+                        .connectionCount(2)
+                        .build();
+
+        // act
+        sink.warmUp();
+        sink.shutdown().join();
+
+        // assert
+        assertEquals(2, fixture.client.probes);
+        assertEquals(0, fixture.client.messagesSent);
+    }
+
+    @Test
+    public void checkpointSendsQueuedEventsAndReconnectsAfterRestore()
+            throws InvalidMetricException {
+        // arrange
+        Fixture fixture = new Fixture();
+        AgentSink sink =
+                AgentSink.builder()
+                        .endpoint(Endpoint.DEFAULT_TCP_ENDPOINT)
+                        .clientFactory(fixture.factory)
+                        .retryStrategy(InstantRetryStrategy::new)
+                        .build();
+        MetricsContext mc = new MetricsContext();
+        mc.putMetric("Time", 10);
+        sink.accept(mc);
+
+        // act
+        sink.beforeCheckpoint();
+        int sentBeforeCheckpoint = fixture.client.messagesSent;
+        int closesBeforeRestore = fixture.client.closes;
+        sink.afterRestore();
+        sink.shutdown().join();
+
+        // assert
+        assertEquals(1, sentBeforeCheckpoint);
+        assertEquals(1, closesBeforeRestore);
+        assertEquals(1, fixture.client.probes);
+    }
+
+    @Test
+    public void acceptAllSendsContextsInOneWrite() throws InvalidMetricException {
+        // arrange
+        Fixture fixture = new Fixture();
+        AgentSink sink =
+                new AgentSink(
+                        "",
+                        null,
+                        Endpoint.DEFAULT_TCP_ENDPOINT,
+                        fixture.factory,
+                        1,
+                        InstantRetryStrategy::new);
+
+        List<MetricsContext> contexts = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            MetricsContext mc = new MetricsContext();
+            mc.putMetric("Time", i);
+            contexts.add(mc);
+        }
+
+        // act
+        sink.acceptAll(contexts);
+        sink.shutdown().join();
+
+        // assert
+        assertEquals(1, fixture.client.batches);
+        assertEquals(3, fixture.client.messagesSent);
+        assertEquals(3, sink.getTelemetry().snapshot().getEvents());
+    }
+
+    @Test
+    public void openCircuitShortCircuitsEventsToFallback() throws InvalidMetricException {
+        // arrange
+        Fixture fixture = new Fixture();
+        fixture.client.messagesToFail = Integer.MAX_VALUE;
+        List<String> fallbackEvents = new ArrayList<>();
+        AgentSink sink =
+                AgentSink.builder()
+                        .logGroupName("")
+                        .endpoint(Endpoint.DEFAULT_TCP_ENDPOINT)
+                        .clientFactory(fixture.factory)
+                        .asyncQueueDepth(2)
+                        .retryStrategy(InstantRetryStrategy::new)
+                        .circuitBreakerThreshold(2)
+                        .circuitBreakerProbeMillis(60_000)
+                        .fallback(fallbackEvents::add)
+                        .build();
+
+        MetricsContext mc = new MetricsContext();
+        mc.putMetric("Time", 10);
+
+        // act
+        sink.accept(mc);
+        sink.accept(mc);
+        sink.shutdown().join();
+
+        // assert
+        assertEquals(CircuitBreaker.State.OPEN, sink.getCircuitBreaker().getState());
+        assertEquals(2, fixture.client.messagesFailed);
+        assertEquals(0, fixture.client.messagesSent);
+        assertEquals(2, fallbackEvents.size());
+    }
+
+    @Test
+    public void bufferedEventsOnlyCountAsSentOnceTheClientWritesThem()
+            throws InvalidMetricException, InterruptedException {
+        // arrange
+        Fixture fixture = new Fixture();
+        fixture.client.buffering = true;
+        fixture.client.flushesToFail = Integer.MAX_VALUE;
+        AgentSink sink =
+                AgentSink.builder()
+                        .clientFactory(fixture.factory)
+                        .retryStrategy(InstantRetryStrategy::new)
+                        .circuitBreakerThreshold(10)
+                        .circuitBreakerProbeMillis(60_000)
+                        .build();
+        MetricsContext mc = new MetricsContext();
+        mc.putMetric("Time", 10);
+
+        // act: appending to the buffer succeeds, but writing it fails
+        for (int i = 1; i <= 2; i++) {
+            sink.accept(mc);
+            for (int wait = 0; wait < 100 && fixture.client.flushAttempts < i; wait++) {
+                Thread.sleep(10);
+            }
+        }
+
+        // assert
+        assertEquals(2, sink.getCircuitBreaker().getConsecutiveFailures());
+        assertEquals(0, sink.getTelemetry().snapshot().getEvents());
+
+        fixture.client.flushesToFail = 0;
+        sink.shutdown().join();
+
+        assertEquals(2, fixture.client.messagesSent);
+        assertEquals(2, sink.getTelemetry().snapshot().getEvents());
+        assertEquals(0, sink.getCircuitBreaker().getConsecutiveFailures());
+    }
+
+    @Test
+    public void roundRobinSpreadsContextsAcrossConnections() throws InvalidMetricException {
+        // arrange
+        SocketClientFactory factory = mock(SocketClientFactory.class);
+        TestClient client1 = new TestClient();
+        TestClient client2 = new TestClient();
+        when(factory.getClient(any())).thenReturn(client1, client2);
+        AgentSink sink =
+                AgentSink.builder()
+                        .clientFactory(factory)
+                        .asyncQueueDepth(10)
+                        .retryStrategy(InstantRetryStrategy::new)
+                        .connectionCount(2)
+                        .partitionStrategy(PartitionStrategy.ROUND_ROBIN)
+                        .build();
+
+        MetricsContext mc = new MetricsContext();
+        mc.putMetric("Time", 10);
+
+        // act
+        for (int i = 0; i < 4; i++) {
+            sink.accept(mc);
+        }
+        sink.shutdown().join();
+
+        // assert
+        assertEquals(2, client1.messagesSent);
+        assertEquals(2, client2.messagesSent);
+    }
+
+    @Test
+    public void logStreamPartitioningKeepsStreamOnOneConnection() throws InvalidMetricException {
+        // arrange
+        SocketClientFactory factory = mock(SocketClientFactory.class);
+        TestClient client1 = new TestClient();
+        TestClient client2 = new TestClient();
+        when(factory.getClient(any())).thenReturn(client1, client2);
+        AgentSink sink =
+                AgentSink.builder()
+                        .logStreamName("TestLogStream")
+                        .clientFactory(factory)
+                        .asyncQueueDepth(10)
+                        .retryStrategy(InstantRetryStrategy::new)
+                        .connectionCount(2)
+                        .partitionStrategy(PartitionStrategy.LOG_STREAM)
+                        .build();
+
+        MetricsContext mc = new MetricsContext();
+        mc.putMetric("Time", 10);
+
+        // act
+        for (int i = 0; i < 4; i++) {
+            sink.accept(mc);
+        }
+        sink.shutdown().join();
+
+        // assert
+        assertEquals(4, client1.messagesSent + client2.messagesSent);
+        assertTrue(client1.messagesSent == 0 || client2.messagesSent == 0);
+    }
+
+    @Test
+    public void spilledEventsAreReplayedOnStartup() throws IOException, InterruptedException {
+        // arrange
+        Fixture fixture = new Fixture();
+        SpillQueue spillQueue = new SpillQueue(folder.getRoot().toPath(), 1024, 2);
+        spillQueue.offer("event-1");
+        spillQueue.offer("event-2");
+
+        // act
+        AgentSink sink =
+                AgentSink.builder()
+                        .clientFactory(fixture.factory)
+                        .retryStrategy(InstantRetryStrategy::new)
+                        .spillQueue(spillQueue)
+                        .build();
+        for (int i = 0; i < 100 && !spillQueue.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        sink.shutdown().join();
+
+        // assert
+        assertEquals(2, fixture.client.messagesSent);
+        assertEquals("event-1\n", fixture.client.getMessages().get(0));
+        assertEquals("event-2\n", fixture.client.getMessages().get(1));
+    }
+
+    @Test
+    public void shutdownSendsBufferedEventsAndClosesTheClients() throws InvalidMetricException {
+        // arrange
+        Fixture fixture = new Fixture();
+        fixture.client.buffering = true;
+        fixture.client.flushesToFail = 1;
+        AgentSink sink =
+                new AgentSink(
+                        "",
+                        null,
+                        Endpoint.DEFAULT_TCP_ENDPOINT,
+                        fixture.factory,
+                        1,
+                        InstantRetryStrategy::new);
+        MetricsContext mc = new MetricsContext();
+        mc.putMetric("Time", 10);
+
+        // act: the sender's own flush fails, so the event is still buffered at shutdown
+        sink.accept(mc);
+        sink.shutdown().join();
+
+        // assert
+        assertEquals(1, fixture.client.messagesSent);
+        assertEquals(1, fixture.client.closes);
+    }
+
     @Test
     public void cannotEnqueueDataAfterShuttingDownSink() {
         // arrange
@@ -278,6 +617,45 @@ public class AgentSinkTest {
         assertThrows(EMFClientException.class, () -> sink.accept(new MetricsContext()));
     }
 
+    @Test
+    public void telemetryReporterFollowsTheLifecycleOfTheSink() throws InterruptedException {
+        // arrange
+        Fixture fixture = new Fixture();
+        AgentSink sink =
+                AgentSink.builder()
+                        .endpoint(Endpoint.DEFAULT_TCP_ENDPOINT)
+                        .clientFactory(fixture.factory)
+                        .retryStrategy(InstantRetryStrategy::new)
+                        .telemetryIntervalMillis(60_000)
+                        .build();
+
+        // act & assert
+        assertTrue(awaitTelemetryReporter(true));
+        sink.beforeCheckpoint();
+        assertTrue(awaitTelemetryReporter(false));
+        sink.afterRestore();
+        assertTrue(awaitTelemetryReporter(true));
+        sink.shutdown().join();
+        assertTrue(awaitTelemetryReporter(false));
+    }
+
+    private static boolean awaitTelemetryReporter(boolean running) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            boolean found =
+                    Thread.getAllStackTraces().keySet().stream()
+                            .anyMatch(
+                                    thread ->
+                                            thread.getName().equals("emf-telemetry-reporter")
+                                                    && thread.isAlive());
+            if (found == running) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
     class Fixture {
         SocketClientFactory factory;
         TestClient client;
@@ -300,12 +678,23 @@ public class AgentSinkTest {
         private int messagesSent = 0;
         private int messagesFailed = 0;
         private int messagesToFail = 0;
+        private int probes = 0;
+        private int batches = 0;
+        private int closes = 0;
+        // when buffering, messages are only written on flush
+        private boolean buffering = false;
+        private final List<String> buffered = new ArrayList<>();
+        private volatile int flushesToFail = 0;
+        private volatile int flushAttempts = 0;
+        private IntConsumer writeListener = messages -> {};
 
         @Override
         public void sendMessage(String message) {
             if (messagesToFail > messagesFailed) {
                 messagesFailed++;
                 throw new RuntimeException("Failed to send message");
+            } else if (buffering) {
+                buffered.add(message);
             } else {
                 messagesSent++;
                 lock.lock();
@@ -314,12 +703,56 @@ public class AgentSinkTest {
             }
         }
 
+        @Override
+        public void flush() {
+            flushAttempts++;
+            if (flushesToFail > 0) {
+                flushesToFail--;
+                throw new RuntimeException("Failed to flush");
+            }
+            lock.lock();
+            int written = buffered.size();
+            messagesSent += written;
+            messages.addAll(buffered);
+            buffered.clear();
+            lock.unlock();
+            if (written > 0) {
+                writeListener.accept(written);
+            }
+        }
+
+        @Override
+        public boolean isBuffering() {
+            return buffering;
+        }
+
+        @Override
+        public void setWriteListener(IntConsumer listener) {
+            writeListener = listener;
+        }
+
+        @Override
+        public void sendMessages(List<String> messages) {
+            batches++;
+            for (String message : messages) {
+                sendMessage(message + "\n");
+            }
+        }
+
+        @Override
+        public boolean probe() {
+            probes++;
+            return true;
+        }
+
         public ArrayList<String> getMessages() {
             return this.messages;
         }
 
         @Override
-        public void close() {}
+        public void close() {
+            closes++;
+        }
     }
 
     class InstantRetryStrategy implements RetryStrategy {
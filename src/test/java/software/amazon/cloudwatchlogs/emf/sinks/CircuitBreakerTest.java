@@ -0,0 +1,109 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void circuitOpensAfterThresholdIsReached() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60_000, () -> false);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertFalse(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getTimesOpened());
+        breaker.close();
+    }
+
+    @Test
+    public void successResetsTheFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60_000, () -> false);
+
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(1, breaker.getConsecutiveFailures());
+        breaker.close();
+    }
+
+    @Test
+    public void probeRunsOnTheGivenThreadFactory() throws InterruptedException {
+        CountDownLatch probed = new CountDownLatch(1);
+        AtomicReference<String> probeThread = new AtomicReference<>();
+        CircuitBreaker breaker =
+                new CircuitBreaker(
+                        1,
+                        10,
+                        () -> {
+                            probeThread.set(Thread.currentThread().getName());
+                            probed.countDown();
+                            return false;
+                        },
+                        runnable -> new Thread(runnable, "custom-probe"));
+
+        breaker.recordFailure();
+
+        assertTrue(probed.await(5, TimeUnit.SECONDS));
+        assertEquals("custom-probe", probeThread.get());
+        breaker.close();
+    }
+
+    @Test
+    public void probeClosesTheCircuitOnceReachable() throws InterruptedException {
+        AtomicBoolean reachable = new AtomicBoolean(false);
+        CircuitBreaker breaker = new CircuitBreaker(1, 10, reachable::get);
+        List<CircuitBreaker.State> transitions = new ArrayList<>();
+        CountDownLatch closed = new CountDownLatch(1);
+        breaker.addListener(
+                state -> {
+                    transitions.add(state);
+                    if (state == CircuitBreaker.State.CLOSED) {
+                        closed.countDown();
+                    }
+                });
+
+        breaker.recordFailure();
+        assertFalse(breaker.allowRequest());
+
+        reachable.set(true);
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(0, breaker.getConsecutiveFailures());
+        assertEquals(CircuitBreaker.State.OPEN, transitions.get(0));
+        assertEquals(CircuitBreaker.State.CLOSED, transitions.get(transitions.size() - 1));
+        breaker.close();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import software.amazon.cloudwatchlogs.emf.Constants;
+import software.amazon.cloudwatchlogs.emf.exception.EMFClientException;
+import software.amazon.cloudwatchlogs.emf.exception.InvalidMetricException;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+
+public class ConsoleSinkTest {
+
+    @Test
+    public void bufferedSinkWritesAllEventsOfAFlushAtOnce()
+            throws InvalidMetricException, JsonProcessingException {
+        RecordingChannel channel = new RecordingChannel();
+        ConsoleSink sink = new ConsoleSink(channel, 0);
+        MetricsContext context = new MetricsContext();
+        for (int i = 0; i < Constants.MAX_METRICS_PER_EVENT + 1; i++) {
+            context.putMetric("Metric-" + i, i);
+        }
+
+        sink.accept(context);
+
+        assertEquals(1, channel.writes.size());
+        String[] lines = channel.writes.get(0).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(context.serialize().get(0), lines[0]);
+        assertEquals(context.serialize().get(1), lines[1]);
+    }
+
+    @Test
+    public void bufferedSinkWritesAllContextsOfABatchAtOnce()
+            throws InvalidMetricException, JsonProcessingException {
+        RecordingChannel channel = new RecordingChannel();
+        ConsoleSink sink = new ConsoleSink(channel, 0);
+        MetricsContext first = new MetricsContext();
+        first.putMetric("First", 1);
+        MetricsContext second = new MetricsContext();
+        second.putMetric("Second", 2);
+
+        sink.acceptAll(Arrays.asList(first, second));
+
+        assertEquals(1, channel.writes.size());
+        assertEquals(
+                first.serialize().get(0) + "\n" + second.serialize().get(0) + "\n",
+                channel.writes.get(0));
+    }
+
+    @Test
+    public void bufferedSinkReusesItsBufferForSmallerFlushes()
+            throws InvalidMetricException, JsonProcessingException {
+        RecordingChannel channel = new RecordingChannel();
+        ConsoleSink sink = new ConsoleSink(channel, 0);
+        MetricsContext large = new MetricsContext();
+        large.putProperty("Description", "température élevée ✓");
+        for (int i = 0; i < 20; i++) {
+            large.putMetric("Metric-" + i, i);
+        }
+        MetricsContext small = new MetricsContext();
+        small.putMetric("Count", 1);
+
+        sink.accept(large);
+        sink.accept(small);
+
+        assertEquals(2, channel.writes.size());
+        assertEquals(large.serialize().get(0) + "\n", channel.writes.get(0));
+        assertEquals(small.serialize().get(0) + "\n", channel.writes.get(1));
+    }
+
+    @Test
+    public void asyncSinkWritesPendingFlushesOnShutdown()
+            throws InvalidMetricException, JsonProcessingException {
+        RecordingChannel channel = new RecordingChannel();
+        ConsoleSink sink = new ConsoleSink(channel, 10);
+        MetricsContext context = new MetricsContext();
+        context.putMetric("Time", 10);
+
+        sink.accept(context);
+        sink.accept(context);
+        sink.shutdown().join();
+
+        assertEquals(2, channel.writes.size());
+        assertEquals(context.serialize().get(0) + "\n", channel.writes.get(1));
+    }
+
+    @Test
+    public void cannotWriteAfterShuttingDownAsyncSink() {
+        ConsoleSink sink = new ConsoleSink(new RecordingChannel(), 10);
+
+        sink.shutdown().join();
+
+        assertThrows(EMFClientException.class, () -> sink.accept(new MetricsContext()));
+    }
+
+    static class RecordingChannel implements WritableByteChannel {
+        private final List<String> writes = new ArrayList<>();
+
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            byte[] bytes = new byte[length];
+            src.get(bytes);
+            writes.add(new String(bytes, StandardCharsets.UTF_8));
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -17,6 +17,7 @@
 package software.amazon.cloudwatchlogs.emf.sinks;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
 
 import org.junit.Test;
 
@@ -38,6 +39,31 @@ public class EndpointTest {
         assertEquals(endpoint.toString(), tcpEndpoint);
     }
 
+    @Test
+    public void testParseForwardEndpoint() {
+        String forwardEndpoint = "forward://127.0.0.1:24224";
+        Endpoint endpoint = Endpoint.fromURL(forwardEndpoint);
+
+        assertEquals(Protocol.FORWARD, endpoint.getProtocol());
+        assertEquals(forwardEndpoint, endpoint.toString());
+    }
+
+    @Test
+    public void testParseUnixEndpoint() {
+        assumeTrue(UnixSocketClient.isSupported());
+        String unixEndpoint = "unix:///var/run/cwagent/emf.sock";
+        Endpoint endpoint = Endpoint.fromURL(unixEndpoint);
+
+        assertEquals(Protocol.UNIX, endpoint.getProtocol());
+        assertEquals("/var/run/cwagent/emf.sock", endpoint.getHost());
+        assertEquals(unixEndpoint, endpoint.toString());
+    }
+
+    @Test
+    public void testReturnDefaultEndpointForUnixURIWithoutPath() {
+        assertEquals(Endpoint.DEFAULT_TCP_ENDPOINT, Endpoint.fromURL("unix:emf.sock"));
+    }
+
     @Test
     public void testReturnDefaultEndpointForInvalidURI() {
         String unsupportedEndpoint = "http://173.9.0.12:2580";
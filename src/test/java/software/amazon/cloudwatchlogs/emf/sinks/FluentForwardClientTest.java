@@ -0,0 +1,181 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.cloudwatchlogs.emf.Constants;
+
+public class FluentForwardClientTest {
+    private static final Endpoint ENDPOINT = Endpoint.fromURL("forward://127.0.0.1:24224");
+
+    private Socket socket;
+    private ByteArrayOutputStream output;
+
+    @Before
+    public void setUp() throws IOException {
+        socket = mock(Socket.class);
+        output = new ByteArrayOutputStream();
+        when(socket.getOutputStream()).thenReturn(output);
+        doNothing().when(socket).connect(any(), anyInt());
+    }
+
+    @Test
+    public void recordsArePackedIntoASingleForwardMessage() throws IOException {
+        FluentForwardClient client = newClient(false, 1024);
+
+        client.sendMessage("{\"Count\":1,\"Service\":\"a\"}\n");
+        client.sendMessages(Collections.singletonList("{\"Count\":2.5,\"Service\":\"b\"}"));
+        assertEquals(0, output.size());
+
+        client.flush();
+
+        verify(socket).connect(any(), eq(Constants.DEFAULT_SOCKET_CONNECT_TIMEOUT_MILLIS));
+        List<Object> message = readMessage();
+        assertEquals("emf", message.get(0));
+        assertEquals(2L, ((Map<?, ?>) message.get(2)).get("size"));
+
+        List<List<Object>> entries = readEntries((byte[]) message.get(1), 2);
+        assertTrue(entries.get(0).get(0) instanceof Instant);
+        Map<?, ?> first = (Map<?, ?>) entries.get(0).get(1);
+        assertEquals(1L, first.get("Count"));
+        assertEquals("a", first.get("Service"));
+        Map<?, ?> second = (Map<?, ?>) entries.get(1).get(1);
+        assertEquals(2.5, second.get("Count"));
+        assertEquals("b", second.get("Service"));
+    }
+
+    @Test
+    public void eventTimeIsTakenFromTheMetadataTimestamp() throws IOException {
+        FluentForwardClient client = newClient(false, 1024);
+        long before = System.currentTimeMillis();
+
+        client.sendMessage("{\"_aws\":{\"Timestamp\":1700000000123},\"Count\":1}");
+        client.sendMessage("{\"Count\":2}");
+        client.flush();
+
+        List<List<Object>> entries = readEntries((byte[]) readMessage().get(1), 2);
+        assertEquals(Instant.ofEpochMilli(1700000000123L), entries.get(0).get(0));
+        long fallbackMillis = ((Instant) entries.get(1).get(0)).toEpochMilli();
+        assertTrue(fallbackMillis >= before);
+        assertTrue(fallbackMillis <= System.currentTimeMillis());
+    }
+
+    @Test
+    public void messageIsSentOnceTheChunkIsFull() throws IOException {
+        FluentForwardClient client = newClient(false, 1);
+
+        client.sendMessage("{\"Count\":1}");
+        assertEquals(0, output.size());
+        client.sendMessage("{\"Count\":2}");
+
+        List<Object> message = readMessage();
+        assertEquals(1L, ((Map<?, ?>) message.get(2)).get("size"));
+    }
+
+    @Test
+    public void eventsThatAreNotJsonObjectsAreDropped() throws IOException {
+        SinkTelemetry telemetry = new SinkTelemetry();
+        FluentForwardClient client = newClient(false, 1024);
+        client.setTelemetry(telemetry);
+
+        client.sendMessage("not json");
+        client.sendMessage("[1, 2]");
+        client.flush();
+
+        assertEquals(0, output.size());
+        assertEquals(2, telemetry.snapshot().getDropped());
+    }
+
+    @Test
+    public void unacknowledgedMessageIsSentAgainWithTheSameChunk() throws IOException {
+        when(socket.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+        FluentForwardClient client = newClient(true, 1024);
+        client.sendMessage("{\"Count\":1}");
+
+        try {
+            client.flush();
+            fail("Expected the flush to fail without an acknowledgement.");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        Object chunk = ((Map<?, ?>) readMessage().get(2)).get("chunk");
+        assertNotNull(chunk);
+
+        output.reset();
+        when(socket.getInputStream()).thenReturn(ack((String) chunk));
+        client.flush();
+
+        List<Object> resent = readMessage();
+        assertEquals(chunk, ((Map<?, ?>) resent.get(2)).get("chunk"));
+        assertEquals(1, readEntries((byte[]) resent.get(1), 1).size());
+
+        output.reset();
+        client.flush();
+        assertEquals(0, output.size());
+    }
+
+    private FluentForwardClient newClient(boolean requireAck, int maxChunkSize) {
+        return new FluentForwardClient(ENDPOINT, "emf", requireAck, maxChunkSize, 1000) {
+            @Override
+            protected Socket createSocket() {
+                return socket;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> readMessage() throws IOException {
+        MessagePackReader reader =
+                new MessagePackReader(new ByteArrayInputStream(output.toByteArray()));
+        return (List<Object>) reader.readValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<List<Object>> readEntries(byte[] entries, int count) throws IOException {
+        MessagePackReader reader = new MessagePackReader(new ByteArrayInputStream(entries));
+        List<List<Object>> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add((List<Object>) reader.readValue());
+        }
+        return result;
+    }
+
+    private static InputStream ack(String chunk) {
+        MessagePackWriter writer = new MessagePackWriter(64);
+        writer.packMapHeader(1).packString("ack").packString(chunk);
+        return new ByteArrayInputStream(writer.toByteArray());
+    }
+}
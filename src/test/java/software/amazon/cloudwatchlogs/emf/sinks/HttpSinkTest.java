@@ -0,0 +1,181 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+
+public class HttpSinkTest {
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private final List<String> contentTypes = new CopyOnWriteArrayList<>();
+    // the number of requests to answer with 503 before accepting them
+    private final AtomicInteger failures = new AtomicInteger();
+    private HttpServer server;
+    private URL url;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/emf", this::handle);
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/emf");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void contextsAreSentAsOneGzipCompressedJsonArray() throws IOException {
+        HttpSink sink =
+                HttpSink.builder()
+                        .url(url)
+                        .logGroupName("TestLogGroup")
+                        .gzip(true)
+                        .lingerMillis(60_000)
+                        .build();
+
+        sink.acceptAll(Arrays.asList(newContext(1), newContext(2)));
+        sink.accept(newContext(3));
+        sink.shutdown().join();
+
+        assertEquals(1, bodies.size());
+        assertEquals("application/json", contentTypes.get(0));
+        JsonNode events = new ObjectMapper().readTree(bodies.get(0));
+        assertEquals(3, events.size());
+        assertEquals(1, events.get(0).get("Count").asInt());
+        assertEquals(3, events.get(2).get("Count").asInt());
+        assertEquals("TestLogGroup", events.get(0).get("_aws").get("LogGroupName").asText());
+    }
+
+    @Test
+    public void batchIsSentOnceItIsFull() throws IOException {
+        HttpSink sink =
+                HttpSink.builder()
+                        .url(url)
+                        .format(HttpBatchFormat.NDJSON)
+                        .maxBatchEvents(2)
+                        .lingerMillis(60_000)
+                        .build();
+
+        for (int i = 0; i < 5; i++) {
+            sink.accept(newContext(i));
+        }
+        sink.shutdown().join();
+
+        assertEquals(3, bodies.size());
+        assertEquals("application/x-ndjson", contentTypes.get(0));
+        String[] lines = bodies.get(0).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(0, new ObjectMapper().readTree(lines[0]).get("Count").asInt());
+    }
+
+    @Test
+    public void batchIsSentAfterTheLingerTime() throws InterruptedException {
+        HttpSink sink = HttpSink.builder().url(url).lingerMillis(10).build();
+
+        sink.accept(newContext(1));
+        for (int i = 0; i < 500 && bodies.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, bodies.size());
+        sink.shutdown().join();
+    }
+
+    @Test
+    public void lingerCanBeChangedWhileRunning() {
+        HttpSink sink = HttpSink.builder().url(url).build();
+
+        sink.setLingerMillis(60_000);
+        sink.accept(newContext(1));
+        sink.accept(newContext(2));
+        sink.shutdown().join();
+
+        assertEquals(1, bodies.size());
+        assertEquals(60_000, sink.getLingerMillis());
+    }
+
+    @Test
+    public void failedRequestsAreRetried() {
+        failures.set(2);
+        HttpSink sink = HttpSink.builder().url(url).retryStrategy(() -> () -> 0).build();
+
+        sink.accept(newContext(1));
+        sink.shutdown().join();
+
+        assertEquals(1, bodies.size());
+        assertEquals(2, sink.getTelemetry().snapshot().getRetries());
+        assertEquals(1, sink.getTelemetry().snapshot().getEvents());
+        assertTrue(sink.getTelemetry().snapshot().getBytes() > 0);
+    }
+
+    private static MetricsContext newContext(int count) {
+        MetricsContext context = new MetricsContext();
+        context.putMetric("Count", count);
+        return context;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = readAll(exchange.getRequestBody());
+        if (failures.getAndDecrement() > 0) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            body = readAll(new GZIPInputStream(new ByteArrayInputStream(body)));
+        }
+        contentTypes.add(exchange.getRequestHeaders().getFirst("Content-Type"));
+        bodies.add(new String(body, StandardCharsets.UTF_8));
+        exchange.sendResponseHeaders(204, -1);
+        exchange.close();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
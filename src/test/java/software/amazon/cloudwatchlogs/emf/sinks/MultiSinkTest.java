@@ -1,6 +1,9 @@
 package software.amazon.cloudwatchlogs.emf.sinks;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.concurrent.CompletableFuture;
@@ -44,9 +47,64 @@ public class MultiSinkTest {
         assertEquals(1, sink2.getShutdowns());
     }
 
+    @Test
+    public void offerDeliversNowhereIfAnySinkIsSaturated() {
+        // arrange
+        SinkShunt sink1 = new SinkShunt();
+        SinkShunt sink2 = new SinkShunt();
+        sink2.setSaturation(1);
+        MultiSink multiSink = MultiSink.builder().sink(sink1).sink(sink2).build();
+        MetricsContext context = new MetricsContext();
+
+        // act
+        boolean accepted = multiSink.offer(context);
+
+        // assert
+        assertFalse(accepted);
+        assertNull(sink1.getContext());
+        assertNull(sink2.getContext());
+    }
+
+    @Test
+    public void offerIsAcceptedByASinkThatRejectsItAfterOthersAccepted() {
+        // arrange
+        SinkShunt sink1 = new SinkShunt();
+        TestSink sink2 = new TestSink();
+        sink2.rejectOffers = true;
+        MultiSink multiSink = MultiSink.builder().sink(sink1).sink(sink2).build();
+        MetricsContext context = new MetricsContext();
+
+        // act
+        boolean accepted = multiSink.offer(context);
+
+        // assert
+        assertTrue(accepted);
+        assertSame(context, sink1.getContext());
+        assertEquals(1, sink2.getAccepts());
+    }
+
+    @Test
+    public void offerIsRejectedIfTheFirstSinkRejectsIt() {
+        // arrange
+        TestSink sink1 = new TestSink();
+        sink1.rejectOffers = true;
+        SinkShunt sink2 = new SinkShunt();
+        MultiSink multiSink = MultiSink.builder().sink(sink1).sink(sink2).build();
+
+        // act
+        boolean accepted = multiSink.offer(new MetricsContext());
+
+        // assert
+        assertFalse(accepted);
+        assertEquals(0, sink1.getAccepts());
+        assertNull(sink2.getContext());
+    }
+
     private static class TestSink implements ISink {
         private final CompletableFuture<Void> shutdownResult;
         @Getter int shutdowns = 0;
+        @Getter int accepts = 0;
+        boolean rejectOffers;
 
         TestSink() {
             this.shutdownResult = CompletableFuture.completedFuture(null);
@@ -57,7 +115,18 @@ public class MultiSinkTest {
         }
 
         @Override
-        public void accept(MetricsContext context) {}
+        public void accept(MetricsContext context) {
+            accepts += 1;
+        }
+
+        @Override
+        public boolean offer(MetricsContext context) {
+            if (rejectOffers) {
+                return false;
+            }
+            accept(context);
+            return true;
+        }
 
         @Override
         public CompletableFuture<Void> shutdown() {
@@ -36,6 +36,18 @@ public class ProtocolTest {
         assertEquals(Protocol.UDP, Protocol.getProtocol("Udp"));
     }
 
+    @Test
+    public void testParseUnix() {
+        assertEquals(Protocol.UNIX, Protocol.getProtocol("UNIX"));
+        assertEquals(Protocol.UNIX, Protocol.getProtocol("unix"));
+    }
+
+    @Test
+    public void testParseForward() {
+        assertEquals(Protocol.FORWARD, Protocol.getProtocol("FORWARD"));
+        assertEquals(Protocol.FORWARD, Protocol.getProtocol("forward"));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testThrowExceptionForUnsupportedProtocol() {
         Protocol.valueOf("http");
@@ -0,0 +1,104 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class ResizableBlockingQueueTest {
+
+    @Test
+    public void offerIsRejectedAtCapacity() {
+        ResizableBlockingQueue<String> queue = new ResizableBlockingQueue<>(2);
+
+        assertTrue(queue.offer("a"));
+        assertTrue(queue.offer("b"));
+        assertFalse(queue.offer("c"));
+        assertEquals(0, queue.remainingCapacity());
+
+        queue.setCapacity(3);
+        assertEquals(1, queue.remainingCapacity());
+        assertTrue(queue.offer("c"));
+    }
+
+    @Test
+    public void reducingTheCapacityKeepsQueuedElements() {
+        ResizableBlockingQueue<String> queue = new ResizableBlockingQueue<>(3);
+        queue.offer("a");
+        queue.offer("b");
+        queue.offer("c");
+
+        queue.setCapacity(1);
+
+        assertEquals(3, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertFalse(queue.offer("d"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePositive() {
+        new ResizableBlockingQueue<String>(1).setCapacity(0);
+    }
+
+    @Test
+    public void overflowPolicyCanBeChangedAtRuntime() throws InterruptedException {
+        SinkTelemetry telemetry = new SinkTelemetry();
+        AtomicReference<OverflowPolicy> policy = new AtomicReference<>(OverflowPolicy.DROP_OLDEST);
+        ResizableBlockingQueue<Runnable> queue = new ResizableBlockingQueue<>(2);
+        List<String> executed = new ArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(
+                        1,
+                        1,
+                        0L,
+                        TimeUnit.MILLISECONDS,
+                        queue,
+                        new QueueOverflowHandler(policy::get, runnable -> 1, telemetry));
+        executor.execute(
+                () -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+
+        executor.execute(() -> executed.add("a"));
+        executor.execute(() -> executed.add("b"));
+        executor.execute(() -> executed.add("c"));
+        policy.set(OverflowPolicy.DROP_NEWEST);
+        executor.execute(() -> executed.add("d"));
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(2, executed.size());
+        assertEquals("b", executed.get(0));
+        assertEquals("c", executed.get(1));
+        assertEquals(2, telemetry.snapshot().getDropped());
+    }
+}
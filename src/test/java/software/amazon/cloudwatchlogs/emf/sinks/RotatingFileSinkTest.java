@@ -0,0 +1,113 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.cloudwatchlogs.emf.exception.EMFClientException;
+import software.amazon.cloudwatchlogs.emf.exception.InvalidMetricException;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+
+public class RotatingFileSinkTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesEventsAsLines()
+            throws IOException, InvalidMetricException, JsonProcessingException {
+        Path directory = folder.getRoot().toPath();
+        RotatingFileSink sink = RotatingFileSink.builder().directory(directory).build();
+        MetricsContext context = newContext();
+
+        sink.accept(context);
+        sink.accept(context);
+        sink.shutdown().join();
+
+        List<Path> files = listFiles(directory);
+        assertEquals(1, files.size());
+        List<String> lines = Files.readAllLines(files.get(0), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertEquals(context.serialize().get(0), lines.get(0));
+    }
+
+    @Test
+    public void rotatesOnceTheMaximumSizeIsReached() throws IOException, InvalidMetricException {
+        Path directory = folder.getRoot().toPath();
+        RotatingFileSink sink =
+                RotatingFileSink.builder().directory(directory).maxFileSize(1).build();
+
+        sink.accept(newContext());
+        Path first = sink.getCurrentFile();
+        sink.accept(newContext());
+        sink.shutdown().join();
+
+        assertNotEquals(first, sink.getCurrentFile());
+        assertEquals(2, listFiles(directory).size());
+    }
+
+    @Test
+    public void deletesTheOldestFilesBeyondTheLimit() throws IOException, InvalidMetricException {
+        Path directory = folder.getRoot().toPath();
+        RotatingFileSink sink =
+                RotatingFileSink.builder().directory(directory).maxFileSize(1).maxFiles(2).build();
+
+        for (int i = 0; i < 5; i++) {
+            sink.accept(newContext());
+        }
+        Path last = sink.getCurrentFile();
+        sink.shutdown().join();
+
+        List<Path> files = listFiles(directory);
+        assertEquals(2, files.size());
+        assertEquals(last, files.get(1));
+    }
+
+    @Test
+    public void cannotWriteAfterShutdown() {
+        RotatingFileSink sink =
+                RotatingFileSink.builder().directory(folder.getRoot().toPath()).build();
+
+        sink.shutdown().join();
+
+        assertThrows(EMFClientException.class, () -> sink.accept(new MetricsContext()));
+    }
+
+    private MetricsContext newContext() throws InvalidMetricException {
+        MetricsContext context = new MetricsContext();
+        context.putMetric("Time", 10);
+        return context;
+    }
+
+    private List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+}
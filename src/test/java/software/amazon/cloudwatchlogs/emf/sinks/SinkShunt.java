@@ -26,6 +26,8 @@ public class SinkShunt implements ISink {
 
     private List<String> logEvents;
 
+    private double saturation;
+
     @Override
     public void accept(MetricsContext context) {
         this.context = context;
@@ -36,6 +38,24 @@ public class SinkShunt implements ISink {
         }
     }
 
+    @Override
+    public boolean offer(MetricsContext context) {
+        if (isSaturated()) {
+            return false;
+        }
+        accept(context);
+        return true;
+    }
+
+    @Override
+    public double getSaturation() {
+        return saturation;
+    }
+
+    public void setSaturation(double saturation) {
+        this.saturation = saturation;
+    }
+
     @Override
     public CompletableFuture<Void> shutdown() {
         return CompletableFuture.completedFuture(null);
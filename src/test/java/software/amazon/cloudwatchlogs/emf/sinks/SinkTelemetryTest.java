@@ -0,0 +1,102 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import software.amazon.cloudwatchlogs.emf.model.MetricsContext;
+
+public class SinkTelemetryTest {
+
+    @Test
+    public void snapshotReportsCountersAndHighWaterMark() {
+        SinkTelemetry telemetry = new SinkTelemetry();
+
+        telemetry.recordEvents(3);
+        telemetry.recordBytes(300);
+        telemetry.recordDrops(2);
+        telemetry.recordRetry();
+        telemetry.recordReconnect();
+        telemetry.recordQueueDepth(5);
+        telemetry.recordQueueDepth(2);
+
+        SinkTelemetry.Snapshot snapshot = telemetry.snapshot();
+        assertEquals(3, snapshot.getEvents());
+        assertEquals(300, snapshot.getBytes());
+        assertEquals(2, snapshot.getDropped());
+        assertEquals(1, snapshot.getRetries());
+        assertEquals(1, snapshot.getReconnects());
+        assertEquals(5, snapshot.getQueueHighWaterMark());
+    }
+
+    @Test
+    public void latencyPercentilesAreBucketedByPowersOfTwo() {
+        SinkTelemetry telemetry = new SinkTelemetry();
+
+        for (int i = 0; i < 98; i++) {
+            telemetry.recordLatency(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        telemetry.recordLatency(TimeUnit.MILLISECONDS.toNanos(10));
+        telemetry.recordLatency(TimeUnit.MILLISECONDS.toNanos(10));
+
+        SinkTelemetry.Snapshot snapshot = telemetry.snapshot();
+        assertEquals(100, snapshot.getLatencyCount());
+        assertEquals(128, snapshot.getLatencyP50Micros());
+        assertEquals(16384, snapshot.getLatencyP99Micros());
+        assertEquals(10_000, snapshot.getLatencyMaxMicros());
+    }
+
+    @Test
+    public void sinceReturnsTheValuesOfAnInterval() {
+        SinkTelemetry telemetry = new SinkTelemetry();
+        telemetry.recordEvents(10);
+        telemetry.recordLatency(TimeUnit.MILLISECONDS.toNanos(10));
+        SinkTelemetry.Snapshot first = telemetry.snapshot();
+
+        telemetry.recordEvents(5);
+        telemetry.recordLatency(TimeUnit.MICROSECONDS.toNanos(100));
+        SinkTelemetry.Snapshot interval = telemetry.snapshot().since(first);
+
+        assertEquals(5, interval.getEvents());
+        assertEquals(1, interval.getLatencyCount());
+        assertEquals(128, interval.getLatencyP99Micros());
+    }
+
+    @Test
+    public void reporterEmitsTheIntervalAsAnEmfEvent() throws Exception {
+        SinkTelemetry telemetry = new SinkTelemetry();
+        SinkShunt sink = new SinkShunt();
+        SinkTelemetryReporter reporter =
+                new SinkTelemetryReporter(telemetry, sink, "Telemetry", 60_000);
+        telemetry.recordDrops(4);
+
+        reporter.report();
+        reporter.close();
+
+        MetricsContext context = sink.getContext();
+        assertEquals("Telemetry", context.getNamespace());
+        JsonNode event = new ObjectMapper().readTree(sink.getLogEvents().get(0));
+        assertEquals(4, event.get("DroppedEvents").asInt());
+        assertEquals("SinkShunt", event.get("Sink").asText());
+        assertTrue(event.has("EventsPerSecond"));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpillQueueTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void eventsAreReturnedInOrder() throws IOException {
+        SpillQueue queue = new SpillQueue(folder.getRoot().toPath(), 64, 4);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(queue.offer("event-" + i));
+        }
+
+        assertEquals(10, queue.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("event-" + i, queue.peek());
+            queue.remove();
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+        queue.close();
+    }
+
+    @Test
+    public void unconsumedEventsAreRecoveredAfterReopening() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        SpillQueue queue = new SpillQueue(directory, 64, 4);
+        for (int i = 0; i < 6; i++) {
+            queue.offer("event-" + i);
+        }
+        queue.remove();
+        queue.remove();
+        queue.close();
+
+        SpillQueue reopened = new SpillQueue(directory, 64, 4);
+
+        assertEquals(4, reopened.size());
+        for (int i = 2; i < 6; i++) {
+            assertEquals("event-" + i, reopened.peek());
+            reopened.remove();
+        }
+        assertTrue(reopened.isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    public void eventsAreDroppedWhenAllSegmentsAreFull() throws IOException {
+        SpillQueue queue = new SpillQueue(folder.getRoot().toPath(), 32, 2);
+
+        // each segment holds a single 11 byte record after the 12 byte header
+        assertTrue(queue.offer("event-0"));
+        assertTrue(queue.offer("event-1"));
+        assertFalse(queue.offer("event-2"));
+
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.getDroppedEvents());
+        queue.close();
+    }
+
+    @Test
+    public void consumedSegmentsAreReused() throws IOException {
+        SpillQueue queue = new SpillQueue(folder.getRoot().toPath(), 32, 2);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(queue.offer("event-" + (i % 10)));
+            assertEquals("event-" + (i % 10), queue.peek());
+            queue.remove();
+        }
+
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.getDroppedEvents());
+        queue.close();
+    }
+
+    @Test
+    public void directoryCannotBeSharedByTwoQueues() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        SpillQueue queue = new SpillQueue(directory, 64, 4);
+        queue.offer("event-0");
+
+        assertThrows(IOException.class, () -> new SpillQueue(directory, 64, 4));
+
+        // the directory can be used again once the first queue is closed
+        queue.close();
+        SpillQueue reopened = new SpillQueue(directory, 64, 4);
+        assertEquals("event-0", reopened.peek());
+        reopened.close();
+    }
+}
@@ -17,13 +17,20 @@
 package software.amazon.cloudwatchlogs.emf.sinks;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
+import software.amazon.cloudwatchlogs.emf.Constants;
 
 public class TCPClientTest {
 
@@ -32,7 +39,7 @@ public class TCPClientTest {
         Socket socket = mock(Socket.class);
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         when(socket.getOutputStream()).thenReturn(bos);
-        doNothing().when(socket).connect(any());
+        doNothing().when(socket).connect(any(), anyInt());
         Endpoint endpoint = Endpoint.DEFAULT_TCP_ENDPOINT;
 
         TCPClient client =
@@ -47,5 +54,57 @@ public class TCPClientTest {
         client.sendMessage(message);
 
         assertEquals(bos.toString(), message);
+        verify(socket).connect(any(), eq(Constants.DEFAULT_SOCKET_CONNECT_TIMEOUT_MILLIS));
+    }
+
+    @Test
+    public void closeWaitsForTheWriteInProgress() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Socket socket = mock(Socket.class);
+        when(socket.getOutputStream())
+                .thenReturn(
+                        new OutputStream() {
+                            @Override
+                            public void write(int b) {}
+
+                            @Override
+                            public void write(byte[] b, int off, int len) {
+                                writing.countDown();
+                                try {
+                                    release.await();
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                            }
+                        });
+        TCPClient client =
+                new TCPClient(Endpoint.DEFAULT_TCP_ENDPOINT) {
+                    @Override
+                    protected Socket createSocket() {
+                        return socket;
+                    }
+                };
+
+        CompletableFuture<Void> send = CompletableFuture.runAsync(() -> client.sendMessage("m"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> close =
+                CompletableFuture.runAsync(
+                        () -> {
+                            try {
+                                client.close();
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+
+        Thread.sleep(100);
+        assertFalse(close.isDone());
+        verify(socket, never()).close();
+
+        release.countDown();
+        send.get(5, TimeUnit.SECONDS);
+        close.get(5, TimeUnit.SECONDS);
+        verify(socket).close();
     }
 }
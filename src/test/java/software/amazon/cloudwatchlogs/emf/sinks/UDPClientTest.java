@@ -0,0 +1,107 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UDPClientTest {
+
+    private DatagramSocket server;
+    private Endpoint endpoint;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        server.setSoTimeout(2000);
+        endpoint = new Endpoint("127.0.0.1", server.getLocalPort(), Protocol.UDP);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void packsMessagesIntoOneDatagram() throws IOException {
+        UDPClient client = new UDPClient(endpoint, 100);
+
+        client.sendMessage("event-1\n");
+        client.sendMessage("event-2\n");
+        client.flush();
+
+        assertEquals("event-1\nevent-2\n", receive());
+        client.close();
+    }
+
+    @Test
+    public void startsANewDatagramWhenTheMessageDoesNotFit() throws IOException {
+        UDPClient client = new UDPClient(endpoint, 10);
+
+        client.sendMessage("event-1\n");
+        client.sendMessage("event-2\n");
+        client.close();
+
+        assertEquals("event-1\n", receive());
+        assertEquals("event-2\n", receive());
+    }
+
+    @Test
+    public void separatesMessagesWithoutTrailingNewline() throws IOException {
+        UDPClient client = new UDPClient(endpoint, 100);
+
+        client.sendMessage("event-1");
+        client.sendMessage("event-2");
+        client.flush();
+
+        assertEquals("event-1\nevent-2", receive());
+        client.close();
+    }
+
+    @Test
+    public void dropsMessagesLargerThanTheMaximumPayload() throws IOException {
+        UDPClient client = new UDPClient(endpoint, 8);
+
+        client.sendMessage("too-large-event\n");
+        client.sendMessage("event-1\n");
+        client.flush();
+
+        assertEquals("event-1\n", receive());
+        assertEquals(1, client.getOversizedMessages());
+        client.close();
+    }
+
+    private String receive() throws IOException {
+        byte[] buffer = new byte[1024];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        try {
+            server.receive(packet);
+        } catch (SocketTimeoutException e) {
+            return null;
+        }
+        return new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+    }
+}
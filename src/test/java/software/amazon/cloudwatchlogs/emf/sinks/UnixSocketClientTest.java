@@ -0,0 +1,119 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package software.amazon.cloudwatchlogs.emf.sinks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.net.ProtocolFamily;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UnixSocketClientTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private String socketPath;
+
+    @Before
+    public void setUp() {
+        assumeTrue(UnixSocketClient.isSupported());
+        socketPath = new File(folder.getRoot(), "emf.sock").getAbsolutePath();
+    }
+
+    @Test
+    public void testSendMessage() throws Exception {
+        try (ServerSocketChannel server = openServer()) {
+            UnixSocketClient client =
+                    new UnixSocketClient(new Endpoint(socketPath, 0, Protocol.UNIX));
+
+            client.sendMessage("event-1\n");
+            client.sendMessage("event-2\n");
+
+            try (SocketChannel connection = server.accept()) {
+                assertEquals("event-1\nevent-2\n", read(connection, 16));
+            }
+            client.close();
+        }
+    }
+
+    @Test
+    public void testProbeFailsWithoutServer() {
+        UnixSocketClient client = new UnixSocketClient(new Endpoint(socketPath, 0, Protocol.UNIX));
+
+        assertFalse(client.probe());
+    }
+
+    @Test
+    public void testReconnectsAfterServerRestart() throws Exception {
+        UnixSocketClient client = new UnixSocketClient(new Endpoint(socketPath, 0, Protocol.UNIX));
+        try (ServerSocketChannel server = openServer()) {
+            assertTrue(client.probe());
+            server.accept().close();
+        }
+        new File(socketPath).delete();
+
+        try (ServerSocketChannel server = openServer()) {
+            // the first write may still succeed on the old connection, so retry until a new
+            // connection is accepted
+            SocketChannel connection = null;
+            server.configureBlocking(false);
+            for (int i = 0; i < 50 && connection == null; i++) {
+                try {
+                    client.sendMessage("event\n");
+                } catch (RuntimeException e) {
+                    // expected while the broken connection is detected
+                }
+                connection = server.accept();
+                Thread.sleep(10);
+            }
+
+            assertTrue(connection != null);
+            connection.close();
+        }
+        client.close();
+    }
+
+    private ServerSocketChannel openServer() throws Exception {
+        ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+        ServerSocketChannel server =
+                (ServerSocketChannel)
+                        ServerSocketChannel.class
+                                .getMethod("open", ProtocolFamily.class)
+                                .invoke(null, unix);
+        server.bind(UnixSocketClient.createAddress(socketPath));
+        return server;
+    }
+
+    private String read(SocketChannel connection, int length) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && connection.read(buffer) >= 0) {
+            // keep reading until the expected number of bytes has arrived
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+}
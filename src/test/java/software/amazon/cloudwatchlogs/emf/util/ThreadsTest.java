@@ -0,0 +1,67 @@
+/*
+ *   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package software.amazon.cloudwatchlogs.emf.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class ThreadsTest {
+
+    @Test
+    public void daemonThreadsAreNamedWithThePrefix() {
+        ThreadFactory factory = Threads.daemonThreadFactory("emf-test");
+
+        Thread first = factory.newThread(() -> {});
+        Thread second = factory.newThread(() -> {});
+
+        assertTrue(first.isDaemon());
+        assertEquals("emf-test-0", first.getName());
+        assertEquals("emf-test-1", second.getName());
+    }
+
+    @Test
+    public void virtualThreadFactoryFallsBackToDaemonThreads() {
+        Thread thread = Threads.virtualThreadFactory("emf-test").newThread(() -> {});
+
+        // virtual threads are always daemon threads
+        assertTrue(thread.isDaemon());
+        assertEquals("emf-test-0", thread.getName());
+    }
+
+    @Test
+    public void threadPerTaskExecutorRunsTasksOnNewThreads() throws InterruptedException {
+        AtomicReference<String> threadName = new AtomicReference<>();
+        CountDownLatch ran = new CountDownLatch(1);
+
+        Threads.threadPerTaskExecutor(Threads.daemonThreadFactory("emf-test"))
+                .execute(
+                        () -> {
+                            threadName.set(Thread.currentThread().getName());
+                            ran.countDown();
+                        });
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals("emf-test-0", threadName.get());
+    }
+}